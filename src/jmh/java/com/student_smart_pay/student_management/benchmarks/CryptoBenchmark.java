@@ -0,0 +1,67 @@
+package com.student_smart_pay.student_management.benchmarks;
+
+import com.student_smart_pay.student_management.service.CryptoService;
+import com.student_smart_pay.student_management.service.QrTokenParser;
+import com.student_smart_pay.student_management.service.QrTokenParser.QrToken;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// AES-GCM token encryption and the HMAC used to sign dynamic QR codes.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptoBenchmark {
+
+    private CryptoService cryptoService;
+    private String smartId;
+    private String encrypted;
+    private SecretKey qrKey;
+    private String qrToken;
+
+    @Setup
+    public void setup() {
+        cryptoService = new CryptoService();
+        ReflectionTestUtils.setField(cryptoService, "secretKey", "MySuperSecretKeyForTesting123456");
+        ReflectionTestUtils.invokeMethod(cryptoService, "initKey");
+
+        smartId = "STU-TECH-2026-004217";
+        encrypted = cryptoService.encrypt(smartId);
+        qrKey = CryptoService.hmacKey("3f1c9a7e-58b2-4d0a-9e61-2b7c4d8f0a13");
+        String payload = "42:" + System.currentTimeMillis();
+        byte[] signature = cryptoService.hmacSha256(qrKey, payload.getBytes(StandardCharsets.UTF_8));
+        qrToken = payload + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return cryptoService.encrypt(smartId);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return cryptoService.decrypt(encrypted);
+    }
+
+    // Same steps as the QR branch of GateService.resolveToken: parse, HMAC, constant-time compare
+    @Benchmark
+    public boolean qrVerify() {
+        QrToken qr = QrTokenParser.parse(qrToken);
+        cryptoService.hmacSha256(qrKey, qr.payload(), 0, qr.payloadLength(), qr.expected());
+        return MessageDigest.isEqual(qr.expected(), qr.signature());
+    }
+
+    // Garbage from a bad scanner: must be rejected without exceptions
+    @Benchmark
+    public Object qrParseGarbage() {
+        return QrTokenParser.parse("12:34:not-a-signature!");
+    }
+}
@@ -0,0 +1,142 @@
+package com.student_smart_pay.student_management.benchmarks;
+
+import com.student_smart_pay.student_management.StudentManagementApplication;
+import com.student_smart_pay.student_management.dto.GateVerifyRequestDto;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.CryptoService;
+import com.student_smart_pay.student_management.service.GateService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.crypto.Mac;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Full in-process GateService.verifyEntry against the seeded H2 database
+// (src/test/resources/application.properties + DataLoader).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GateVerifyBenchmark {
+
+    // QR holders the verifyQr calls rotate through. A QR code is single-use per
+    // (student, millisecond), so a student can only be scanned once per ms; with this
+    // many, a fresh code is always available without signing ahead of the clock.
+    private static final int QR_STUDENTS = 256;
+
+    private ConfigurableApplicationContext context;
+    private GateService gateService;
+    private UserPrincipal guard;
+
+    private Student alice;
+    private GateVerifyRequestDto nfcAllowed;
+    private GateVerifyRequestDto nfcWrongCampus;
+    private GateVerifyRequestDto nfcUnknown;
+
+    private final List<Student> qrStudents = new ArrayList<>();
+    private final AtomicLong qrTurn = new AtomicLong();
+    private final AtomicLongArray qrIssuedAt = new AtomicLongArray(QR_STUDENTS);
+
+    @Setup(Level.Trial)
+    public void startApp() {
+        context = new SpringApplicationBuilder(StudentManagementApplication.class).run(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                // Every verifyQr call claims a new code: room for a whole 5s replay bucket of them
+                "--app.gate.qr-replay.bucket-capacity=1048576"
+        );
+        gateService = context.getBean(GateService.class);
+        StudentRepository students = context.getBean(StudentRepository.class);
+
+        guard = UserPrincipal.from(students.findByEmail("guard@tech.edu").orElseThrow());
+        alice = students.findByEmail("alice@tech.edu").orElseThrow();
+        nfcAllowed = request(alice.getNfcToken());
+        nfcWrongCampus = request(students.findByEmail("charlie@redrock.edu").orElseThrow().getNfcToken());
+        nfcUnknown = request("NOT-A-REAL-CARD");
+
+        CryptoService crypto = context.getBean(CryptoService.class);
+        for (int i = 0; i < QR_STUDENTS; i++) {
+            Student s = new Student();
+            s.setName("QR Bench " + i);
+            s.setEmail("qr-bench-" + i + "@tech.edu");
+            s.setNfcToken(crypto.encrypt("STU-TECH-QR-" + i));
+            s.setQrSecret(UUID.randomUUID().toString());
+            s.setPassword(alice.getPassword());
+            s.setFirstLogin(false);
+            s.setValidUntil(alice.getValidUntil());
+            s.setCampus(alice.getCampus());
+            qrStudents.add(s);
+        }
+        students.saveAll(qrStudents);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApp() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> verifyNfcAllowed() {
+        return gateService.verifyEntry(guard, nfcAllowed);
+    }
+
+    @Benchmark
+    public Map<String, Object> verifyNfcWrongCampus() {
+        return gateService.verifyEntry(guard, nfcWrongCampus);
+    }
+
+    @Benchmark
+    public Map<String, Object> verifyNfcUnknown() {
+        return gateService.verifyEntry(guard, nfcUnknown);
+    }
+
+    // A first-time scan every call (ALLOWED, replay claim taken), never a replay deny
+    @Benchmark
+    public Map<String, Object> verifyQr(QrSigner signer) {
+        return gateService.verifyEntry(guard, request(signer.next(this)));
+    }
+
+    @State(Scope.Thread)
+    public static class QrSigner {
+        private final Mac[] macs = new Mac[QR_STUDENTS];
+
+        @Setup
+        public void setup(GateVerifyBenchmark bench) throws Exception {
+            for (int i = 0; i < QR_STUDENTS; i++) {
+                macs[i] = Mac.getInstance("HmacSHA256");
+                macs[i].init(CryptoService.hmacKey(bench.qrStudents.get(i).getQrSecret()));
+            }
+        }
+
+        // Next student in turn, stamped with a millisecond none of its codes used yet
+        String next(GateVerifyBenchmark bench) {
+            int i = (int) (bench.qrTurn.getAndIncrement() % QR_STUDENTS);
+            long now = System.currentTimeMillis();
+            long issuedAt = bench.qrIssuedAt.accumulateAndGet(i, now, (last, n) -> Math.max(last + 1, n));
+            String payload = bench.qrStudents.get(i).getId() + ":" + issuedAt;
+            byte[] signature = macs[i].doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return payload + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        }
+    }
+
+    private static GateVerifyRequestDto request(String token) {
+        GateVerifyRequestDto request = new GateVerifyRequestDto();
+        request.setNfcToken(token);
+        request.setGateId("BENCH-1");
+        return request;
+    }
+}
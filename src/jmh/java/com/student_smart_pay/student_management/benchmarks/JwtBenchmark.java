@@ -0,0 +1,47 @@
+package com.student_smart_pay.student_management.benchmarks;
+
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.service.JwtService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Per-request JWT work done by JwtAuthenticationFilter.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtBenchmark {
+
+    private JwtService jwtService;
+    private UserPrincipal principal;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtService = new JwtService();
+        ReflectionTestUtils.setField(jwtService, "secretKey", "404E635266556A586E3272357538782F413F4428472B4B6250645367566B5970");
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        principal = new UserPrincipal(7L, "guard@tech.edu", Roles.GUARD, 1L, 0);
+        token = jwtService.generateToken(principal.email(), principal.role().name());
+    }
+
+    // Current filter: one parse per request
+    @Benchmark
+    public Claims parseClaims() {
+        return jwtService.parseClaims(token);
+    }
+
+    // Previous filter: extractUsername + isTokenValid = three parses per request
+    @Benchmark
+    public boolean legacyFilterPath() {
+        String username = jwtService.extractUsername(token);
+        return username != null && jwtService.isTokenValid(token, principal);
+    }
+}
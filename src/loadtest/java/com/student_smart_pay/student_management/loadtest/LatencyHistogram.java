@@ -0,0 +1,68 @@
+package com.student_smart_pay.student_management.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free log-linear latency histogram (microseconds, ~3% precision).
+// Values below 64 get exact slots; above that every power of two is split into
+// 32 linear slots, like a tiny HdrHistogram.
+final class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int MAGNITUDES = 40;
+    private static final int SIZE = (MAGNITUDES + 2) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SIZE);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile long max;
+
+    void record(long micros, boolean error) {
+        long value = Math.max(micros, 0);
+        counts.incrementAndGet(index(value));
+        total.increment();
+        if (error) errors.increment();
+        if (value > max) max = value; // Racy but only ever used for the report
+    }
+
+    long count() {
+        return total.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long max() {
+        return max;
+    }
+
+    // Upper bound of the bucket holding the given percentile (0-100)
+    long percentile(double percentile) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - (SUB_BITS - 1);
+        int sub = (int) (value >>> magnitude); // Always in [HALF, SUB_BUCKETS)
+        return Math.min(magnitude * HALF + sub, SIZE - 1);
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int magnitude = index / HALF - 1;
+        long sub = index - (long) magnitude * HALF;
+        return ((sub + 1) << magnitude) - 1;
+    }
+}
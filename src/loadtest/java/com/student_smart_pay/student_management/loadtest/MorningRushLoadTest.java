@@ -0,0 +1,326 @@
+package com.student_smart_pay.student_management.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.student_smart_pay.student_management.StudentManagementApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Morning-rush load generator: N gates scanning NFC cards / dynamic QR codes
+// through /api/v1/gate/verify while students log in through /api/v1/auth/login.
+//
+//   mvn -Ploadtest verify                                  (embedded app on H2)
+//   mvn -Ploadtest verify -Dloadtest.baseUrl=http://localhost:8080 \
+//       -Dloadtest.gates=48 -Dloadtest.students=2000 -Dloadtest.qrRatio=0.4
+//
+// Every parameter is a -Dloadtest.* system property (see Scenario). The report is
+// printed and written to target/loadtest-report.json.
+public class MorningRushLoadTest {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    // =========================================================================
+    // 1. SCENARIO (All knobs are system properties)
+    // =========================================================================
+    record Scenario(String baseUrl, String adminEmail, String adminPassword, String guardEmail, String guardPassword,
+                    int gates, int students, int loginClients, double qrRatio, double invalidRatio,
+                    long gateThinkMs, long loginThinkMs, int warmupSeconds, int durationSeconds, String reportFile) {
+
+        static Scenario fromSystemProperties() {
+            return new Scenario(
+                    prop("baseUrl", ""),
+                    prop("adminEmail", "admin@tech.edu"),
+                    prop("adminPassword", "123"),
+                    prop("guardEmail", "guard@tech.edu"),
+                    prop("guardPassword", "123"),
+                    Integer.parseInt(prop("gates", "24")),
+                    Integer.parseInt(prop("students", "300")),
+                    Integer.parseInt(prop("loginClients", "8")),
+                    Double.parseDouble(prop("qrRatio", "0.3")),
+                    Double.parseDouble(prop("invalidRatio", "0.05")),
+                    Long.parseLong(prop("gateThinkMs", "50")),
+                    Long.parseLong(prop("loginThinkMs", "200")),
+                    Integer.parseInt(prop("warmupSeconds", "10")),
+                    Integer.parseInt(prop("durationSeconds", "60")),
+                    prop("reportFile", "target/loadtest-report.json")
+            );
+        }
+
+        private static String prop(String name, String fallback) {
+            String value = System.getProperty("loadtest." + name);
+            return value == null || value.isBlank() ? fallback : value;
+        }
+    }
+
+    private record SeededStudent(long id, String email, String password, String nfcToken, String qrSecret) {}
+
+    private final Scenario scenario;
+    private final HttpClient http;
+    private final Map<String, LatencyHistogram> stats = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+
+    MorningRushLoadTest(Scenario scenario) {
+        this.scenario = scenario;
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Scenario scenario = Scenario.fromSystemProperties();
+        ConfigurableApplicationContext embedded = null;
+        if (scenario.baseUrl().isEmpty()) {
+            // No target given: boot the app in-process on H2 (test properties)
+            embedded = new SpringApplicationBuilder(StudentManagementApplication.class).run(
+                    "--server.port=0", "--spring.jpa.show-sql=false", "--logging.level.root=WARN");
+            int port = ((WebServerApplicationContext) embedded).getWebServer().getPort();
+            scenario = withBaseUrl(scenario, "http://localhost:" + port);
+        }
+        try {
+            new MorningRushLoadTest(scenario).run();
+        } finally {
+            if (embedded != null) embedded.close();
+        }
+    }
+
+    // =========================================================================
+    // 2. RUN (Seed -> warm up -> measure -> report)
+    // =========================================================================
+    void run() throws Exception {
+        System.out.printf("🚀 Morning rush against %s: %d gates, %d students, %d login clients, QR %.0f%%, invalid %.0f%%%n",
+                scenario.baseUrl(), scenario.gates(), scenario.students(), scenario.loginClients(),
+                scenario.qrRatio() * 100, scenario.invalidRatio() * 100);
+
+        String adminToken = login(scenario.adminEmail(), scenario.adminPassword());
+        String guardToken = login(scenario.guardEmail(), scenario.guardPassword());
+        List<SeededStudent> students = seedStudents(adminToken);
+        System.out.printf("🌱 Seeded %d students%n", students.size());
+
+        long warmupEnd = System.nanoTime() + scenario.warmupSeconds() * 1_000_000_000L;
+        long end = warmupEnd + scenario.durationSeconds() * 1_000_000_000L;
+
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int g = 0; g < scenario.gates(); g++) {
+                String gateId = "RUSH-GATE-" + (g + 1);
+                workers.submit(() -> gateLoop(gateId, guardToken, students, end));
+            }
+            for (int c = 0; c < scenario.loginClients(); c++) {
+                workers.submit(() -> loginLoop(students, end));
+            }
+            sleepUntil(warmupEnd);
+            measuring = true;
+            System.out.printf("⏱️  Warm-up done, measuring for %ds%n", scenario.durationSeconds());
+        }
+        report();
+    }
+
+    // --- GATE: one device scanning back-to-back ---
+    private void gateLoop(String gateId, String guardToken, List<SeededStudent> students, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            SeededStudent student = students.get(random.nextInt(students.size()));
+            String token;
+            String kind;
+            if (random.nextDouble() < scenario.invalidRatio()) {
+                token = random.nextBoolean() ? "FORGED-" + random.nextLong() : student.id() + ":" + System.currentTimeMillis() + ":AAAA";
+                kind = "invalid";
+            } else if (random.nextDouble() < scenario.qrRatio()) {
+                token = signQr(student);
+                kind = "qr";
+            } else {
+                token = student.nfcToken();
+                kind = "nfc";
+            }
+            String body = "{\"nfcToken\":\"" + token + "\",\"gateId\":\"" + gateId + "\"}";
+            JsonNode result = call("verify:" + kind, post("/api/v1/gate/verify", body, guardToken));
+            if (result != null && measuring) {
+                outcomes.computeIfAbsent(kind + ":" + result.path("message").asText("?"), k -> new LongAdder()).increment();
+            }
+            pause(scenario.gateThinkMs());
+        }
+    }
+
+    // --- APP LOGINS: students opening the app on their way in ---
+    private void loginLoop(List<SeededStudent> students, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            SeededStudent student = students.get(random.nextInt(students.size()));
+            call("login", post("/api/v1/auth/login", credentials(student.email(), student.password()), null));
+            pause(scenario.loginThinkMs());
+        }
+    }
+
+    // =========================================================================
+    // 3. SEEDING (Through the admin API, so cards are real encrypted tokens)
+    // =========================================================================
+    private List<SeededStudent> seedStudents(String adminToken) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        String password = "Rush-" + runId;
+        List<Future<SeededStudent>> pending = new ArrayList<>();
+        try (ExecutorService seeders = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < scenario.students(); i++) {
+                String email = "rush-" + runId + "-" + i + "@loadtest.local";
+                String body = JSON.writeValueAsString(Map.of("name", "Rush Student " + i, "email", email, "password", password));
+                pending.add(seeders.submit(() -> {
+                    JsonNode created = send(post("/api/v1/students", body, adminToken), 201);
+                    return new SeededStudent(created.get("id").asLong(), email, password,
+                            created.get("nfcToken").asText(), created.get("qrSecret").asText());
+                }));
+            }
+        }
+        List<SeededStudent> students = new ArrayList<>(pending.size());
+        for (Future<SeededStudent> f : pending) students.add(f.get());
+        return students;
+    }
+
+    // =========================================================================
+    // 4. REPORT
+    // =========================================================================
+    private void report() throws Exception {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        System.out.println();
+        System.out.printf("%-16s %9s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "err%", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms");
+        stats.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(e -> {
+            LatencyHistogram h = e.getValue();
+            double throughput = h.count() / (double) scenario.durationSeconds();
+            double errorRate = h.count() == 0 ? 0 : 100.0 * h.errors() / h.count();
+            System.out.printf("%-16s %9d %9.1f %6.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    e.getKey(), h.count(), throughput, errorRate,
+                    ms(h.percentile(50)), ms(h.percentile(95)), ms(h.percentile(99)), ms(h.percentile(99.9)), ms(h.max()));
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", h.count());
+            row.put("errors", h.errors());
+            row.put("throughputPerSec", throughput);
+            row.put("errorRatePct", errorRate);
+            row.put("p50Ms", ms(h.percentile(50)));
+            row.put("p95Ms", ms(h.percentile(95)));
+            row.put("p99Ms", ms(h.percentile(99)));
+            row.put("p999Ms", ms(h.percentile(99.9)));
+            row.put("maxMs", ms(h.max()));
+            endpoints.put(e.getKey(), row);
+        });
+
+        Map<String, Long> outcomeCounts = new LinkedHashMap<>();
+        outcomes.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(e -> outcomeCounts.put(e.getKey(), e.getValue().sum()));
+        System.out.println();
+        System.out.println("Gate outcomes: " + outcomeCounts);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", scenario);
+        report.put("endpoints", endpoints);
+        report.put("gateOutcomes", outcomeCounts);
+        File file = new File(scenario.reportFile());
+        if (file.getParentFile() != null) file.getParentFile().mkdirs();
+        JSON.writeValue(file, report);
+        System.out.println("📄 Report written to " + file.getAbsolutePath());
+    }
+
+    // --- HELPERS ---
+    private String login(String email, String password) throws Exception {
+        return send(post("/api/v1/auth/login", credentials(email, password), null), 200).get("token").asText();
+    }
+
+    // Timed call; transport failures and non-2xx count as errors
+    private JsonNode call(String endpoint, HttpRequest request) {
+        long start = System.nanoTime();
+        JsonNode body = null;
+        boolean error;
+        try {
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            error = response.statusCode() / 100 != 2;
+            if (!error) body = JSON.readTree(response.body());
+        } catch (Exception e) {
+            error = true;
+        }
+        if (measuring) {
+            stats.computeIfAbsent(endpoint, k -> new LatencyHistogram()).record((System.nanoTime() - start) / 1_000, error);
+        }
+        return body;
+    }
+
+    private JsonNode send(HttpRequest request, int expectedStatus) throws Exception {
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(request.uri() + " -> " + response.statusCode() + " " + response.body());
+        }
+        return JSON.readTree(response.body());
+    }
+
+    private HttpRequest post(String path, String json, String bearer) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(scenario.baseUrl() + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (bearer != null) builder.header("Authorization", "Bearer " + bearer);
+        return builder.build();
+    }
+
+    private static String credentials(String email, String password) {
+        return "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+    }
+
+    // Same format the mobile app renders: "ID:TIMESTAMP:HMAC-SHA256(qrSecret)"
+    private static String signQr(SeededStudent student) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(student.qrSecret().getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            String payload = student.id() + ":" + System.currentTimeMillis();
+            byte[] signature = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+            return payload + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (Exception e) {
+            throw new IllegalStateException("HMAC unavailable", e);
+        }
+    }
+
+    private static Scenario withBaseUrl(Scenario s, String baseUrl) {
+        return new Scenario(baseUrl, s.adminEmail(), s.adminPassword(), s.guardEmail(), s.guardPassword(),
+                s.gates(), s.students(), s.loginClients(), s.qrRatio(), s.invalidRatio(),
+                s.gateThinkMs(), s.loginThinkMs(), s.warmupSeconds(), s.durationSeconds(), s.reportFile());
+    }
+
+    private static double ms(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void pause(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleepUntil(long nanoDeadline) throws InterruptedException {
+        long remaining = nanoDeadline - System.nanoTime();
+        if (remaining > 0) Thread.sleep(remaining / 1_000_000, (int) (remaining % 1_000_000));
+    }
+}
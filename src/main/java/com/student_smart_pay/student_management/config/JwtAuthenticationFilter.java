@@ -1,6 +1,12 @@
 package com.student_smart_pay.student_management.config;
 
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.service.CredentialIndexService;
 import com.student_smart_pay.student_management.service.JwtService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,11 +17,13 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
@@ -23,6 +31,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final CredentialIndexService credentialIndex;
 
     @Override
     protected void doFilterInternal(
@@ -34,6 +43,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
         final String userEmail;
+        final Claims claims;
 
         // 1. Check if token exists and starts with "Bearer "
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -43,13 +53,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         // 2. Extract Token
         jwt = authHeader.substring(7); // Remove "Bearer " prefix
-        userEmail = jwtService.extractUsername(jwt); 
+        try {
+            claims = jwtService.parseClaims(jwt); // Signature + expiry checked here, once
+        } catch (JwtException | IllegalArgumentException e) {
+            filterChain.doFilter(request, response); // Stays anonymous -> 403 on protected routes
+            return;
+        }
+        userEmail = claims.getSubject();
 
         // 3. Validate Token if user is not already logged in
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            UserDetails userDetails = resolvePrincipal(claims, userEmail);
             
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (userDetails != null) {
                 // Create Auth Token
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                     userDetails,
@@ -64,4 +80,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    // 4. Principal from claims, checked against the in-memory credential index.
+    //    Only index misses and legacy tokens (no "uid") go to the database.
+    private UserDetails resolvePrincipal(Claims claims, String userEmail) {
+        Number userId = claims.get(JwtService.CLAIM_USER_ID, Number.class);
+        if (userId == null) {
+            return loadUser(userEmail); // Token issued before enriched claims
+        }
+        Number version = claims.get(JwtService.CLAIM_CREDENTIALS_VERSION, Number.class);
+        int credentialsVersion = version != null ? version.intValue() : 0;
+
+        Optional<GateCredential> cached = credentialIndex.findById(userId.longValue());
+        if (cached.isPresent()) {
+            GateCredential credential = cached.get();
+            // Suspended, password changed, or email reassigned -> token is dead
+            if (!credential.active()
+                    || credential.credentialsVersion() != credentialsVersion
+                    || !userEmail.equals(credential.email())) {
+                return null;
+            }
+            return new UserPrincipal(credential.id(), credential.email(), credential.role(),
+                    credential.campusId(), credential.credentialsVersion());
+        }
+
+        // Not in the index (startup, or deleted user): same checks against the DB
+        UserDetails userDetails = loadUser(userEmail);
+        if (userDetails instanceof UserPrincipal principal
+                && (!principal.id().equals(userId.longValue()) || principal.credentialsVersion() != credentialsVersion)) {
+            return null;
+        }
+        return userDetails;
+    }
+
+    // Controllers always receive a UserPrincipal, whichever path resolved it
+    private UserDetails loadUser(String userEmail) {
+        try {
+            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            return userDetails instanceof Student student ? UserPrincipal.from(student) : userDetails;
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
 }
\ No newline at end of file
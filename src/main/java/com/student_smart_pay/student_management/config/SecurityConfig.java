@@ -1,6 +1,9 @@
 package com.student_smart_pay.student_management.config;
 
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -23,16 +26,24 @@ public class SecurityConfig {
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final AuthenticationProvider authenticationProvider;
 
+    // Actuator's own port (not published by the Service); -1 = same port as the API
+    @Value("${management.server.port:-1}")
+    private int managementPort;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .csrf(csrf -> csrf.disable())
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))   // ONLY THIS LINE ADDED
             .authorizeHttpRequests(auth -> auth
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // SSE completion: request was already authorized
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/").permitAll()
                 .requestMatchers("/api/v1/webhooks/**").permitAll()
+                .requestMatchers("/actuator/health", "/actuator/health/**").permitAll() // Probes
+                .requestMatchers(this::isInternalScrape).permitAll() // Prometheus, management port only
                 .requestMatchers("/api/v1/gate/**").hasAnyRole("GUARD", "CAMPUS_ADMIN", "SUPER_ADMIN")
+                .requestMatchers("/api/v1/payments/**").hasAnyRole("GUARD", "CAMPUS_ADMIN", "SUPER_ADMIN") // POS terminals are run by campus staff
                 .requestMatchers("/api/v1/student/**").hasAnyRole("STUDENT", "CAMPUS_ADMIN", "SUPER_ADMIN")
                 .requestMatchers("/api/v1/campus/**").hasAnyRole("CAMPUS_ADMIN", "SUPER_ADMIN")
                 .anyRequest().authenticated()
@@ -44,6 +55,13 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // Metrics reveal traffic per gate and campus: only open on the in-cluster management port
+    private boolean isInternalScrape(HttpServletRequest request) {
+        return managementPort > 0
+                && request.getLocalPort() == managementPort
+                && "/actuator/prometheus".equals(request.getRequestURI());
+    }
+
     // ALLOW ONLY YOUR FRONTEND
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
@@ -51,8 +69,10 @@ public class SecurityConfig {
 
         config.setAllowedOrigins(List.of("http://localhost:5173"));  // Your frontend only
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
-        config.setExposedHeaders(List.of("Authorization"));          // To read JWT from response header if needed
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Idempotency-Key", "If-None-Match"));
+        // JWT, history paging cursor, roster sync version, stats freshness
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor", "ETag", "X-Roster-Version", "X-Roster-Type",
+                "X-Rollup-Through"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", config);
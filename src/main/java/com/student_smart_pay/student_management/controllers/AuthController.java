@@ -77,7 +77,7 @@ public class AuthController {
             }
 
             // 3. If NOT first login, generate Token
-            String token = jwtService.generateToken(student.getEmail(), student.getRole().name());
+            String token = jwtService.generateToken(student);
             UserDto safeUser = mapToUserDto(student);
 
             // 4. Return Structured Response
@@ -105,7 +105,7 @@ public class AuthController {
             );
 
             // 2. Generate Token immediately so user is logged in
-            String token = jwtService.generateToken(updatedStudent.getEmail(), updatedStudent.getRole().name());
+            String token = jwtService.generateToken(updatedStudent);
             UserDto safeUser = mapToUserDto(updatedStudent);
 
             return ResponseEntity.ok(new LoginResponseDto(token, "Password changed successfully", safeUser));
@@ -1,14 +1,12 @@
 package com.student_smart_pay.student_management.controllers;
 
 import com.student_smart_pay.student_management.dto.Roles;
-import com.student_smart_pay.student_management.models.Student;
-import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
 import com.student_smart_pay.student_management.service.CloudBuildService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -20,24 +18,16 @@ public class BuildController {
     @Autowired
     private CloudBuildService cloudBuildService;
 
-    @Autowired
-    private StudentRepository studentRepository;
-
     // Endpoint: POST /api/v1/builds/{campusId}
     @PostMapping("/{campusId}")
     public ResponseEntity<?> startBuild(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long campusId
     ) {
-        // 1. Who is pressing the button?
-        Student requester = studentRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-
-        // 2. Security: Only Super Admin OR the Owner of that Campus
-        boolean isSuper = requester.getRole() == Roles.SUPER_ADMIN;
-        boolean isOwner = requester.getRole() == Roles.CAMPUS_ADMIN 
-                       && requester.getCampus() != null 
-                       && requester.getCampus().getId().equals(campusId);
+        // 1. Security: Only Super Admin OR the Owner of that Campus (requester comes from the JWT)
+        boolean isSuper = requester.role() == Roles.SUPER_ADMIN;
+        boolean isOwner = requester.role() == Roles.CAMPUS_ADMIN 
+                       && campusId.equals(requester.campusId());
 
         if (!isSuper && !isOwner) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -45,7 +35,7 @@ public class BuildController {
         }
 
         try {
-            // 3. Press the Button!
+            // 2. Press the Button!
             cloudBuildService.triggerBuild(campusId);
             return ResponseEntity.ok(Map.of("message", "Build started! The APK will be ready in ~5 minutes."));
             
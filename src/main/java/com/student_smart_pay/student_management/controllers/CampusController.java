@@ -1,15 +1,13 @@
 package com.student_smart_pay.student_management.controllers;
 
 import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
 import com.student_smart_pay.student_management.models.Campus;
-import com.student_smart_pay.student_management.models.Student;
-import com.student_smart_pay.student_management.repository.StudentRepository;
 import com.student_smart_pay.student_management.service.CampusService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
@@ -21,24 +19,13 @@ public class CampusController {
     @Autowired
     private CampusService campusService;
 
-    @Autowired
-    private StudentRepository studentRepository;
-
-    // --- HELPER: Identify Who is Knocking ---
-    private Student getAuthenticatedUser(UserDetails userDetails) {
-        return studentRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-    }
-
     // =========================================================================
     // 1. GET ALL CAMPUSES (Super Admin Only)
     // =========================================================================
     @GetMapping
-    public ResponseEntity<?> getAllCampuses(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getAllCampuses(@AuthenticationPrincipal UserPrincipal requester) {
         try {
-            Student requester = getAuthenticatedUser(userDetails);
-
-            if (requester.getRole() != Roles.SUPER_ADMIN) {
+            if (requester.role() != Roles.SUPER_ADMIN) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("error", "Access Denied: Only Super Admin can view all campuses."));
             }
@@ -55,17 +42,14 @@ public class CampusController {
     // =========================================================================
     @GetMapping("/{id}")
     public ResponseEntity<?> getCampusById(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long id
     ) {
         try {
-            Student requester = getAuthenticatedUser(userDetails);
-
             // SECURITY CHECK
-            boolean isSuper = requester.getRole() == Roles.SUPER_ADMIN;
-            boolean isOwner = requester.getRole() == Roles.CAMPUS_ADMIN 
-                           && requester.getCampus() != null 
-                           && requester.getCampus().getId().equals(id);
+            boolean isSuper = requester.role() == Roles.SUPER_ADMIN;
+            boolean isOwner = requester.role() == Roles.CAMPUS_ADMIN 
+                           && id.equals(requester.campusId());
 
             if (!isSuper && !isOwner) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -84,13 +68,11 @@ public class CampusController {
     // =========================================================================
     @PostMapping
     public ResponseEntity<?> createCampus(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @RequestBody Campus campus
     ) {
         try {
-            Student requester = getAuthenticatedUser(userDetails);
-
-            if (requester.getRole() != Roles.SUPER_ADMIN) {
+            if (requester.role() != Roles.SUPER_ADMIN) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("error", "Access Denied: Only Super Admin can create campuses."));
             }
@@ -108,18 +90,15 @@ public class CampusController {
     // =========================================================================
     @PutMapping("/{id}")
     public ResponseEntity<?> updateCampus(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long id,
             @RequestBody Campus campusDetails
     ) {
         try {
-            Student requester = getAuthenticatedUser(userDetails);
-
             // SECURITY CHECK
-            boolean isSuper = requester.getRole() == Roles.SUPER_ADMIN;
-            boolean isOwner = requester.getRole() == Roles.CAMPUS_ADMIN 
-                           && requester.getCampus() != null 
-                           && requester.getCampus().getId().equals(id);
+            boolean isSuper = requester.role() == Roles.SUPER_ADMIN;
+            boolean isOwner = requester.role() == Roles.CAMPUS_ADMIN 
+                           && id.equals(requester.campusId());
 
             if (!isSuper && !isOwner) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -139,13 +118,11 @@ public class CampusController {
     // =========================================================================
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteCampus(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long id
     ) {
         try {
-            Student requester = getAuthenticatedUser(userDetails);
-
-            if (requester.getRole() != Roles.SUPER_ADMIN) {
+            if (requester.role() != Roles.SUPER_ADMIN) {
                 return ResponseEntity.status(HttpStatus.FORBIDDEN)
                         .body(Map.of("error", "Access Denied: Only Super Admin can delete campuses."));
             }
@@ -1,17 +1,32 @@
 package com.student_smart_pay.student_management.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.student_smart_pay.student_management.dto.AccessLogView;
+import com.student_smart_pay.student_management.dto.AccessStatsRow;
 import com.student_smart_pay.student_management.dto.GateVerifyRequestDto;
+import com.student_smart_pay.student_management.dto.KeysetPage;
+import com.student_smart_pay.student_management.dto.Roles;
 import com.student_smart_pay.student_management.dto.Status;
-import com.student_smart_pay.student_management.models.Student;
-import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.service.AccessLogArchiver;
+import com.student_smart_pay.student_management.service.AccessLogExporter;
+import com.student_smart_pay.student_management.service.AccessRollupService;
+import com.student_smart_pay.student_management.service.GateEventBroadcaster;
+import com.student_smart_pay.student_management.service.GateEventFeed;
+import com.student_smart_pay.student_management.service.GateRosterService;
+import com.student_smart_pay.student_management.service.GateScanMetrics;
 import com.student_smart_pay.student_management.service.GateService;
+import com.student_smart_pay.student_management.service.ScanAnomalyDetector;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -21,34 +36,49 @@ import java.util.Map;
 @RequestMapping("/api/v1/gate")
 public class GateController {
 
+    private static final int MAX_BATCH_SIZE = 200;
+
     @Autowired
     private GateService gateService;
 
     @Autowired
-    private StudentRepository studentRepository;
+    private GateRosterService gateRosterService;
+
+    @Autowired
+    private GateScanMetrics gateScanMetrics;
+
+    @Autowired
+    private GateEventBroadcaster gateEventBroadcaster;
+
+    @Autowired
+    private AccessRollupService accessRollupService;
+
+    @Autowired
+    private AccessLogExporter accessLogExporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ScanAnomalyDetector scanAnomalyDetector;
+
+    @Autowired
+    private GateEventFeed gateEventFeed;
 
-    // --- HELPER: Retrieve Authenticated User (Guard or Admin) ---
-    private Student getAuthenticatedUser(UserDetails userDetails) {
-        return studentRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("User not found"));
-    }
 
     // =========================================================================
     // 1. VERIFY ENTRY (SCANNER)
     // =========================================================================
     @PostMapping("/verify")
     public ResponseEntity<?> verifyEntry(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal guard,
             @RequestBody GateVerifyRequestDto request
     ) {
         try {
-            // 1. Identify the Guard performing the scan
-            Student guard = getAuthenticatedUser(userDetails);
-
-            // 2. Call Service with the Guard context (Enforces Campus Match)
+            // 1. Call Service with the Guard context from the JWT (Enforces Campus Match)
             Map<String, Object> result = gateService.verifyEntry(guard, request);
             
-            // 3. Return OK (The Service now puts "status": "DENIED" inside the map if needed)
+            // 2. Return OK (The Service now puts "status": "DENIED" inside the map if needed)
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
@@ -60,31 +90,290 @@ public class GateController {
         }
     }
 
+    // =========================================================================
+    // 1b. VERIFY BATCH (BURST OF SCANS FROM ONE TURNSTILE)
+    // =========================================================================
+    @PostMapping("/verify-batch")
+    public ResponseEntity<?> verifyBatch(
+            @AuthenticationPrincipal UserPrincipal guard,
+            @RequestBody List<GateVerifyRequestDto> requests
+    ) {
+        if (requests == null || requests.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "No scans in batch"));
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Batch too large (max " + MAX_BATCH_SIZE + ")"));
+        }
+        try {
+            // One decision per scan, same order as the request
+            List<Map<String, Object>> results = gateService.verifyBatch(guard, requests);
+            return ResponseEntity.ok(results);
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
+                "status", Status.DENIED,
+                "error", "System Error: " + e.getMessage()
+            ));
+        }
+    }
+
     // =========================================================================
     // 2. GET HISTORY (DASHBOARD)
     // =========================================================================
-    // Example Call: GET /api/v1/gate/history?limit=20
+    // Example Call: GET /api/v1/gate/history?limit=20  (next page: &cursor=<X-Next-Cursor>)
     @GetMapping("/history")
     public ResponseEntity<?> getHistory(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
     ) {
         try {
-            // 1. Identify the Admin asking for history
-            Student requester = getAuthenticatedUser(userDetails);
-
-            // 2. Get SaaS-filtered history (Service checks roles)
-            List<Map<String, Object>> history = gateService.getAccessHistory(requester, start, end, limit);
+            // 1. Get SaaS-filtered history (Service checks roles)
+            KeysetPage<AccessLogView> history = gateService.getAccessHistory(requester, start, end, cursor, limit);
             
-            return ResponseEntity.ok(history);
+            // 2. Body stays a plain array; the next page is in X-Next-Cursor
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (history.nextCursor() != null) ok.header(KeysetPage.NEXT_CURSOR_HEADER, history.nextCursor());
+            return ok.body(history.items());
 
         } catch (SecurityException e) {
             // 403 Forbidden (If a normal student tries to access admin logs)
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // 400 Bad Request (Tampered or stale cursor)
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (AccessLogArchiver.ArchiveUnavailableException e) {
+            // 503: Part of the range is archived and the archive can't be read right now
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch history"));
         }
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // 2a. EXPORT (COMPLIANCE: whole range, streamed)
+    // =========================================================================
+    // Example Call: GET /api/v1/gate/history/export?format=ndjson&gzip=true&start=2026-01-12T00:00:00
+    // Defaults to CSV for the last 7 days, like /history
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Long campusId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+    ) {
+        try {
+            // 1. Scope is checked before anything is streamed, so errors still get a JSON body
+            Long campusFilter = gateService.resolveExportScope(requester, campusId);
+            AccessLogExporter.Format exportFormat = AccessLogExporter.Format.parse(format);
+
+            LocalDateTime to = end != null ? end : LocalDateTime.now();
+            LocalDateTime from = start != null ? start : to.minusDays(7);
+            if (!from.isBefore(to)) throw new IllegalArgumentException("start must be before end");
+
+            // 2. Rows are written on an async thread as they come off the cursor
+            StreamingResponseBody body = out -> accessLogExporter.export(campusFilter, from, to, exportFormat, gzip, out);
+
+            String filename = "access-logs-" + (campusFilter != null ? "campus-" + campusFilter : "all") + "-"
+                    + from.toLocalDate() + "_" + to.toLocalDate() + "." + exportFormat.extension + (gzip ? ".gz" : "");
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                    .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType + ";charset=UTF-8"))
+                    .body(body);
+
+        } catch (SecurityException e) {
+            return exportError(HttpStatus.FORBIDDEN, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // 400 Bad Request (Unknown format, empty range)
+            return exportError(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            return exportError(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to export history");
+        }
+    }
+
+    // Streaming endpoints must declare StreamingResponseBody, so errors are written through one too
+    private ResponseEntity<StreamingResponseBody> exportError(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, Map.of("error", message)));
+    }
+
+    // =========================================================================
+    // 2b. STATS (ROLLUP COUNTERS)
+    // =========================================================================
+    // Example Calls: GET /api/v1/gate/stats?groupBy=gate,hour            (entries per gate per hour, today)
+    //                GET /api/v1/gate/stats?groupBy=reason&status=DENIED  (denials by reason, today)
+    // X-Rollup-Through = last access log id counted (rollups trail the log by about a second)
+    @GetMapping("/stats")
+    public ResponseEntity<?> getStats(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(defaultValue = "hour,gate,status") List<String> groupBy,
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) String gateId,
+            @RequestParam(required = false) Long campusId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
+    ) {
+        try {
+            List<AccessStatsRow> rows = gateService.getAccessStats(requester, start, end, groupBy, status, gateId, campusId);
+            return ResponseEntity.ok()
+                    .header("X-Rollup-Through", String.valueOf(accessRollupService.getWatermark()))
+                    .body(rows);
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // 400 Bad Request (Unknown groupBy, empty range)
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch stats"));
+        }
+    }
+
+    // =========================================================================
+    // 2c. LIVE STREAM (DASHBOARD, replaces polling /history)
+    // =========================================================================
+    // Example Call: GET /api/v1/gate/stream  (Accept: text/event-stream)
+    // Each scan arrives as an SSE event named "gate"; same campus rules as /history.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@AuthenticationPrincipal UserPrincipal requester) {
+
+        Long campusFilter;
+        if (requester.role() == Roles.SUPER_ADMIN) {
+            campusFilter = null;
+        } else if (requester.role() == Roles.CAMPUS_ADMIN && requester.campusId() != null) {
+            campusFilter = requester.campusId();
+        } else {
+            // 403 Forbidden (Guards and students don't get the live feed)
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return ResponseEntity.ok(gateEventBroadcaster.subscribe(campusFilter));
+    }
+
+    // =========================================================================
+    // 3. OFFLINE ROSTER (GUARD DEVICES)
+    // =========================================================================
+    // Example Call: GET /api/v1/gate/roster?since=<X-Roster-Version of the last sync>
+    @GetMapping("/roster")
+    public ResponseEntity<?> getRoster(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long campusId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        try {
+            // Guards & Campus Admins only get their own campus
+            Long targetCampus;
+            if (requester.role() == Roles.SUPER_ADMIN) {
+                if (campusId == null) return ResponseEntity.badRequest().body(Map.of("error", "campusId is required"));
+                targetCampus = campusId;
+            } else {
+                if (requester.campusId() == null) throw new IllegalStateException("User has no campus");
+                targetCampus = requester.campusId();
+            }
+
+            // Nothing changed since the device's copy
+            String currentEtag = gateRosterService.currentEtag(targetCampus);
+            if (currentEtag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(currentEtag).build();
+            }
+
+            GateRosterService.RosterExport export = gateRosterService.export(targetCampus, since);
+            return ResponseEntity.ok()
+                    .eTag(export.etag())
+                    .header("X-Roster-Version", String.valueOf(export.version()))
+                    .header("X-Roster-Type", export.delta() ? "DELTA" : "FULL")
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .body(export.body());
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to export roster"));
+        }
+    }
+
+    // =========================================================================
+    // 4. SLOWEST RECENT SCANS (ADMIN LATENCY BREAKDOWN)
+    // =========================================================================
+    // Example Call: GET /api/v1/gate/metrics/slow-scans?limit=20
+    @GetMapping("/metrics/slow-scans")
+    public ResponseEntity<?> getSlowScans(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        try {
+            Long campusFilter;
+            if (requester.role() == Roles.SUPER_ADMIN) {
+                campusFilter = null;
+            } else if (requester.role() == Roles.CAMPUS_ADMIN) {
+                if (requester.campusId() == null) throw new IllegalStateException("Admin has no campus");
+                campusFilter = requester.campusId();
+            } else {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access Denied: Admins only."));
+            }
+
+            return ResponseEntity.ok(gateScanMetrics.slowestRecent(campusFilter, Math.min(limit, 200)));
+
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch scan metrics"));
+        }
+    }
+
+    // =========================================================================
+    // 5. ANOMALY ALERTS (CLONED CARDS, TOKEN BRUTE FORCE)
+    // =========================================================================
+    // Example Call: GET /api/v1/gate/alerts?limit=50
+    @GetMapping("/alerts")
+    public ResponseEntity<?> getAlerts(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(defaultValue = "50") int limit
+    ) {
+        try {
+            Long campusFilter = adminCampusFilter(requester);
+
+            return ResponseEntity.ok(Map.of(
+                    "alerts", scanAnomalyDetector.recentAlerts(campusFilter, Math.min(limit, 500)),
+                    "throttledGates", scanAnomalyDetector.throttledGates(campusFilter)
+            ));
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch alerts"));
+        }
+    }
+
+    // Example Call: DELETE /api/v1/gate/throttles/MAIN-GATE-1  (lift an automatic throttle early)
+    @DeleteMapping("/throttles/{gateId}")
+    public ResponseEntity<?> releaseThrottle(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @PathVariable String gateId
+    ) {
+        try {
+            Long campusFilter = adminCampusFilter(requester);
+
+            if (!gateEventFeed.releaseThrottle(gateId, campusFilter)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Gate is not throttled"));
+            }
+            return ResponseEntity.ok(Map.of("message", "Throttle lifted for gate " + gateId));
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to lift throttle"));
+        }
+    }
+
+    // Super Admin = all campuses (null), Campus Admin = own campus, anyone else = 403
+    private Long adminCampusFilter(UserPrincipal requester) {
+        if (requester.role() == Roles.SUPER_ADMIN) return null;
+        if (requester.role() == Roles.CAMPUS_ADMIN) {
+            if (requester.campusId() == null) throw new IllegalStateException("Admin has no campus");
+            return requester.campusId();
+        }
+        throw new SecurityException("Access Denied: Admins only.");
+    }
+}
@@ -1,27 +1,130 @@
 package com.student_smart_pay.student_management.controllers;
 
+import com.student_smart_pay.student_management.dto.ChargeResult;
+import com.student_smart_pay.student_management.dto.KeysetPage;
 import com.student_smart_pay.student_management.dto.RegisterRequestDto;
+import com.student_smart_pay.student_management.dto.TopUpResult;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.dto.WalletEntryView;
 import com.student_smart_pay.student_management.models.Student;
 import com.student_smart_pay.student_management.service.AuthServices;
+import com.student_smart_pay.student_management.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 @RestController
-@RequestMapping("/api/payment")
 public class PaymentController {
 
     @Autowired
     private AuthServices studentService;
 
+    @Autowired
+    private PaymentService paymentService;
+
     // DTO: Defines what JSON the mobile app should send
-    public record PaymentRequest(String nfcToken, BigDecimal amount) {}
+    // terminalId is optional: which till / POS device took the payment
+    public record PaymentRequest(String nfcToken, BigDecimal amount, String terminalId) {}
+
+    public record TopUpRequest(BigDecimal amount) {}
+
 
-    @PostMapping("/api/v1/auth/register")
+    @PostMapping("/api/payment/api/v1/auth/register")
     public ResponseEntity<?> registerUser(@RequestBody RegisterRequestDto studentDto) {
         Student registeredStudent = studentService.registerUser(studentDto);
         return ResponseEntity.ok(registeredStudent);
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // 1. CHARGE (Tap-to-pay at a POS terminal)
+    // =========================================================================
+    // Example Call: POST /api/v1/payments/charge  (Idempotency-Key: <uuid from the POS>)
+    // {"nfcToken":"U2FsdGVkX1...","amount":4.50,"terminalId":"CAFE-1"}
+    // Declines are 200 with status DECLINED (like gate denials); retries replay the first answer
+    @PostMapping("/api/v1/payments/charge")
+    public ResponseEntity<?> charge(
+            @AuthenticationPrincipal UserPrincipal operator,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody PaymentRequest request
+    ) {
+        try {
+            ChargeResult result = paymentService.charge(operator, idempotencyKey, request.nfcToken(),
+                    request.amount(), request.terminalId());
+            return ResponseEntity.ok(result);
+
+        } catch (IllegalArgumentException e) {
+            // 400: Missing key, bad amount
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (PaymentService.IdempotencyConflictException e) {
+            // 409: Key reused for a different card or amount
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // 503: Wallet busy; safe to retry with the same key
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Payment failed"));
+        }
+    }
+
+    // =========================================================================
+    // 2. TOP-UP (Cash desk, Admin Only)
+    // =========================================================================
+    // Example Call: POST /api/v1/payments/wallets/4/top-up  (Idempotency-Key: <uuid>)
+    // {"amount":20.00}
+    @PostMapping("/api/v1/payments/wallets/{studentId}/top-up")
+    public ResponseEntity<?> topUp(
+            @AuthenticationPrincipal UserPrincipal operator,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @PathVariable Long studentId,
+            @RequestBody TopUpRequest request
+    ) {
+        try {
+            TopUpResult result = paymentService.topUp(operator, idempotencyKey, studentId, request.amount());
+            return ResponseEntity.ok(result);
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // 400: Missing key, bad amount, unknown student
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (PaymentService.IdempotencyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Top-up failed"));
+        }
+    }
+
+    // =========================================================================
+    // 3. STATEMENT (Wallet ledger, newest first)
+    // =========================================================================
+    // Example Call: GET /api/v1/payments/wallets/4/statement?limit=50
+    // Next page: same call with ?cursor=<X-Next-Cursor of the previous response>
+    @GetMapping("/api/v1/payments/wallets/{studentId}/statement")
+    public ResponseEntity<?> statement(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @PathVariable Long studentId,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        try {
+            KeysetPage<WalletEntryView> page = paymentService.statement(requester, studentId, cursor, limit);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (page.nextCursor() != null) ok.header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor());
+            return ok.body(page.items());
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch statement"));
+        }
+    }
+}
@@ -1,22 +1,37 @@
 package com.student_smart_pay.student_management.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.student_smart_pay.student_management.dto.BulkActionRequestDto;
+import com.student_smart_pay.student_management.dto.KeysetPage;
 import com.student_smart_pay.student_management.dto.RegisterRequestDto;
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.StudentCursor;
+import com.student_smart_pay.student_management.dto.StudentFilter;
 import com.student_smart_pay.student_management.dto.UserDto;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
 import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.service.BulkJob;
+import com.student_smart_pay.student_management.service.BulkJobService;
+import com.student_smart_pay.student_management.service.StudentBulkActionService;
+import com.student_smart_pay.student_management.service.StudentImportService;
 import com.student_smart_pay.student_management.service.StudentService;
-import com.student_smart_pay.student_management.repository.StudentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/students")
@@ -26,13 +41,17 @@ public class StudentController {
     private StudentService studentService;
 
     @Autowired
-    private StudentRepository studentRepository;
+    private StudentImportService studentImportService;
+
+    @Autowired
+    private BulkJobService bulkJobService;
+
+    @Autowired
+    private StudentBulkActionService studentBulkActionService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
-    // --- HELPER: Retrieve Authenticated User from DB ---
-    private Student getAuthenticatedStudent(UserDetails userDetails) {
-        return studentRepository.findByEmail(userDetails.getUsername())
-                .orElseThrow(() -> new IllegalStateException("Authenticated user not found in database."));
-    }
 
     // --- HELPER: Convert Entity to DTO ---
     // private UserDto mapToDto(Student student) {
@@ -52,35 +71,100 @@ public class StudentController {
     }
 
     // =========================================================================
-    // 1. GET ALL STUDENTS
+    // 1. GET ALL STUDENTS (Keyset pages)
     // =========================================================================
+    // Example Call: GET /api/v1/students?sort=name&role=STUDENT&active=true&q=smi&limit=100
+    // Pass X-Next-Cursor back as ?cursor= (with the same sort) for the next page
     @GetMapping
-    public ResponseEntity<?> getAllStudents(@AuthenticationPrincipal UserDetails userDetails) {
+    public ResponseEntity<?> getAllStudents(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Long campusId,
+            @RequestParam(required = false) Roles role,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String q
+    ) {
         try {
-            Student requester = getAuthenticatedStudent(userDetails);
-            List<Student> students = studentService.getAllStudents(requester);
-            
-            // Map to DTOs
-            List<UserDto> dtos = students.stream().map(this::mapToDto).collect(Collectors.toList());
-            return ResponseEntity.ok(dtos);
+            StudentFilter filter = studentService.resolveListingFilter(requester, campusId, role, active, q);
+            KeysetPage<UserDto> page = studentService.listStudents(filter, StudentCursor.Sort.parse(sort), cursor, limit);
+
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (page.nextCursor() != null) ok.header(KeysetPage.NEXT_CURSOR_HEADER, page.nextCursor());
+            return ok.body(page.items());
 
         } catch (SecurityException e) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // 400: Bad cursor or unknown sort
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "An unexpected error occurred."));
         }
     }
 
+    // =========================================================================
+    // 1b. FULL ROSTER (Streamed JSON array)
+    // =========================================================================
+    // Example Call: GET /api/v1/students/stream?role=STUDENT
+    // Same filters as above; rows are written page by page as they are read
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamStudents(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(required = false) Long campusId,
+            @RequestParam(required = false) Roles role,
+            @RequestParam(required = false) Boolean active,
+            @RequestParam(required = false) String q
+    ) {
+        try {
+            // 1. Scope is checked before anything is streamed, so errors still get a JSON body
+            StudentFilter filter = studentService.resolveListingFilter(requester, campusId, role, active, q);
+
+            // 2. One row at a time into the generator on the async thread
+            StreamingResponseBody body = out -> {
+                JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+                json.writeStartArray();
+                try {
+                    studentService.forEachStudent(filter, row -> {
+                        try {
+                            objectMapper.writeValue(json, row);
+                        } catch (IOException e) {
+                            // Client went away: stop paging
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                json.writeEndArray();
+                json.close();
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+
+        } catch (SecurityException e) {
+            return streamError(HttpStatus.FORBIDDEN, e.getMessage());
+        } catch (Exception e) {
+            return streamError(HttpStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred.");
+        }
+    }
+
+    // Streaming endpoints must declare StreamingResponseBody, so errors are written through one too
+    private ResponseEntity<StreamingResponseBody> streamError(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> objectMapper.writeValue(out, Map.of("error", message)));
+    }
+
     // =========================================================================
     // 2. GET SINGLE STUDENT
     // =========================================================================
     @GetMapping("/{id}")
     public ResponseEntity<?> getStudentById(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long id
     ) {
         try {
-            Student requester = getAuthenticatedStudent(userDetails);
             Student target = studentService.getStudentById(requester, id);
             return ResponseEntity.ok(mapToDto(target));
 
@@ -96,11 +180,10 @@ public class StudentController {
     // =========================================================================
     @PostMapping
     public ResponseEntity<?> createStudent(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @RequestBody RegisterRequestDto request
     ) {
         try {
-            Student requester = getAuthenticatedStudent(userDetails);
             Student createdStudent = studentService.createStudent(requester, request);
             return ResponseEntity.status(HttpStatus.CREATED).body(mapToDto(createdStudent));
 
@@ -115,17 +198,98 @@ public class StudentController {
         }
     }
 
+    // =========================================================================
+    // 3b. BULK IMPORT (Admin Only, runs as a background job)
+    // =========================================================================
+    // Example Call: POST /api/v1/students/bulk  (Content-Type: text/csv, application/json or application/x-ndjson)
+    // CSV header: name,email,password,role,campusId  ->  202 {jobId}, then poll GET /bulk/{jobId}
+    @PostMapping(value = "/bulk", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> bulkImport(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream body
+    ) {
+        try {
+            StudentImportService.Format format = contentType.startsWith("text/csv")
+                    ? StudentImportService.Format.CSV : StudentImportService.Format.JSON;
+
+            // 1. Parse the upload as it streams in, 2. hash + insert in the background
+            List<RegisterRequestDto> rows = studentImportService.parse(body, format);
+            BulkJob job = studentImportService.startImport(requester, rows);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "jobId", job.getJobId(),
+                    "total", job.getTotal(),
+                    "statusUrl", "/api/v1/students/bulk/" + job.getJobId()
+            ));
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // 400: Bad file (missing columns, too many rows, unknown role)
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Could not read upload: " + e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to start import"));
+        }
+    }
+
+    // Example Call: GET /api/v1/students/bulk/3f2a...  (progress + per-row errors)
+    @GetMapping("/bulk/{jobId}")
+    public ResponseEntity<?> getBulkJob(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @PathVariable String jobId
+    ) {
+        try {
+            return ResponseEntity.ok(bulkJobService.getJob(requester, jobId));
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // =========================================================================
+    // 3c. BULK ACTIONS (Suspend / reactivate / extend validity / reissue cards)
+    // =========================================================================
+    // Example Call: POST /api/v1/students/bulk-actions
+    // {"action":"EXTEND_VALIDITY","studentIds":[4,5,6],"validUntil":"2027-07-31T23:59:59"}
+    // Small runs answer 200 with the finished job; large ones 202, then poll GET /bulk/{jobId}
+    @PostMapping("/bulk-actions")
+    public ResponseEntity<?> bulkAction(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestBody BulkActionRequestDto request
+    ) {
+        try {
+            BulkJob job = studentBulkActionService.start(requester, request);
+            if (job.getFinishedAt() != null) return ResponseEntity.ok(job);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                    "jobId", job.getJobId(),
+                    "total", job.getTotal(),
+                    "statusUrl", "/api/v1/students/bulk/" + job.getJobId()
+            ));
+
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            // 400: Missing action/ids, past validUntil, too many ids
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to run bulk action"));
+        }
+    }
+
     // =========================================================================
     // 4. UPDATE STUDENT
     // =========================================================================
     @PutMapping("/{id}")
     public ResponseEntity<?> updateStudent(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long id,
             @RequestBody RegisterRequestDto request
     ) {
         try {
-            Student requester = getAuthenticatedStudent(userDetails);
             Student updatedStudent = studentService.updateStudent(requester, id, request);
             return ResponseEntity.ok(mapToDto(updatedStudent));
 
@@ -141,11 +305,10 @@ public class StudentController {
     // =========================================================================
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteStudent(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @PathVariable Long id
     ) {
         try {
-            Student requester = getAuthenticatedStudent(userDetails);
             studentService.deleteStudent(requester, id);
             return ResponseEntity.ok(Map.of("message", "Student deleted successfully"));
 
@@ -162,17 +325,42 @@ public class StudentController {
     // =========================================================================
     @GetMapping("/history")
     public ResponseEntity<?> getMyHistory(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal UserPrincipal requester,
             @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end
     ) {
         try {
-            Student requester = getAuthenticatedStudent(userDetails);
-            var logs = studentService.getMyLogs(requester, start, end, limit);
-            return ResponseEntity.ok(logs);
+            var logs = studentService.getMyLogs(requester, start, end, cursor, limit);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (logs.nextCursor() != null) ok.header(KeysetPage.NEXT_CURSOR_HEADER, logs.nextCursor());
+            return ok.body(logs.items());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch logs"));
         }
     }
-}
\ No newline at end of file
+
+    // =========================================================================
+    // 7. WALLET STATEMENT (Top-ups and charges, newest first)
+    // =========================================================================
+    @GetMapping("/wallet")
+    public ResponseEntity<?> getMyWallet(
+            @AuthenticationPrincipal UserPrincipal requester,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        try {
+            var entries = studentService.getMyWalletStatement(requester, cursor, limit);
+            ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+            if (entries.nextCursor() != null) ok.header(KeysetPage.NEXT_CURSOR_HEADER, entries.nextCursor());
+            return ok.body(entries.items());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Failed to fetch wallet statement"));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.student_smart_pay.student_management.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// Dashboard history row, filled straight from a joined JPQL constructor query
+// (AccessLogRepository), so no AccessLog / Student / Campus entities are loaded.
+public record AccessLogView(
+        Long id,
+        String studentName,
+        String nfcToken,
+        Status status,
+        String reason,
+        LocalDateTime time,
+        String gateId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String campus // Absent for unknown cards
+) implements HistoryRow {}
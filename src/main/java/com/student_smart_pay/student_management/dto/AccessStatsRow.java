@@ -0,0 +1,17 @@
+package com.student_smart_pay.student_management.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+// One row of /api/v1/gate/stats: a scan count plus whichever dimensions were grouped by.
+// Dimensions that weren't requested are left out of the JSON.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AccessStatsRow(
+        Long campusId,
+        String gateId,
+        LocalDateTime hour,
+        Status status,
+        String reason,
+        long count
+) {}
@@ -0,0 +1,24 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.time.LocalDateTime;
+
+// One access_logs row as stored in an archive file (one JSON object per line).
+// Campus name is captured at archive time so history reads need no joins.
+public record ArchivedAccessLog(
+        Long id,
+        Long studentId,
+        String studentName,
+        String studentEmail,
+        String nfcToken,
+        Status status,
+        String reason,
+        LocalDateTime time,
+        String gateId,
+        Long campusId,
+        String campus
+) implements HistoryRow {
+
+    public AccessLogView toView() {
+        return new AccessLogView(id, studentName, nfcToken, status, reason, time, gateId, campus);
+    }
+}
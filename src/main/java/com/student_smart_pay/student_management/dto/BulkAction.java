@@ -0,0 +1,9 @@
+package com.student_smart_pay.student_management.dto;
+
+// Card lifecycle operations for POST /api/v1/students/bulk-actions
+public enum BulkAction {
+    SUSPEND,         // is_active = false, and issued JWTs stop working
+    REACTIVATE,      // is_active = true
+    EXTEND_VALIDITY, // valid_until = max(valid_until, requested date)
+    REISSUE_TOKEN    // New smart id: the old (lost) card no longer matches
+}
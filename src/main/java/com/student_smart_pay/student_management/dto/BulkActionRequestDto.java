@@ -0,0 +1,15 @@
+package com.student_smart_pay.student_management.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+public class BulkActionRequestDto {
+    private BulkAction action;
+    private List<Long> studentIds;
+
+    // Only for EXTEND_VALIDITY: cards valid for less than this are extended to it
+    private LocalDateTime validUntil;
+}
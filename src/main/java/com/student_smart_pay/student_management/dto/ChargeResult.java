@@ -0,0 +1,19 @@
+package com.student_smart_pay.student_management.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+
+// Answer to POST /api/v1/payments/charge. A retry with the same Idempotency-Key
+// gets the original answer back with replayed = true (and is never charged twice).
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChargeResult(
+        Long transactionId,
+        PaymentStatus status,
+        String reason,       // Decline code: INVALID_TOKEN, WRONG_CAMPUS, SUSPENDED, EXPIRED, DAILY_LIMIT, INSUFFICIENT_FUNDS
+        BigDecimal amount,
+        BigDecimal balance,  // Wallet balance after an approved charge
+        String studentName,
+        boolean replayed
+) {
+}
@@ -0,0 +1,20 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.time.LocalDateTime;
+
+// Suspicious scan pattern raised by ScanAnomalyDetector.
+// campusId is the campus the alert belongs to (the guard's, or the student's for clones).
+public record GateAlert(
+        LocalDateTime time,
+        Type type,
+        String gateId,
+        Long campusId,
+        Long studentId,
+        String detail
+) {
+    public enum Type {
+        CARD_CLONE,            // Same card accepted at two gates within seconds
+        INVALID_TOKEN_BURST,   // A gate scanning many unknown tokens (brute force / reader fault)
+        REPEATED_DENIED_TOKEN  // The same token denied again and again
+    }
+}
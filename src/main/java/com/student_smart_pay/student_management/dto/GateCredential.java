@@ -0,0 +1,48 @@
+package com.student_smart_pay.student_management.dto;
+
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.service.CryptoService;
+
+import javax.crypto.SecretKey;
+import java.time.LocalDateTime;
+
+// Read-only snapshot of the fields a gate decision needs.
+// Kept in memory by CredentialIndexService so scans don't hit MySQL.
+public record GateCredential(
+        Long id,
+        String nfcToken,
+        String nfcTokenHash, // Blind index: what gate lookups are keyed by
+        Long campusId,
+        boolean active,
+        LocalDateTime validUntil,
+        Roles role,
+        String name,
+        String email, // Only used for the AccessLog snapshot
+        String qrSecret,
+        int credentialsVersion, // Checked against the "cv" JWT claim
+        SecretKey qrKey // Pre-built HMAC key for the dynamic QR check
+) {
+
+    // Used by the JPQL constructor expression and GateCredential.from()
+    public GateCredential(Long id, String nfcToken, String nfcTokenHash, Long campusId, boolean active, LocalDateTime validUntil,
+                          Roles role, String name, String email, String qrSecret, int credentialsVersion) {
+        this(id, nfcToken, nfcTokenHash, campusId, active, validUntil, role, name, email, qrSecret, credentialsVersion,
+                qrSecret != null ? CryptoService.hmacKey(qrSecret) : null);
+    }
+
+    public static GateCredential from(Student student) {
+        return new GateCredential(
+                student.getId(),
+                student.getNfcToken(),
+                student.getNfcTokenHash(),
+                student.getCampus() != null ? student.getCampus().getId() : null,
+                student.isActive(),
+                student.getValidUntil(),
+                student.getRole(),
+                student.getName(),
+                student.getEmail(),
+                student.getQrSecret(),
+                student.getCredentialsVersion()
+        );
+    }
+}
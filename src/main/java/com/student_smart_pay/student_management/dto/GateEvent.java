@@ -0,0 +1,16 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.time.LocalDateTime;
+
+// One verification outcome pushed to live dashboards (same fields as the history rows).
+// campusId is the scanned student's campus, null for unknown cards.
+public record GateEvent(
+        Long studentId,
+        String studentName,
+        String nfcToken,
+        Status status,
+        String reason,
+        LocalDateTime time,
+        String gateId,
+        Long campusId
+) {}
@@ -0,0 +1,43 @@
+package com.student_smart_pay.student_management.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+// Position in a newest-first access log listing: the (timestamp, id) of the
+// last row already returned. Clients only ever see the opaque encoded form.
+public record HistoryCursor(LocalDateTime timestamp, long id) {
+
+    // Start of a listing: everything up to and including "end"
+    public static HistoryCursor first(LocalDateTime end) {
+        return new HistoryCursor(end, Long.MAX_VALUE);
+    }
+
+    // Cursor for the page after this slice, null when there is none
+    public static String next(Slice<? extends HistoryRow> rows) {
+        List<? extends HistoryRow> content = rows.getContent();
+        if (!rows.hasNext() || content.isEmpty()) return null;
+        HistoryRow last = content.get(content.size() - 1);
+        return new HistoryCursor(last.time(), last.id()).encode();
+    }
+
+    public String encode() {
+        String raw = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int bar = raw.indexOf('|');
+            if (bar < 0) throw new IllegalArgumentException("Invalid cursor");
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, bar)), Long.parseLong(raw.substring(bar + 1)));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
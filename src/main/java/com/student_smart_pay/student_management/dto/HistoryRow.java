@@ -0,0 +1,9 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.time.LocalDateTime;
+
+// Anything listed newest-first by (time, id); lets HistoryCursor build the next cursor.
+public interface HistoryRow {
+    Long id();
+    LocalDateTime time();
+}
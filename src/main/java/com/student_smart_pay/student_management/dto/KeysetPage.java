@@ -0,0 +1,11 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.util.List;
+
+// One page of a keyset listing (history, roster, statements); nextCursor is null on the last page.
+// Controllers return the items as the body and the cursor in X-Next-Cursor.
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int MAX_SIZE = 500;
+}
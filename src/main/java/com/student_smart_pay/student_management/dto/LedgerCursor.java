@@ -0,0 +1,34 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+// Position in a newest-first wallet statement: the seq of the last entry already
+// returned. Clients only ever see the opaque encoded form.
+public record LedgerCursor(long seq) {
+
+    public static LedgerCursor first() {
+        return new LedgerCursor(Long.MAX_VALUE);
+    }
+
+    // Cursor for the page after these rows (fetched with limit + 1), null when there is none
+    public static String next(List<WalletEntryView> rows, int limit) {
+        if (rows.size() <= limit || limit == 0) return null;
+        return new LedgerCursor(rows.get(limit - 1).seq()).encode();
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(("L|" + seq).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static LedgerCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith("L|")) throw new IllegalArgumentException("Invalid cursor");
+            return new LedgerCursor(Long.parseLong(raw.substring(2)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
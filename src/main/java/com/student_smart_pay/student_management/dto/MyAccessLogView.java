@@ -0,0 +1,14 @@
+package com.student_smart_pay.student_management.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+// Row of a student's own history ("My Logs"); id is only used for the cursor.
+public record MyAccessLogView(
+        @JsonIgnore Long id,
+        LocalDateTime time,
+        String gate,
+        Status status,
+        String reason
+) implements HistoryRow {}
@@ -0,0 +1,6 @@
+package com.student_smart_pay.student_management.dto;
+
+public enum PaymentStatus {
+    APPROVED,
+    DECLINED
+}
@@ -0,0 +1,60 @@
+package com.student_smart_pay.student_management.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+
+// Position in a keyset student listing: the sort key and id of the last row
+// already returned. Clients only ever see the opaque encoded form.
+public record StudentCursor(Sort sort, String name, long id) {
+
+    // Both orders end on id, so every row has exactly one position
+    public enum Sort {
+        ID, NAME;
+
+        public static Sort parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown sort: " + value + " (use id or name)");
+            }
+        }
+    }
+
+    // Start of a listing: before the first row in this order
+    public static StudentCursor first(Sort sort) {
+        return new StudentCursor(sort, "", 0L);
+    }
+
+    // Cursor for the page after this slice, null when there is none
+    public static String next(Slice<UserDto> rows, Sort sort) {
+        List<UserDto> content = rows.getContent();
+        if (!rows.hasNext() || content.isEmpty()) return null;
+        UserDto last = content.get(content.size() - 1);
+        return new StudentCursor(sort, sort == Sort.NAME ? last.getName() : "", last.getId()).encode();
+    }
+
+    public String encode() {
+        // Name goes last so any '|' inside it survives the round trip
+        String raw = sort.name() + "|" + id + "|" + name;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // A cursor is only valid for the order it was issued under
+    public static StudentCursor decode(String cursor, Sort expected) {
+        StudentCursor position;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3) throw new IllegalArgumentException("Invalid cursor");
+            position = new StudentCursor(Sort.valueOf(parts[0]), parts[2], Long.parseLong(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (position.sort() != expected) throw new IllegalArgumentException("Cursor was issued for a different sort");
+        return position;
+    }
+}
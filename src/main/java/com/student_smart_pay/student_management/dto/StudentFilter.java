@@ -0,0 +1,6 @@
+package com.student_smart_pay.student_management.dto;
+
+// Resolved listing filter: campusId is already scoped to what the requester may see
+// (null = all campuses, Super Admin only). search is a lowercased prefix pattern or null.
+public record StudentFilter(Long campusId, Roles role, Boolean active, String search) {
+}
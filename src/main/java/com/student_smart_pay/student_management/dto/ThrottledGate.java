@@ -0,0 +1,10 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.time.LocalDateTime;
+
+// A gate under an anomaly throttle (gate ids are only unique within a campus)
+public record ThrottledGate(
+        String gateId,
+        Long campusId,
+        LocalDateTime until
+) {}
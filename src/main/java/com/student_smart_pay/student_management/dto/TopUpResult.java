@@ -0,0 +1,14 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.math.BigDecimal;
+
+// Answer to POST /api/v1/payments/wallets/{studentId}/top-up.
+// A retry with the same Idempotency-Key gets replayed = true and credits nothing.
+public record TopUpResult(
+        String reference,
+        BigDecimal amount,
+        BigDecimal balance, // Balance right after this credit
+        String studentName,
+        boolean replayed
+) {
+}
@@ -49,4 +49,25 @@ public class UserDto {
             );
         }
     }
-}
\ No newline at end of file
+
+    // Projection constructor for the roster listing (StudentRepository.LISTING_SELECT):
+    // filled straight from the joined row, no Student or Campus entity is loaded.
+    public UserDto(Long id, String name, String email, String nfcToken, Roles role,
+                   BigDecimal walletBalance, LocalDateTime validUntil, boolean isActive, String qrSecret,
+                   Long campusId, String campusName, String logoUrl, String primaryColor,
+                   String secondaryColor, String backgroundColor, String cardTextColor) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.nfcToken = nfcToken;
+        this.role = role;
+        this.walletBalance = walletBalance;
+        this.validUntil = validUntil;
+        this.isActive = isActive;
+        this.qrSecret = qrSecret;
+        if (campusId != null) {
+            this.campus = new CampusDto(campusName, logoUrl, primaryColor, secondaryColor,
+                    backgroundColor, cardTextColor, campusId);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.student_smart_pay.student_management.dto;
+
+import com.student_smart_pay.student_management.models.Student;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Lightweight authenticated user built from JWT claims (no DB access).
+// Controllers that only need id / role / campus use this instead of loading Student.
+public record UserPrincipal(Long id, String email, Roles role, Long campusId, int credentialsVersion) implements UserDetails {
+
+    public static UserPrincipal from(Student student) {
+        return new UserPrincipal(
+                student.getId(),
+                student.getEmail(),
+                student.getRole(),
+                student.getCampus() != null ? student.getCampus().getId() : null,
+                student.getCredentialsVersion()
+        );
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+
+    @Override
+    public String getPassword() {
+        return null; // Never needed after the JWT is verified
+    }
+}
@@ -0,0 +1,15 @@
+package com.student_smart_pay.student_management.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One line of a wallet statement (newest first)
+public record WalletEntryView(
+        long seq,
+        LedgerEntryType type,
+        BigDecimal amount,
+        BigDecimal balanceAfter,
+        String reference,
+        LocalDateTime createdAt
+) {
+}
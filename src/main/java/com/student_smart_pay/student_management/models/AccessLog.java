@@ -8,7 +8,11 @@ import com.student_smart_pay.student_management.dto.Status;
 
 @Entity
 @Data
-@Table(name = "access_logs")
+@Table(name = "access_logs", indexes = {
+    // Keyset history: newest first, (timestamp, id) as the tiebreaker
+    @Index(name = "idx_access_logs_time_id", columnList = "timestamp, id"),
+    @Index(name = "idx_access_logs_student_time", columnList = "student_id, timestamp, id")
+})
 public class AccessLog {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,6 +31,11 @@ public class AccessLog {
     private String nfcToken;
 
     private String gateId; 
+
+    // Campus of the guard who scanned (gate ids are per campus); null for guards without one
+    @Column(name = "campus_id")
+    private Long campusId;
+
     private LocalDateTime timestamp;
     private Status status; // "ALLOWED", "DENIED"
     private String denialReason;
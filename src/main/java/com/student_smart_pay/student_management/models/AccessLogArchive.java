@@ -0,0 +1,41 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Index of archived access log files: which file holds which campus and time range.
+// One file per (day, campus) per archiver chunk; campusId 0 = unknown cards.
+@Entity
+@Data
+@Table(name = "access_log_archives", indexes = {
+    @Index(name = "idx_access_log_archives_campus_time", columnList = "campus_id, max_time"),
+    @Index(name = "idx_access_log_archives_time", columnList = "max_time")
+})
+public class AccessLogArchive {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String storageKey;
+
+    @Column(name = "archive_day", nullable = false) // "day" is reserved on some databases
+    private LocalDate day;
+
+    @Column(name = "campus_id", nullable = false)
+    private long campusId;
+
+    @Column(name = "min_time", nullable = false)
+    private LocalDateTime minTime;
+
+    @Column(name = "max_time", nullable = false)
+    private LocalDateTime maxTime;
+
+    private long firstLogId;
+    private long lastLogId;
+    private int rowCount;
+
+    private LocalDateTime archivedAt;
+}
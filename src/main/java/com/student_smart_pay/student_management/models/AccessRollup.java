@@ -0,0 +1,40 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+import com.student_smart_pay.student_management.dto.Status;
+
+// Scan counters per (campus, gate, hour, status, denialReason), kept up to date by
+// AccessRollupService. Dimensions are never NULL so the unique key works on every
+// database: campusId 0 = unknown card, "" = no gate / no denial reason.
+@Entity
+@Data
+@Table(name = "access_rollups",
+    uniqueConstraints = @UniqueConstraint(name = "uk_access_rollups_key",
+        columnNames = {"hour_start", "campus_id", "gate_id", "status", "denial_reason"}),
+    indexes = @Index(name = "idx_access_rollups_campus_hour", columnList = "campus_id, hour_start"))
+public class AccessRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "hour_start", nullable = false)
+    private LocalDateTime hourStart;
+
+    @Column(name = "campus_id", nullable = false)
+    private long campusId;
+
+    @Column(name = "gate_id", nullable = false)
+    private String gateId;
+
+    @Column(nullable = false)
+    private Status status;
+
+    @Column(name = "denial_reason", nullable = false)
+    private String denialReason;
+
+    @Column(name = "entry_count", nullable = false)
+    private long entryCount;
+}
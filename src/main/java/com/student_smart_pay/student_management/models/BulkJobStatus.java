@@ -0,0 +1,47 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Last known progress of a bulk job, so any replica can answer GET .../bulk/{jobId}.
+// Written by BulkJobService over JDBC (the replica running the job); the entity only defines the table.
+@Entity
+@Data
+@Table(name = "bulk_jobs", indexes = @Index(name = "idx_bulk_jobs_updated", columnList = "updated_at"))
+public class BulkJobStatus {
+
+    @Id
+    @Column(name = "job_id", length = 36)
+    private String jobId;
+
+    @Column(nullable = false, length = 32)
+    private String type;
+
+    @Column(name = "requester_id", nullable = false)
+    private Long requesterId;
+
+    private int total;
+    private int processed;
+    private int succeeded;
+    private int failed;
+
+    @Column(nullable = false, length = 16)
+    private String state; // BulkJob.State
+
+    @Column(length = 1000)
+    private String message;
+
+    @Lob
+    private String errors; // JSON array of BulkJob.RowError (capped like the live list)
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt; // Database clock; a running job that stops moving lost its replica
+}
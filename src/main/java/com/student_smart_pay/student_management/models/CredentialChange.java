@@ -0,0 +1,24 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Change feed for the per-replica credential index: one row per student write,
+// inserted in the same transaction. Every replica polls it and reloads those cards.
+@Entity
+@Data
+@Table(name = "credential_changes", indexes = @Index(name = "idx_credential_changes_at", columnList = "changed_at"))
+public class CredentialChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId; // No FK: deletes are recorded too
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt; // Database clock
+}
@@ -0,0 +1,27 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// An admin lifting an anomaly throttle early. Throttles live in each replica's
+// ScanAnomalyDetector, so every replica polls these rows (GateEventFeed) and lifts it too.
+@Entity
+@Data
+@Table(name = "gate_throttle_releases", indexes = @Index(name = "idx_gate_throttle_releases_at", columnList = "released_at"))
+public class GateThrottleRelease {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "campus_id")
+    private Long campusId; // Null = the gate id on every campus (Super Admin)
+
+    @Column(name = "gate_id", nullable = false)
+    private String gateId;
+
+    @Column(name = "released_at", nullable = false)
+    private LocalDateTime releasedAt; // Database clock
+}
@@ -0,0 +1,24 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Time-bound ownership of a background job (or an id) across replicas.
+// Taken and renewed by JobLeaseService; expired rows can be taken over by anyone.
+@Entity
+@Data
+@Table(name = "job_leases")
+public class JobLease {
+
+    @Id
+    @Column(length = 64)
+    private String name; // e.g. "access-log-archiver"
+
+    @Column(nullable = false, length = 128)
+    private String owner; // JobLeaseService.ownerId() of the holding replica
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt; // Database clock, so replica clock skew doesn't matter
+}
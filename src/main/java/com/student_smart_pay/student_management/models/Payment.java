@@ -0,0 +1,59 @@
+package com.student_smart_pay.student_management.models;
+
+import com.student_smart_pay.student_management.dto.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One charge attempt at a POS terminal, approved or declined.
+// Written by PaymentService over JDBC; the entity only defines the table.
+@Entity
+@Data
+@Table(name = "payments",
+    // Idempotency: a POS retry with the same key finds this row instead of charging again
+    uniqueConstraints = @UniqueConstraint(name = "uk_payments_operator_key", columnNames = {"operator_id", "idempotency_key"}),
+    indexes = {
+        // Daily limit warm-up: today's approved total per card
+        @Index(name = "idx_payments_student_time", columnList = "student_id, created_at")
+    })
+public class Payment {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Plain ids, no FK: payment records outlive deleted users
+    @Column(name = "student_id")
+    private Long studentId; // Null when the card didn't resolve
+
+    @Column(name = "operator_id", nullable = false)
+    private Long operatorId; // Authenticated POS user
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    // SHA-256 of the token as presented: a retry is matched on it before the card resolves
+    // (a dynamic QR only resolves once)
+    @Column(name = "token_fingerprint", length = 43)
+    private String tokenFingerprint;
+
+    private Long campusId;
+    private String terminalId;
+    private String snapshotName;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount;
+
+    @Column(precision = 12, scale = 2)
+    private BigDecimal balanceAfter;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PaymentStatus status;
+
+    private String declineReason;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
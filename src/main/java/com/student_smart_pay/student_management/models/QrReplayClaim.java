@@ -0,0 +1,18 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Shared QR replay claims (only used when app.gate.qr-replay.store=jdbc)
+@Entity
+@Data
+@Table(name = "qr_replay_claims", indexes = @Index(name = "idx_qr_replay_expires", columnList = "expires_at"))
+public class QrReplayClaim {
+
+    @Id
+    @Column(length = 48)
+    private String claimKey; // "STUDENT_ID:TIMESTAMP"
+
+    @Column(nullable = false)
+    private long expiresAt; // Epoch millis
+}
@@ -0,0 +1,19 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// Last access_logs.id folded into a rollup table. Moved in the same transaction
+// as the counters, so a crash or restart never counts a row twice.
+@Entity
+@Data
+@Table(name = "rollup_watermarks")
+public class RollupWatermark {
+
+    @Id
+    @Column(length = 48)
+    private String name; // e.g. "access_rollups"
+
+    @Column(name = "last_id", nullable = false)
+    private long lastId;
+}
@@ -15,7 +15,10 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
-@Table(name = "students")
+@Table(name = "students", indexes = {
+    // Keyset roster listing by name within a campus, id as the tiebreaker
+    @Index(name = "idx_students_campus_name", columnList = "campus_id, name, id")
+})
 @Data
 public class Student implements UserDetails {
 
@@ -25,10 +28,15 @@ public class Student implements UserDetails {
 
     // 🔒 SECURITY UPDATE 1: This now stores the ENCRYPTED string (Ciphertext).
     // Reading the physical card will only show gibberish (e.g. "U2FsdGVkX1...").
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     @NotBlank(message = "NFC Token is required")
     private String nfcToken;
 
+    // 🔍 Blind index: HMAC of the decrypted smart id (see BlindIndexService).
+    // Fixed-width, deterministic and unique, so gate lookups search this instead.
+    @Column(name = "nfc_token_hash", length = 43, unique = true)
+    private String nfcTokenHash;
+
     // 🔑 SECURITY UPDATE 2: New field for Dynamic QR Codes.
     // This stores the unique "Seed" that the mobile app uses to generate timed codes.
     @Column(nullable = true) 
@@ -50,7 +58,8 @@ public class Student implements UserDetails {
     @Column(nullable = false)
     private LocalDateTime validUntil;
 
-    @Column(nullable = false)
+    // Read-only copy kept by WalletLedgerService (JPA saves never write it back)
+    @Column(nullable = false, updatable = false)
     @Min(value = 0, message = "Balance cannot be negative")
     private BigDecimal walletBalance = BigDecimal.ZERO;
 
@@ -59,6 +68,10 @@ public class Student implements UserDetails {
 
     private boolean isActive = true;
 
+    // Bumped whenever issued JWTs must stop working (password change, suspension)
+    @Column(nullable = false)
+    private int credentialsVersion = 0;
+
     @OneToMany(mappedBy = "student", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<AccessLog> accessLogs;
     
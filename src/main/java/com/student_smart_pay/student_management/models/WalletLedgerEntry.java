@@ -0,0 +1,49 @@
+package com.student_smart_pay.student_management.models;
+
+import com.student_smart_pay.student_management.dto.LedgerEntryType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// One money movement on a wallet. Append-only: rows are never updated or deleted.
+// Written by WalletLedgerService over JDBC; the entity only defines the table.
+@Entity
+@Data
+@Table(name = "wallet_ledger",
+    uniqueConstraints = {
+        // seq = 1, 2, 3... per wallet. Two replicas appending from the same stale
+        // balance collide here, so the ledger can never fork (or overdraw)
+        @UniqueConstraint(name = "uk_wallet_ledger_student_seq", columnNames = {"student_id", "seq"}),
+        // "payment:<id>", "top-up:<operator>:<Idempotency-Key>": each one moves money once
+        @UniqueConstraint(name = "uk_wallet_ledger_reference", columnNames = {"reference"})
+    })
+public class WalletLedgerEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Plain id, no FK: the ledger outlives deleted users
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(nullable = false)
+    private long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private LedgerEntryType type;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal amount; // Always positive; type gives the direction
+
+    @Column(name = "balance_after", nullable = false, precision = 12, scale = 2)
+    private BigDecimal balanceAfter;
+
+    @Column(nullable = false, length = 128)
+    private String reference;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
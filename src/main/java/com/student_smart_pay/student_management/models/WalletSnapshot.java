@@ -0,0 +1,28 @@
+package com.student_smart_pay.student_management.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Balance of one wallet as of ledger entry throughSeq.
+// Current balance = balance + the entries after throughSeq; WalletSnapshotService
+// moves it forward periodically so that tail stays short.
+@Entity
+@Data
+@Table(name = "wallet_snapshots")
+public class WalletSnapshot {
+    @Id
+    @Column(name = "student_id")
+    private Long studentId;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal balance;
+
+    @Column(name = "through_seq", nullable = false)
+    private long throughSeq; // 0 = opening balance, taken from students.wallet_balance
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -0,0 +1,25 @@
+package com.student_smart_pay.student_management.repository;
+
+import com.student_smart_pay.student_management.models.AccessLogArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AccessLogArchiveRepository extends JpaRepository<AccessLogArchive, Long> {
+
+    // Archive files overlapping [start, end], newest first (history reads them in this order)
+    @Query("SELECT a FROM AccessLogArchive a WHERE a.minTime <= :end AND a.maxTime >= :start " +
+           "ORDER BY a.maxTime DESC")
+    List<AccessLogArchive> findOverlapping(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT a FROM AccessLogArchive a WHERE a.campusId = :campusId AND a.minTime <= :end AND a.maxTime >= :start " +
+           "ORDER BY a.maxTime DESC")
+    List<AccessLogArchive> findCampusOverlapping(@Param("campusId") long campusId,
+                                                 @Param("start") LocalDateTime start,
+                                                 @Param("end") LocalDateTime end);
+}
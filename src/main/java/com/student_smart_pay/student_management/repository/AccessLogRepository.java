@@ -1,10 +1,14 @@
 package com.student_smart_pay.student_management.repository;
 
+import com.student_smart_pay.student_management.dto.AccessLogView;
+import com.student_smart_pay.student_management.dto.MyAccessLogView;
 import com.student_smart_pay.student_management.dto.Status;
 import com.student_smart_pay.student_management.models.AccessLog;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -18,29 +22,57 @@ public interface AccessLogRepository extends JpaRepository<AccessLog, Long> {
     List<AccessLog> findByGateId(String gateId);
     List<AccessLog> findByStatus(Status status);
 
-    // 2. GLOBAL HISTORY (For Super Admin)
-    Page<AccessLog> findByTimestampBetweenOrderByTimestampDesc(
-        LocalDateTime start, 
-        LocalDateTime end, 
+    // =========================================================================
+    // 2. HISTORY (Keyset: newest first, resumes after the cursor row)
+    // =========================================================================
+    // Slice = no count(*) query; the page is fetched with LIMIT size + 1.
+    // (cursorTime, cursorId) is the last row of the previous page, or
+    // (end, Long.MAX_VALUE) for the first one.
+
+    // Rows come back as AccessLogView records in one joined query (no entity hydration).
+
+    // 2a. GLOBAL HISTORY (For Super Admin)
+    @Query(HISTORY_SELECT +
+           "WHERE l.timestamp >= :start " +
+           "AND (l.timestamp < :cursorTime OR (l.timestamp = :cursorTime AND l.id < :cursorId)) " +
+           "ORDER BY l.timestamp DESC, l.id DESC")
+    Slice<AccessLogView> findHistory(
+        @Param("start") LocalDateTime start,
+        @Param("cursorTime") LocalDateTime cursorTime,
+        @Param("cursorId") long cursorId,
         Pageable pageable
     );
 
-    // 3. STUDENT PERSONAL HISTORY (For "My Logs")
-    Page<AccessLog> findByStudentIdAndTimestampBetweenOrderByTimestampDesc(
-        Long studentId, 
-        LocalDateTime start, 
-        LocalDateTime end, 
+    // 2b. SAAS FILTER (For Campus Admins): AccessLog -> Student -> Campus -> ID
+    @Query(HISTORY_SELECT +
+           "WHERE c.id = :campusId AND l.timestamp >= :start " +
+           "AND (l.timestamp < :cursorTime OR (l.timestamp = :cursorTime AND l.id < :cursorId)) " +
+           "ORDER BY l.timestamp DESC, l.id DESC")
+    Slice<AccessLogView> findCampusHistory(
+        @Param("campusId") Long campusId,
+        @Param("start") LocalDateTime start,
+        @Param("cursorTime") LocalDateTime cursorTime,
+        @Param("cursorId") long cursorId,
         Pageable pageable
     );
 
-    // =========================================================================
-    // 🚀 NEW: SAAS FILTER (For Campus Admins)
-    // =========================================================================
-    // This looks at AccessLog -> Student -> Campus -> ID
-    Page<AccessLog> findByStudent_Campus_IdAndTimestampBetweenOrderByTimestampDesc(
-        Long campusId, 
-        LocalDateTime start, 
-        LocalDateTime end, 
+    // 2c. STUDENT PERSONAL HISTORY (For "My Logs")
+    @Query("SELECT new com.student_smart_pay.student_management.dto.MyAccessLogView(" +
+           "l.id, l.timestamp, l.gateId, l.status, l.denialReason) " +
+           "FROM AccessLog l " +
+           "WHERE l.student.id = :studentId AND l.timestamp >= :start " +
+           "AND (l.timestamp < :cursorTime OR (l.timestamp = :cursorTime AND l.id < :cursorId)) " +
+           "ORDER BY l.timestamp DESC, l.id DESC")
+    Slice<MyAccessLogView> findStudentHistory(
+        @Param("studentId") Long studentId,
+        @Param("start") LocalDateTime start,
+        @Param("cursorTime") LocalDateTime cursorTime,
+        @Param("cursorId") long cursorId,
         Pageable pageable
     );
+
+    String HISTORY_SELECT =
+        "SELECT new com.student_smart_pay.student_management.dto.AccessLogView(" +
+        "l.id, COALESCE(l.snapshotName, 'Unknown'), l.nfcToken, l.status, l.denialReason, l.timestamp, l.gateId, c.name) " +
+        "FROM AccessLog l LEFT JOIN l.student s LEFT JOIN s.campus c ";
 }
\ No newline at end of file
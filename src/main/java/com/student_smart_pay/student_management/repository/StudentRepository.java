@@ -1,8 +1,16 @@
 package com.student_smart_pay.student_management.repository;
 
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.UserDto;
 import com.student_smart_pay.student_management.models.Student;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,8 +19,75 @@ public interface StudentRepository extends JpaRepository<Student, Long> {
     // Spring Boot automatically converts this method name into a SQL query:
     // SELECT * FROM students WHERE nfc_token = ?
     Optional<Student> findByNfcToken(String nfcToken);
+
+    // Gate lookups go through the fixed-width blind index (BlindIndexService)
+    Optional<Student> findByNfcTokenHash(String nfcTokenHash);
+
+    // Batch gate verification: resolve a whole burst of cards in one query
+    List<Student> findByNfcTokenHashIn(Collection<String> nfcTokenHashes);
     
     // Useful for login later
     Optional<Student> findByEmail(String email);
-    List<Student> findByCampusId(Long campusId);
-}
\ No newline at end of file
+
+    // Bulk import: which of these emails are already taken (one query per chunk)
+    @Query("SELECT s.email FROM Student s WHERE s.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    // Warm-up query for the gate credential index (no entity hydration)
+    @Query(GATE_CREDENTIAL_SELECT)
+    List<GateCredential> findAllGateCredentials();
+
+    // Re-read after set-based UPDATEs (bulk actions) to refresh the index
+    @Query(GATE_CREDENTIAL_SELECT + "WHERE s.id IN :ids")
+    List<GateCredential> findGateCredentialsByIdIn(@Param("ids") Collection<Long> ids);
+
+    String GATE_CREDENTIAL_SELECT =
+        "SELECT new com.student_smart_pay.student_management.dto.GateCredential(" +
+        "s.id, s.nfcToken, s.nfcTokenHash, c.id, s.isActive, s.validUntil, s.role, s.name, s.email, s.qrSecret, s.credentialsVersion) " +
+        "FROM Student s LEFT JOIN s.campus c ";
+
+    // =========================================================================
+    // ROSTER LISTING (Keyset: resumes after the cursor row, no OFFSET, no count)
+    // =========================================================================
+    // Rows come back as UserDto in one joined query (no entity hydration, no EAGER campus fetch).
+    // Null filters are ignored; search is a lowercased prefix pattern ("smi%").
+
+    // Ordered by id: (afterId) is the last row of the previous page, 0 for the first one
+    @Query(LISTING_SELECT + LISTING_FILTER +
+           "AND s.id > :afterId " +
+           "ORDER BY s.id")
+    Slice<UserDto> findListingById(
+        @Param("campusId") Long campusId,
+        @Param("role") Roles role,
+        @Param("active") Boolean active,
+        @Param("search") String search,
+        @Param("afterId") long afterId,
+        Pageable pageable
+    );
+
+    // Ordered by name, id as the tiebreaker (walks idx_students_campus_name within a campus)
+    @Query(LISTING_SELECT + LISTING_FILTER +
+           "AND (s.name > :afterName OR (s.name = :afterName AND s.id > :afterId)) " +
+           "ORDER BY s.name, s.id")
+    Slice<UserDto> findListingByName(
+        @Param("campusId") Long campusId,
+        @Param("role") Roles role,
+        @Param("active") Boolean active,
+        @Param("search") String search,
+        @Param("afterName") String afterName,
+        @Param("afterId") long afterId,
+        Pageable pageable
+    );
+
+    String LISTING_SELECT =
+        "SELECT new com.student_smart_pay.student_management.dto.UserDto(" +
+        "s.id, s.name, s.email, s.nfcToken, s.role, s.walletBalance, s.validUntil, s.isActive, s.qrSecret, " +
+        "c.id, c.name, c.logoUrl, c.primaryColor, c.secondaryColor, c.backgroundColor, c.cardTextColor) " +
+        "FROM Student s LEFT JOIN s.campus c ";
+
+    String LISTING_FILTER =
+        "WHERE (:campusId IS NULL OR c.id = :campusId) " +
+        "AND (:role IS NULL OR s.role = :role) " +
+        "AND (:active IS NULL OR s.isActive = :active) " +
+        "AND (:search IS NULL OR LOWER(s.name) LIKE :search ESCAPE '\\' OR LOWER(s.email) LIKE :search ESCAPE '\\') ";
+}
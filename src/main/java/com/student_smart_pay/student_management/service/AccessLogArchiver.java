@@ -0,0 +1,308 @@
+package com.student_smart_pay.student_management.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.student_smart_pay.student_management.dto.AccessLogView;
+import com.student_smart_pay.student_management.dto.ArchivedAccessLog;
+import com.student_smart_pay.student_management.dto.HistoryCursor;
+import com.student_smart_pay.student_management.dto.Status;
+import com.student_smart_pay.student_management.models.AccessLogArchive;
+import com.student_smart_pay.student_management.repository.AccessLogArchiveRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Retention for access_logs: rows older than the hot window are moved, a chunk at
+// a time, into gzipped NDJSON files partitioned by day and campus (ArchiveStore),
+// with one access_log_archives row per file. The file is stored first; the index
+// row and the DELETE then commit together, so a crash can leave an unreferenced
+// file but never loses or double-lists a row.
+// History requests that reach past the hot window read the archives back in.
+// Off by default: the store must be shared by every replica (object storage or a
+// ReadWriteMany volume), or rows deleted here become unreadable on the other pods
+// and are gone for good when the pod's filesystem goes. One replica archives at a
+// time (job lease), renewed between chunks.
+@Service
+public class AccessLogArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogArchiver.class);
+
+    private static final String LEASE = "access-log-archiver";
+
+    private static final DateTimeFormatter DAY_PATH = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    // Newest first, like the history queries
+    private static final Comparator<ArchivedAccessLog> NEWEST_FIRST =
+            Comparator.comparing(ArchivedAccessLog::time).thenComparing(ArchivedAccessLog::id).reversed();
+
+    private static final String SELECT_SQL =
+            "SELECT l.id, l.student_id, COALESCE(l.snapshot_name, 'Unknown'), l.snapshot_email, l.nfc_token, l.status, " +
+            "l.denial_reason, l.timestamp, l.gate_id, s.campus_id, c.name " +
+            "FROM access_logs l LEFT JOIN students s ON s.id = l.student_id LEFT JOIN campuses c ON c.id = s.campus_id " +
+            "WHERE l.timestamp < ? AND l.id <= ? ORDER BY l.id LIMIT ?";
+
+    @Value("${app.gate.archive.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.gate.archive.retention-days:180}")
+    private int retentionDays;
+
+    @Value("${app.gate.archive.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.gate.archive.interval-ms:3600000}")
+    private long intervalMs;
+
+    // Must outlast one chunk (select, gzip, store, delete)
+    @Value("${app.gate.archive.lease-seconds:600}")
+    private long leaseSeconds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AccessLogArchiveRepository archiveRepository;
+
+    @Autowired
+    private ArchiveStore archiveStore;
+
+    @Autowired
+    private AccessRollupService accessRollups;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JobLeaseService leases;
+
+    private TransactionTemplate transactionTemplate;
+    private ObjectReader rowReader;
+    private ObjectWriter rowWriter;
+    private ScheduledExecutorService scheduler;
+
+    private record Partition(LocalDate day, long campusId) {}
+
+    // An archive file the index points at can't be read: the page would silently miss rows
+    public static class ArchiveUnavailableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public ArchiveUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        rowReader = objectMapper.readerFor(ArchivedAccessLog.class);
+        rowWriter = objectMapper.writerFor(ArchivedAccessLog.class).withRootValueSeparator("\n");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "access-log-archiver");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    // Oldest timestamp guaranteed to still be in access_logs
+    public LocalDateTime hotWindowStart() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+
+    // =========================================================================
+    // 1. ARCHIVE (Scheduled; also callable by ops)
+    // =========================================================================
+    private void runSafely() {
+        try {
+            archive(hotWindowStart());
+        } catch (Exception e) {
+            logger.error("❌ Access log archiving failed: {}", e.getMessage());
+        }
+    }
+
+    // Moves every row older than cutoff; returns how many were archived (0 if another replica is at it)
+    public long archive(LocalDateTime cutoff) throws IOException {
+        Duration ttl = Duration.ofSeconds(leaseSeconds);
+        if (!leases.tryAcquire(LEASE, ttl)) {
+            logger.debug("🗄️ Access log archiving is running on another replica");
+            return 0;
+        }
+        long archived = 0;
+        try {
+            // Renew before every chunk; losing the lease means someone else took over
+            while (!Thread.currentThread().isInterrupted() && leases.tryAcquire(LEASE, ttl)) {
+                int rows = archiveChunk(cutoff);
+                if (rows == 0) break;
+                archived += rows;
+            }
+        } finally {
+            leases.release(LEASE);
+        }
+        if (archived > 0) logger.info("🗄️ Archived {} access logs older than {}", archived, cutoff);
+        return archived;
+    }
+
+    private int archiveChunk(LocalDateTime cutoff) throws IOException {
+        // Rows the stats rollup hasn't counted yet stay put until it has
+        long maxId = accessRollups.foldedThrough();
+        List<ArchivedAccessLog> rows = jdbcTemplate.query(SELECT_SQL, (rs, i) -> {
+            int status = rs.getInt(6);
+            Status rowStatus = rs.wasNull() ? null : Status.values()[status];
+            return new ArchivedAccessLog(
+                    rs.getLong(1),
+                    rs.getObject(2, Long.class),
+                    rs.getString(3),
+                    rs.getString(4),
+                    rs.getString(5),
+                    rowStatus,
+                    rs.getString(7),
+                    rs.getTimestamp(8).toLocalDateTime(),
+                    rs.getString(9),
+                    rs.getObject(10, Long.class),
+                    rs.getString(11));
+        }, Timestamp.valueOf(cutoff), maxId, batchSize);
+        if (rows.isEmpty()) return 0;
+
+        // 1. One file per (day, campus), rows in id order
+        Map<Partition, List<ArchivedAccessLog>> partitions = new LinkedHashMap<>();
+        for (ArchivedAccessLog row : rows) {
+            Partition p = new Partition(row.time().toLocalDate(), row.campusId() != null ? row.campusId() : 0L);
+            partitions.computeIfAbsent(p, k -> new ArrayList<>()).add(row);
+        }
+
+        List<AccessLogArchive> index = new ArrayList<>(partitions.size());
+        for (Map.Entry<Partition, List<ArchivedAccessLog>> entry : partitions.entrySet()) {
+            index.add(store(entry.getKey(), entry.getValue()));
+        }
+
+        // 2. Index + delete in one transaction
+        List<Object[]> ids = new ArrayList<>(rows.size());
+        for (ArchivedAccessLog row : rows) ids.add(new Object[]{row.id()});
+        transactionTemplate.executeWithoutResult(status -> {
+            archiveRepository.saveAll(index);
+            jdbcTemplate.batchUpdate("DELETE FROM access_logs WHERE id = ?", ids);
+        });
+        return rows.size();
+    }
+
+    private AccessLogArchive store(Partition partition, List<ArchivedAccessLog> rows) throws IOException {
+        ArchivedAccessLog first = rows.get(0);
+        ArchivedAccessLog last = rows.get(rows.size() - 1);
+        String key = "access-logs/" + partition.day().format(DAY_PATH) + "/campus-" + partition.campusId()
+                + "/" + first.id() + "-" + last.id() + ".ndjson.gz";
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(rows.size() * 64);
+        LocalDateTime minTime = first.time();
+        LocalDateTime maxTime = first.time();
+        try (SequenceWriter out = rowWriter.writeValues(new GZIPOutputStream(bytes))) {
+            for (ArchivedAccessLog row : rows) {
+                out.write(row);
+                if (row.time().isBefore(minTime)) minTime = row.time();
+                if (row.time().isAfter(maxTime)) maxTime = row.time();
+            }
+        }
+        archiveStore.write(key, bytes.toByteArray());
+
+        AccessLogArchive archive = new AccessLogArchive();
+        archive.setStorageKey(key);
+        archive.setDay(partition.day());
+        archive.setCampusId(partition.campusId());
+        archive.setMinTime(minTime);
+        archive.setMaxTime(maxTime);
+        archive.setFirstLogId(first.id());
+        archive.setLastLogId(last.id());
+        archive.setRowCount(rows.size());
+        archive.setArchivedAt(LocalDateTime.now());
+        return archive;
+    }
+
+    // =========================================================================
+    // 2. READ BACK (History pages that reach into archived ranges)
+    // =========================================================================
+    // Up to "limit" archived rows after the cursor (newest first), campusId null = all.
+    // Files are visited newest first and only a limit-sized heap is kept in memory.
+    public List<AccessLogView> findHistory(Long campusId, LocalDateTime start, HistoryCursor position, int limit) {
+        List<AccessLogArchive> files = campusId == null
+                ? archiveRepository.findOverlapping(start, position.timestamp())
+                : archiveRepository.findCampusOverlapping(campusId, start, position.timestamp());
+        if (files.isEmpty()) return List.of();
+
+        // Head = oldest row kept so far, evicted first
+        PriorityQueue<ArchivedAccessLog> kept = new PriorityQueue<>(limit + 1, NEWEST_FIRST.reversed());
+        for (AccessLogArchive file : files) {
+            // Every remaining file ends before the oldest row we're keeping
+            if (kept.size() == limit && file.getMaxTime().isBefore(kept.peek().time())) break;
+            try (InputStream in = new GZIPInputStream(archiveStore.open(file.getStorageKey()));
+                 MappingIterator<ArchivedAccessLog> it = rowReader.readValues(in)) {
+                while (it.hasNext()) {
+                    ArchivedAccessLog row = it.next();
+                    if (row.time().isBefore(start) || !isAfter(row, position)) continue;
+                    kept.offer(row);
+                    if (kept.size() > limit) kept.poll();
+                }
+            } catch (IOException e) {
+                // Fail the page: answering without these rows would look like they never existed
+                logger.error("❌ Unreadable access log archive {}: {}", file.getStorageKey(), e.getMessage());
+                throw new ArchiveUnavailableException("Archived history is unavailable, try a shorter range", e);
+            }
+        }
+
+        List<ArchivedAccessLog> rows = new ArrayList<>(kept);
+        rows.sort(NEWEST_FIRST);
+        List<AccessLogView> views = new ArrayList<>(rows.size());
+        for (ArchivedAccessLog row : rows) views.add(row.toView());
+        return views;
+    }
+
+    // --- HELPERS ---
+    // Strictly older than the cursor row (same rule as the history queries)
+    private static boolean isAfter(ArchivedAccessLog row, HistoryCursor position) {
+        int cmp = row.time().compareTo(position.timestamp());
+        return cmp < 0 || (cmp == 0 && row.id() < position.id());
+    }
+}
@@ -0,0 +1,228 @@
+package com.student_smart_pay.student_management.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.student_smart_pay.student_management.dto.Status;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// Full-range access log export for compliance (CSV or NDJSON, optionally gzipped).
+// Rows go straight from a forward-only JDBC cursor to the response stream, one at
+// a time, so memory stays flat no matter how many rows the range holds.
+@Service
+public class AccessLogExporter {
+
+    private static final String[] COLUMNS =
+            {"id", "time", "studentName", "nfcToken", "status", "reason", "gateId", "campus"};
+
+    // Same rows as /history, oldest first (walks idx_access_logs_time_id)
+    private static final String SELECT_SQL =
+            "SELECT l.id, l.timestamp, COALESCE(l.snapshot_name, 'Unknown'), l.nfc_token, l.status, l.denial_reason, l.gate_id, c.name " +
+            "FROM access_logs l LEFT JOIN students s ON s.id = l.student_id LEFT JOIN campuses c ON c.id = s.campus_id " +
+            "WHERE l.timestamp >= ? AND l.timestamp < ?";
+
+    // MySQL only streams with Integer.MIN_VALUE (or useCursorFetch=true); other drivers take a page size
+    @Value("${app.gate.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private JdbcTemplate streamingTemplate;
+
+    public enum Format {
+        CSV("text/csv", "csv"), NDJSON("application/x-ndjson", "ndjson");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown format: " + name);
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        // Own template so the shared one keeps the driver's default fetch size
+        streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(fetchSize);
+    }
+
+    // =========================================================================
+    // 1. EXPORT (campusId null = all campuses; returns the number of rows written)
+    // =========================================================================
+    public long export(Long campusId, LocalDateTime start, LocalDateTime end, Format format, boolean gzip,
+                       OutputStream out) throws IOException {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        List<Object> args = new ArrayList<>(3);
+        args.add(Timestamp.valueOf(start));
+        args.add(Timestamp.valueOf(end));
+        if (campusId != null) {
+            sql.append(" AND s.campus_id = ?");
+            args.add(campusId);
+        }
+        sql.append(" ORDER BY l.timestamp, l.id");
+
+        GZIPOutputStream zip = gzip ? new GZIPOutputStream(out, 64 * 1024) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip != null ? zip : out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+
+        long[] count = {0};
+        try {
+            rows.begin();
+            streamingTemplate.query(sql.toString(), rs -> {
+                try {
+                    rows.write(rs);
+                    count[0]++;
+                } catch (IOException e) {
+                    // Client went away: stop reading, the template closes the cursor
+                    throw new UncheckedIOException(e);
+                }
+            }, args.toArray());
+            rows.end();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (zip != null) zip.finish();
+        return count[0];
+    }
+
+    // --- ROW FORMATS ---
+    private interface RowWriter {
+        void begin() throws IOException;
+        void write(ResultSet rs) throws SQLException, IOException;
+        void end() throws IOException;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer out;
+
+        CsvRowWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void begin() throws IOException {
+            out.write(String.join(",", COLUMNS));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            out.write(Long.toString(rs.getLong(1)));
+            out.write(',');
+            Timestamp time = rs.getTimestamp(2);
+            if (time != null) out.write(time.toLocalDateTime().toString());
+            out.write(',');
+            field(rs.getString(3));
+            out.write(',');
+            field(rs.getString(4));
+            out.write(',');
+            field(status(rs));
+            out.write(',');
+            field(rs.getString(6));
+            out.write(',');
+            field(rs.getString(7));
+            out.write(',');
+            field(rs.getString(8));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void end() {
+        }
+
+        // RFC 4180: quote only when needed, double any quotes inside
+        private void field(String value) throws IOException {
+            if (value == null) return;
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char ch = value.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\n' || ch == '\r';
+            }
+            if (!quote) {
+                out.write(value);
+                return;
+            }
+            out.write('"');
+            out.write(value.replace("\"", "\"\""));
+            out.write('"');
+        }
+    }
+
+    private final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator json;
+        private boolean any;
+
+        NdjsonRowWriter(Writer out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            this.json.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            any = true;
+            json.writeStartObject();
+            json.writeNumberField(COLUMNS[0], rs.getLong(1));
+            Timestamp time = rs.getTimestamp(2);
+            json.writeStringField(COLUMNS[1], time != null ? time.toLocalDateTime().toString() : null);
+            json.writeStringField(COLUMNS[2], rs.getString(3));
+            json.writeStringField(COLUMNS[3], rs.getString(4));
+            json.writeStringField(COLUMNS[4], status(rs));
+            json.writeStringField(COLUMNS[5], rs.getString(6));
+            json.writeStringField(COLUMNS[6], rs.getString(7));
+            json.writeStringField(COLUMNS[7], rs.getString(8));
+            json.writeEndObject();
+        }
+
+        @Override
+        public void end() throws IOException {
+            if (any) json.writeRaw('\n');
+            json.flush();
+        }
+    }
+
+    private static String status(ResultSet rs) throws SQLException {
+        int ordinal = rs.getInt(5);
+        return rs.wasNull() ? null : Status.values()[ordinal].name();
+    }
+}
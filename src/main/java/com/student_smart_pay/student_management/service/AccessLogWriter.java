@@ -0,0 +1,314 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.models.AccessLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Write-behind pipeline for gate AccessLogs.
+// AccessLog uses IDENTITY ids, so Hibernate can't batch its inserts. Scans drop
+// their log here and return immediately; a single background thread flushes
+// the queue as multi-row INSERTs, either when a batch fills up or on a timer.
+// A failed batch is retried row by row, so one bad row can't hold back the rest:
+// transient failures (DB down, lock timeouts) go back on the queue up to max-attempts,
+// anything else is dead-lettered (logged with its fields and counted).
+// When the queue is full, rows spill to a small bounded buffer the flusher writes
+// after the queue; past that they are dead-lettered. The scan thread never writes.
+@Service
+public class AccessLogWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessLogWriter.class);
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO access_logs (student_id, snapshot_name, snapshot_email, nfc_token, gate_id, campus_id, timestamp, status, denial_reason) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 9;
+
+    @Value("${app.gate.log.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.gate.log.flush-interval-ms:250}")
+    private long flushIntervalMs;
+
+    @Value("${app.gate.log.queue-capacity:20000}")
+    private int queueCapacity;
+
+    // Overflow buffer for bursts that outrun the queue (drained after it)
+    @Value("${app.gate.log.spill-capacity:5000}")
+    private int spillCapacity;
+
+    // Flushes a row may fail transiently before it is dead-lettered
+    @Value("${app.gate.log.max-attempts:40}")
+    private int maxAttempts;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Lock-free queue; the AtomicInteger keeps it bounded without a lock.
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Pending> spill = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger spillDepth = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService flusher;
+    private String fullBatchSql;
+    private Timer flushTimer;
+    private Counter writtenCounter;
+    private Counter overflowCounter;
+    private Counter deadLetterCounter;
+
+    // A queued row and how many flushes it has already failed
+    private record Pending(AccessLog log, int attempts) {}
+
+    @PostConstruct
+    void start() {
+        fullBatchSql = buildInsertSql(batchSize);
+
+        Gauge.builder("gate.access_log.queue.depth", depth, AtomicInteger::get)
+                .description("AccessLogs waiting to be written")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("gate.access_log.flush")
+                .description("Time to write one AccessLog batch")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        writtenCounter = meterRegistry.counter("gate.access_log.written");
+        overflowCounter = meterRegistry.counter("gate.access_log.overflow");
+        deadLetterCounter = meterRegistry.counter("gate.access_log.dead_lettered");
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "access-log-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    // =========================================================================
+    // 1. ENQUEUE (Called on the gate path - never blocks on the DB)
+    // =========================================================================
+    public void enqueue(AccessLog log) {
+        if (depth.incrementAndGet() > queueCapacity) {
+            // Queue is full: park the row in the spill buffer, the flusher catches up
+            depth.decrementAndGet();
+            overflowCounter.increment();
+            spill(new Pending(log, 0), null);
+            requestFlush();
+            return;
+        }
+        queue.offer(new Pending(log, 0));
+        if (depth.get() >= batchSize) requestFlush();
+    }
+
+    public void enqueueAll(Collection<AccessLog> logs) {
+        logs.forEach(this::enqueue);
+    }
+
+    public int getQueueDepth() {
+        return depth.get() + spillDepth.get();
+    }
+
+    // =========================================================================
+    // 2. FLUSH (Background thread only)
+    // =========================================================================
+    private void requestFlush() {
+        // Shutting down: the final drain in shutdown() picks the rows up
+        if (flusher.isShutdown() || !flushRequested.compareAndSet(false, true)) return;
+        try {
+            flusher.execute(this::flushSafely);
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+        }
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            drain();
+        } catch (Exception e) {
+            logger.error("❌ AccessLog flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void drain() {
+        // Only take what is queued right now, so requeued failures wait for the next tick
+        int remaining = depth.get();
+        List<Pending> batch = new ArrayList<>(batchSize);
+        Pending next;
+        while (remaining-- > 0 && (next = queue.poll()) != null) {
+            depth.decrementAndGet();
+            batch.add(next);
+            if (batch.size() == batchSize) {
+                writeBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        // Then whatever spilled over while the queue was full
+        remaining = spillDepth.get();
+        while (remaining-- > 0 && (next = spill.poll()) != null) {
+            spillDepth.decrementAndGet();
+            batch.add(next);
+            if (batch.size() == batchSize) {
+                writeBatch(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) writeBatch(batch);
+    }
+
+    private void writeBatch(List<Pending> batch) {
+        try {
+            insert(batch.stream().map(Pending::log).toList());
+        } catch (Exception e) {
+            if (isTransient(e)) {
+                // The whole batch would fail the same way row by row: try again next tick
+                requeue(batch, e);
+            } else {
+                logger.warn("⚠️ AccessLog batch of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+                batch.forEach(this::writeRow);
+            }
+        }
+    }
+
+    private void writeRow(Pending pending) {
+        AccessLog log = pending.log();
+        try {
+            insert(List.of(log));
+        } catch (DataIntegrityViolationException e) {
+            if (!studentDeleted(log)) {
+                deadLetter(log, e);
+                return;
+            }
+            // The student was deleted after the scan: keep the row, the snapshot columns still say who it was
+            log.setStudent(null);
+            try {
+                insert(List.of(log));
+            } catch (Exception retry) {
+                deadLetter(log, retry);
+            }
+        } catch (Exception e) {
+            if (isTransient(e)) requeue(List.of(pending), e);
+            else deadLetter(log, e);
+        }
+    }
+
+    private boolean studentDeleted(AccessLog log) {
+        if (log.getStudent() == null) return false;
+        Integer found = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students WHERE id = ?", Integer.class, log.getStudent().getId());
+        return found == null || found == 0;
+    }
+
+    // Back on the queue for the next tick if there is room and attempts left
+    private void requeue(List<Pending> rows, Exception cause) {
+        int requeued = 0;
+        for (Pending p : rows) {
+            if (p.attempts() + 1 >= maxAttempts) {
+                deadLetter(p.log(), cause);
+            } else if (depth.incrementAndGet() <= queueCapacity) {
+                queue.offer(new Pending(p.log(), p.attempts() + 1));
+                requeued++;
+            } else {
+                depth.decrementAndGet();
+                if (spill(new Pending(p.log(), p.attempts() + 1), cause)) requeued++;
+            }
+        }
+        logger.error("❌ Failed to write {} AccessLogs ({} requeued): {}", rows.size(), requeued, cause.getMessage());
+    }
+
+    // Bounded too: when the spill buffer is full the row is dead-lettered
+    private boolean spill(Pending pending, Exception cause) {
+        if (spillDepth.incrementAndGet() > spillCapacity) {
+            spillDepth.decrementAndGet();
+            deadLetter(pending.log(), cause);
+            return false;
+        }
+        spill.offer(pending);
+        return true;
+    }
+
+    private void deadLetter(AccessLog log, Exception cause) {
+        deadLetterCounter.increment();
+        logger.error("🪦 Dropped AccessLog gate={} student={} name={} time={} status={} reason={}: {}",
+                log.getGateId(), log.getStudent() != null ? log.getStudent().getId() : null, log.getSnapshotName(),
+                log.getTimestamp(), log.getStatus(), log.getDenialReason(),
+                cause != null ? cause.getMessage() : "write-behind queue and spill buffer full");
+    }
+
+    private static boolean isTransient(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private void insert(List<AccessLog> rows) {
+        String sql = rows.size() == batchSize ? fullBatchSql : buildInsertSql(rows.size());
+        Object[] args = new Object[rows.size() * COLUMNS];
+        int i = 0;
+        for (AccessLog log : rows) {
+            args[i++] = log.getStudent() != null ? log.getStudent().getId() : null;
+            args[i++] = log.getSnapshotName();
+            args[i++] = log.getSnapshotEmail();
+            args[i++] = log.getNfcToken();
+            args[i++] = log.getGateId();
+            args[i++] = log.getCampusId();
+            args[i++] = log.getTimestamp() != null ? Timestamp.valueOf(log.getTimestamp()) : null;
+            args[i++] = log.getStatus() != null ? log.getStatus().ordinal() : null;
+            args[i++] = log.getDenialReason();
+        }
+        flushTimer.record(() -> jdbcTemplate.update(sql, args));
+        writtenCounter.increment(rows.size());
+    }
+
+    private static String buildInsertSql(int rows) {
+        StringBuilder sb = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDER.length() + 2));
+        sb.append(INSERT_PREFIX);
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sb.append(", ");
+            sb.append(ROW_PLACEHOLDER);
+        }
+        return sb.toString();
+    }
+
+    // =========================================================================
+    // 3. GRACEFUL SHUTDOWN (Drain everything before the DataSource closes)
+    // =========================================================================
+    @PreDestroy
+    void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        drain();
+        logger.info("✅ AccessLog writer drained");
+    }
+}
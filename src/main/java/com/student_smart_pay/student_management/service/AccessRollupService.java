@@ -0,0 +1,327 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.AccessStatsRow;
+import com.student_smart_pay.student_management.dto.Status;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Incrementally maintained scan counters for the admin stats endpoint.
+// A background tick folds new access_logs rows (by id, after the watermark) into
+// access_rollups. Counters and watermark move in one transaction with the
+// watermark row locked, so replicas can all run the tick and a restart simply
+// resumes from the watermark: every log row is counted exactly once.
+// Ids commit out of order, so the watermark never passes a missing id until it has
+// stayed missing for gap-grace-ms (then it was a rolled-back insert).
+// The campus dimension is the scanning guard's campus (the student's for older rows).
+@Service
+public class AccessRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccessRollupService.class);
+
+    private static final String WATERMARK = "access_rollups";
+
+    @Value("${app.gate.rollup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.gate.rollup.interval-ms:1000}")
+    private long intervalMs;
+
+    @Value("${app.gate.rollup.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${app.gate.rollup.gap-grace-ms:30000}")
+    private long gapGraceMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService folder;
+
+    // Highest id seen on the previous tick. Folding stops there, which gives
+    // in-flight INSERTs (other replicas, overflow writes) one tick to commit.
+    private long settledMaxId;
+    private volatile long watermark;
+
+    // Oldest id gap below the fold position: [gapStart, gapEnd] missing since gapSeenAt (fold lock only)
+    private long gapStart = -1;
+    private long gapEnd;
+    private long gapSeenAt;
+
+    // Rollup dimensions the stats endpoint can group by
+    public enum Dimension {
+        CAMPUS("campus_id"), GATE("gate_id"), HOUR("hour_start"), STATUS("status"), REASON("denial_reason");
+
+        private final String column;
+
+        Dimension(String column) {
+            this.column = column;
+        }
+
+        public static Dimension parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown groupBy: " + name);
+            }
+        }
+    }
+
+    private record RollupKey(LocalDateTime hour, long campusId, String gateId, int status, String reason) {}
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+        ensureWatermark();
+
+        folder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "access-rollup");
+            t.setDaemon(true);
+            return t;
+        });
+        folder.scheduleWithFixedDelay(this::tick, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (folder != null) folder.shutdownNow();
+    }
+
+    // =========================================================================
+    // 1. FOLD (Background tick; catches up after restarts the same way)
+    // =========================================================================
+    private void tick() {
+        try {
+            long seen = maxLogId();
+            long upTo = settledMaxId;
+            settledMaxId = seen;
+            if (upTo > watermark) foldUpTo(upTo);
+        } catch (Exception e) {
+            logger.error("❌ Access rollup failed: {}", e.getMessage());
+        }
+    }
+
+    // Fold everything written so far (admin/ops use; the tick keeps one interval of lag)
+    public long catchUp() {
+        ensureWatermark();
+        return foldUpTo(maxLogId());
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    // Highest log id safe to delete from access_logs (retention must not outrun the rollups)
+    public long foldedThrough() {
+        return enabled ? watermark : Long.MAX_VALUE;
+    }
+
+    // Serialized: the tick and catchUp() share the gap bookkeeping
+    private synchronized long foldUpTo(long upTo) {
+        long folded = 0;
+        while (true) {
+            Integer rows = transactionTemplate.execute(status -> foldChunk(upTo));
+            if (rows == null || rows < 0) break;
+            folded += rows;
+        }
+        if (folded > 0) logger.debug("📊 Folded {} access logs into rollups (watermark {})", folded, watermark);
+        return folded;
+    }
+
+    // One chunk: lock the watermark, count the next rows, move the watermark.
+    // -1 = caught up, or waiting for a missing id to commit or age out.
+    private int foldChunk(long upTo) {
+        long from = jdbcTemplate.queryForObject(
+                "SELECT last_id FROM rollup_watermarks WHERE name = ? FOR UPDATE", Long.class, WATERMARK);
+        if (from >= upTo) {
+            watermark = from;
+            return -1;
+        }
+
+        long now = System.currentTimeMillis();
+        Map<RollupKey, long[]> counts = new HashMap<>();
+        long[] lastId = {from}; // Highest id folded with nothing unsettled below it
+        int[] rows = {0};
+        boolean[] blocked = {false};
+        jdbcTemplate.query(
+                "SELECT l.id, COALESCE(l.campus_id, s.campus_id), l.gate_id, l.timestamp, l.status, l.denial_reason " +
+                "FROM access_logs l LEFT JOIN students s ON s.id = l.student_id " +
+                "WHERE l.id > ? AND l.id <= ? ORDER BY l.id LIMIT ?",
+                rs -> {
+                    if (blocked[0]) return;
+                    long id = rs.getLong(1);
+                    if (id > lastId[0] + 1) {
+                        // Ids in between are still in flight or were rolled back
+                        long skippable = settledGapEnd(lastId[0] + 1, id - 1, now);
+                        if (skippable < id - 1) {
+                            if (skippable > lastId[0]) lastId[0] = skippable;
+                            blocked[0] = true;
+                            return;
+                        }
+                    }
+                    lastId[0] = id;
+                    rows[0]++;
+                    Timestamp time = rs.getTimestamp(4);
+                    int status = rs.getInt(5);
+                    if (time == null || rs.wasNull()) return; // Nothing to bucket it under
+                    RollupKey key = new RollupKey(
+                            time.toLocalDateTime().truncatedTo(ChronoUnit.HOURS),
+                            rs.getLong(2),
+                            nonNull(rs.getString(3)),
+                            status,
+                            nonNull(rs.getString(6)));
+                    counts.computeIfAbsent(key, k -> new long[1])[0]++;
+                },
+                from, upTo, batchSize);
+
+        counts.forEach(this::increment);
+
+        // A short chunk that stopped below upTo: the ids after the last row are missing too
+        if (!blocked[0] && rows[0] < batchSize && lastId[0] < upTo) {
+            long skippable = settledGapEnd(lastId[0] + 1, upTo, now);
+            if (skippable > lastId[0]) lastId[0] = skippable;
+        }
+
+        long next = lastId[0];
+        if (next == from) return -1;
+        jdbcTemplate.update("UPDATE rollup_watermarks SET last_id = ? WHERE name = ?", next, WATERMARK);
+        watermark = next;
+        return rows[0];
+    }
+
+    // Last id of the gap [start, end] that has been missing for the grace period; start - 1 = keep waiting.
+    // Only ids seen missing at the first sighting age: later ids start their own clock.
+    private long settledGapEnd(long start, long end, long now) {
+        if (gapStart != start) {
+            gapStart = start;
+            gapEnd = end;
+            gapSeenAt = now;
+        }
+        if (now - gapSeenAt < gapGraceMs) return start - 1;
+        long skipped = Math.min(end, gapEnd);
+        logger.info("⏭️ Access log ids {}..{} never committed, rollups move past them", start, skipped);
+        return skipped;
+    }
+
+    // Counter upsert; the locked watermark row keeps two folders from racing on the INSERT
+    private void increment(RollupKey key, long[] count) {
+        Timestamp hour = Timestamp.valueOf(key.hour());
+        int updated = jdbcTemplate.update(
+                "UPDATE access_rollups SET entry_count = entry_count + ? " +
+                "WHERE hour_start = ? AND campus_id = ? AND gate_id = ? AND status = ? AND denial_reason = ?",
+                count[0], hour, key.campusId(), key.gateId(), key.status(), key.reason());
+        if (updated == 0) {
+            jdbcTemplate.update(
+                    "INSERT INTO access_rollups (hour_start, campus_id, gate_id, status, denial_reason, entry_count) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)",
+                    hour, key.campusId(), key.gateId(), key.status(), key.reason(), count[0]);
+        }
+    }
+
+    // =========================================================================
+    // 2. QUERY (Range read straight from the rollups; hour granularity)
+    // =========================================================================
+    // campusId null = all campuses. Rows are ordered by the grouped dimensions.
+    public List<AccessStatsRow> query(Long campusId, LocalDateTime start, LocalDateTime end,
+                                      Collection<Dimension> groupBy, Status status, String gateId) {
+        StringBuilder columns = new StringBuilder();
+        for (Dimension d : Dimension.values()) {
+            if (groupBy.contains(d)) columns.append(d.column).append(", ");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append("SUM(entry_count) FROM access_rollups ")
+                .append("WHERE hour_start >= ? AND hour_start < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.valueOf(start.truncatedTo(ChronoUnit.HOURS)));
+        args.add(Timestamp.valueOf(end));
+        if (campusId != null) {
+            sql.append(" AND campus_id = ?");
+            args.add(campusId);
+        }
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.ordinal());
+        }
+        if (gateId != null) {
+            sql.append(" AND gate_id = ?");
+            args.add(gateId);
+        }
+        if (!columns.isEmpty()) {
+            String grouped = columns.substring(0, columns.length() - 2);
+            sql.append(" GROUP BY ").append(grouped).append(" ORDER BY ").append(grouped);
+        }
+
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> {
+            int col = 1;
+            Long campus = groupBy.contains(Dimension.CAMPUS) ? rs.getLong(col++) : null;
+            String gate = groupBy.contains(Dimension.GATE) ? rs.getString(col++) : null;
+            LocalDateTime hour = groupBy.contains(Dimension.HOUR) ? rs.getTimestamp(col++).toLocalDateTime() : null;
+            Status rowStatus = groupBy.contains(Dimension.STATUS) ? Status.values()[rs.getInt(col++)] : null;
+            String reason = groupBy.contains(Dimension.REASON) ? rs.getString(col++) : null;
+            long count = rs.getLong(col);
+            return new AccessStatsRow(
+                    campus != null && campus == 0 ? null : campus,
+                    gate == null || gate.isEmpty() ? null : gate,
+                    hour,
+                    rowStatus,
+                    reason == null || reason.isEmpty() ? null : reason,
+                    count);
+        }, args.toArray());
+    }
+
+    // --- HELPERS ---
+    private long maxLogId() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(id) FROM access_logs", Long.class);
+        return max != null ? max : 0L;
+    }
+
+    private void ensureWatermark() {
+        Long existing = jdbcTemplate.query("SELECT last_id FROM rollup_watermarks WHERE name = ?",
+                rs -> rs.next() ? rs.getLong(1) : null, WATERMARK);
+        if (existing != null) {
+            watermark = existing;
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO rollup_watermarks (name, last_id) VALUES (?, 0)", WATERMARK);
+        } catch (DuplicateKeyException e) {
+            // Another replica created it first
+        }
+    }
+
+    private static String nonNull(String value) {
+        return value != null ? value : "";
+    }
+}
@@ -0,0 +1,14 @@
+package com.student_smart_pay.student_management.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Cold storage for archived access logs (see AccessLogArchiver).
+// Keys are relative paths like "access-logs/2026/01/15/campus-1/1001-1840.ndjson.gz".
+public interface ArchiveStore {
+
+    // Store the whole object; a reader must never see a partial write
+    void write(String key, byte[] data) throws IOException;
+
+    InputStream open(String key) throws IOException;
+}
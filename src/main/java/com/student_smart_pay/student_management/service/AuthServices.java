@@ -10,9 +10,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Optional;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class AuthServices {
@@ -23,21 +21,14 @@ public class AuthServices {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    // --- ID GENERATOR ---
-    private String generateSmartId(Roles role) {
-        String prefix = switch (role) {
-            case STUDENT -> "STU";
-            case GUARD -> "GRD";
-            case CAMPUS_ADMIN -> "CAD"; // Added for Campus Admin
-            case SUPER_ADMIN -> "SUP";
-            case GUEST -> "GST";
-        };
-        LocalDateTime now = LocalDateTime.now();
-        String year = String.valueOf(now.getYear());
-        String timeComponent = now.format(DateTimeFormatter.ofPattern("MMddHHmmssSSS"));
-        int randomSuffix = ThreadLocalRandom.current().nextInt(10, 99);
-        return String.format("%s-%s-%s%d", prefix, year, timeComponent, randomSuffix);
-    }
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private BlindIndexService blindIndex;
+
+    @Autowired
+    private SmartIdGenerator smartIds;
 
     // --- REGISTER ---
     public Student registerUser(RegisterRequestDto studentDto) {
@@ -58,8 +49,9 @@ public class AuthServices {
         student.setFirstLogin(true);
 
         // Generate ID & Token
-        String smartId = generateSmartId(student.getRole());
+        String smartId = smartIds.next(student.getRole(), null);
         student.setNfcToken(smartId);
+        student.setNfcTokenHash(blindIndex.hash(smartId));
 
         // Validity Logic
         if (student.getRole() == Roles.STUDENT) {
@@ -71,7 +63,9 @@ public class AuthServices {
         }
 
         student.setWalletBalance(BigDecimal.ZERO);
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        credentialIndex.upsert(saved);
+        return saved;
     }
 
     // --- AUTHENTICATE ---
@@ -107,6 +101,11 @@ public class AuthServices {
         // 3. Disable the First Login Flag
         student.setFirstLogin(false);
 
-        return studentRepository.save(student);
+        // 4. Invalidate every JWT issued with the old password
+        student.setCredentialsVersion(student.getCredentialsVersion() + 1);
+
+        Student saved = studentRepository.save(student);
+        credentialIndex.upsert(saved);
+        return saved;
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.student_smart_pay.student_management.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Fills students.nfc_token_hash for rows written before the blind index existed
+// (and for DataLoader seeds). Walks the table in id order, one chunk at a time,
+// so memory stays flat and no long-lived cursor or transaction is held.
+// Runs before CredentialIndexService warms up, so the index sees every hash.
+@Service
+public class BlindIndexBackfillJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlindIndexBackfillJob.class);
+
+    @Value("${app.blind-index.backfill.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.blind-index.backfill.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BlindIndexService blindIndex;
+
+    private record PendingRow(long id, String nfcToken) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void backfillOnStartup() {
+        if (enabled) backfill();
+    }
+
+    // =========================================================================
+    // 1. BACKFILL (Idempotent: only touches rows that still have no hash)
+    // =========================================================================
+    public int backfill() {
+        long lastId = 0;
+        int updated = 0;
+        while (true) {
+            List<PendingRow> rows = jdbcTemplate.query(
+                    "SELECT id, nfc_token FROM students WHERE nfc_token_hash IS NULL AND id > ? ORDER BY id LIMIT ?",
+                    (rs, i) -> new PendingRow(rs.getLong(1), rs.getString(2)),
+                    lastId, batchSize);
+            if (rows.isEmpty()) break;
+
+            List<Object[]> args = new ArrayList<>(rows.size());
+            for (PendingRow row : rows) {
+                args.add(new Object[]{blindIndex.hash(row.nfcToken()), row.id()});
+            }
+            updated += write(args);
+            lastId = rows.get(rows.size() - 1).id();
+        }
+        if (updated > 0) logger.info("🔍 Blind index backfilled for {} cards", updated);
+        return updated;
+    }
+
+    // --- HELPERS ---
+    private static final String UPDATE_SQL = "UPDATE students SET nfc_token_hash = ? WHERE id = ? AND nfc_token_hash IS NULL";
+
+    private int write(List<Object[]> args) {
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, args);
+            return args.size();
+        } catch (DataAccessException batchFailure) {
+            // Usually two rows holding the same smart id: write one by one, skip the duplicates
+            int written = 0;
+            for (Object[] row : args) {
+                try {
+                    written += jdbcTemplate.update(UPDATE_SQL, row);
+                } catch (DataAccessException e) {
+                    logger.warn("⚠️ Blind index skipped for student #{}: {}", row[1], e.getMostSpecificCause().getMessage());
+                }
+            }
+            return written;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.student_smart_pay.student_management.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Deterministic lookup key for NFC cards ("blind index").
+// Card ciphertext uses a random IV, so it can't be searched; instead we store
+// HMAC-SHA256(smart id) next to it. The hash is taken over the DECRYPTED smart
+// id, so a re-encrypted card still finds the same row. Legacy plaintext tokens
+// are hashed under a different prefix, so typing a raw smart id never matches
+// an encrypted card.
+@Service
+public class BlindIndexService {
+
+    private static final String ID_PREFIX = "id:";
+    private static final String RAW_PREFIX = "raw:";
+
+    @Value("${app.blind-index.secret:${app.aes.secret}}")
+    private String secret;
+
+    @Autowired
+    private CryptoService cryptoService;
+
+    private SecretKey key;
+
+    @PostConstruct
+    void initKey() {
+        key = CryptoService.hmacKey(secret);
+    }
+
+    // Fixed width: 32-byte HMAC as 43 Base64url chars
+    public String hash(String nfcToken) {
+        if (nfcToken == null) return null;
+        String smartId = cryptoService.tryDecrypt(nfcToken);
+        String input = smartId != null ? ID_PREFIX + smartId : RAW_PREFIX + nfcToken;
+        byte[] mac = cryptoService.hmacSha256(key, input.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(mac);
+    }
+}
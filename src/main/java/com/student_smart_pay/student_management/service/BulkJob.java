@@ -0,0 +1,112 @@
+package com.student_smart_pay.student_management.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Progress of one long-running admin operation (bulk import, bulk actions).
+// Workers update the counters as they go; GET .../bulk/{jobId} serializes a live view
+// (or, on another replica, a copy restored from the bulk_jobs table).
+public class BulkJob {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    // Per-row problems; key is whatever identifies the row to the admin (email, student id)
+    public record RowError(int row, String key, String error) {}
+
+    private static final int MAX_ERRORS = 1000;
+
+    private final String id;
+    private final String type;
+    private final Long requesterId;
+    private final int total;
+    private final LocalDateTime createdAt;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final List<RowError> errors = new ArrayList<>();
+
+    private volatile State state = State.QUEUED;
+    private volatile String message;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    BulkJob(String type, Long requesterId, int total) {
+        this(UUID.randomUUID().toString(), type, requesterId, total, LocalDateTime.now());
+    }
+
+    private BulkJob(String id, String type, Long requesterId, int total, LocalDateTime createdAt) {
+        this.id = id;
+        this.type = type;
+        this.requesterId = requesterId;
+        this.total = total;
+        this.createdAt = createdAt;
+    }
+
+    // Read-only copy of a job another replica is running (or ran)
+    static BulkJob restore(String id, String type, Long requesterId, int total, LocalDateTime createdAt,
+                           State state, String message, LocalDateTime startedAt, LocalDateTime finishedAt,
+                           int processed, int succeeded, int failed, List<RowError> errors) {
+        BulkJob job = new BulkJob(id, type, requesterId, total, createdAt);
+        job.state = state;
+        job.message = message;
+        job.startedAt = startedAt;
+        job.finishedAt = finishedAt;
+        job.processed.set(processed);
+        job.succeeded.set(succeeded);
+        job.failed.set(failed);
+        job.errors.addAll(errors);
+        return job;
+    }
+
+    // --- WORKER SIDE ---
+    void started() {
+        startedAt = LocalDateTime.now();
+        state = State.RUNNING;
+    }
+
+    void finished(State finalState, String finalMessage) {
+        message = finalMessage;
+        finishedAt = LocalDateTime.now();
+        state = finalState;
+    }
+
+    public void success(int rows) {
+        succeeded.addAndGet(rows);
+        processed.addAndGet(rows);
+    }
+
+    public void error(int row, String key, String error) {
+        failed.incrementAndGet();
+        processed.incrementAndGet();
+        synchronized (errors) {
+            if (errors.size() < MAX_ERRORS) errors.add(new RowError(row, key, error));
+        }
+    }
+
+    // --- READ SIDE (JSON) ---
+    public String getJobId() { return id; }
+    public String getType() { return type; }
+    public State getState() { return state; }
+    public int getTotal() { return total; }
+    public int getProcessed() { return processed.get(); }
+    public int getSucceeded() { return succeeded.get(); }
+    public int getFailed() { return failed.get(); }
+    public String getMessage() { return message; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public List<RowError> getErrors() {
+        synchronized (errors) {
+            return List.copyOf(errors);
+        }
+    }
+
+    Long requesterId() {
+        return requesterId;
+    }
+}
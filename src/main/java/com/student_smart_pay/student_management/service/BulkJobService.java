@@ -0,0 +1,220 @@
+package com.student_smart_pay.student_management.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs bulk admin jobs off the request thread and keeps their progress for polling.
+// The replica running a job serves it live from memory and copies its progress into
+// bulk_jobs every sync-ms (and when it finishes), so a poll that lands on another pod
+// still finds it. Finished jobs are dropped after the retention period.
+@Service
+public class BulkJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkJobService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO bulk_jobs (job_id, type, requester_id, total, processed, succeeded, failed, state, message, errors, " +
+            "created_at, started_at, finished_at, updated_at) VALUES (?, ?, ?, ?, 0, 0, 0, ?, NULL, NULL, ?, NULL, NULL, CURRENT_TIMESTAMP)";
+    private static final String UPDATE_SQL =
+            "UPDATE bulk_jobs SET processed = ?, succeeded = ?, failed = ?, state = ?, message = ?, errors = ?, " +
+            "started_at = ?, finished_at = ?, updated_at = CURRENT_TIMESTAMP WHERE job_id = ?";
+    // stale = still open but its replica stopped syncing
+    private static final String FIND_SQL =
+            "SELECT job_id, type, requester_id, total, processed, succeeded, failed, state, message, errors, created_at, " +
+            "started_at, finished_at, CASE WHEN updated_at < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) THEN 1 ELSE 0 END AS stale " +
+            "FROM bulk_jobs WHERE job_id = ?";
+    private static final String PURGE_SQL =
+            "DELETE FROM bulk_jobs WHERE updated_at < TIMESTAMPADD(MINUTE, ?, CURRENT_TIMESTAMP)";
+
+    private static final TypeReference<List<BulkJob.RowError>> ERRORS_TYPE = new TypeReference<>() {};
+
+    @Value("${app.bulk.job-threads:2}")
+    private int jobThreads;
+
+    @Value("${app.bulk.retention-minutes:60}")
+    private long retentionMinutes;
+
+    @Value("${app.bulk.sync-ms:1000}")
+    private long syncMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Jobs started on this replica; running ones are synced to bulk_jobs on every tick
+    private final Map<String, BulkJob> jobs = new ConcurrentHashMap<>();
+    private ExecutorService runner;
+    private ScheduledExecutorService syncer;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger n = new AtomicInteger();
+        runner = Executors.newFixedThreadPool(jobThreads, r -> {
+            Thread t = new Thread(r, "bulk-job-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bulk-job-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::syncRunning, syncMs, syncMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+        syncer.shutdownNow();
+    }
+
+    // =========================================================================
+    // 1. SUBMIT (Returns at once; work runs on the job pool)
+    // =========================================================================
+    public BulkJob submit(String type, UserPrincipal requester, int total, Consumer<BulkJob> work) {
+        BulkJob job = register(type, requester, total);
+        runner.execute(() -> execute(job, work));
+        return job;
+    }
+
+    // Small runs: same job record and status endpoint, but done on the caller's thread
+    public BulkJob runNow(String type, UserPrincipal requester, int total, Consumer<BulkJob> work) {
+        BulkJob job = register(type, requester, total);
+        execute(job, work);
+        return job;
+    }
+
+    private BulkJob register(String type, UserPrincipal requester, int total) {
+        purgeFinished();
+        BulkJob job = new BulkJob(type, requester.id(), total);
+        jdbcTemplate.update(INSERT_SQL, job.getJobId(), type, requester.id(), total,
+                job.getState().name(), Timestamp.valueOf(job.getCreatedAt()));
+        jobs.put(job.getJobId(), job);
+        return job;
+    }
+
+    private void execute(BulkJob job, Consumer<BulkJob> work) {
+        job.started();
+        try {
+            work.accept(job);
+            job.finished(BulkJob.State.COMPLETED, null);
+        } catch (Exception e) {
+            logger.error("❌ Bulk job {} ({}) failed: {}", job.getJobId(), job.getType(), e.getMessage());
+            job.finished(BulkJob.State.FAILED, e.getMessage());
+        }
+        sync(job);
+    }
+
+    // =========================================================================
+    // 2. STATUS (Only whoever started the job, or a Super Admin)
+    // =========================================================================
+    public BulkJob getJob(UserPrincipal requester, String jobId) {
+        BulkJob job = jobs.get(jobId);
+        if (job == null) job = load(jobId);
+        if (job == null) throw new IllegalArgumentException("Job not found: " + jobId);
+        if (requester.role() != Roles.SUPER_ADMIN && !requester.id().equals(job.requesterId())) {
+            throw new SecurityException("Access Denied: This job belongs to another admin.");
+        }
+        return job;
+    }
+
+    private void purgeFinished() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(retentionMinutes);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+        jdbcTemplate.update(PURGE_SQL, -retentionMinutes);
+    }
+
+    // =========================================================================
+    // 3. SHARED STATUS (bulk_jobs: written by the running replica, read by any)
+    // =========================================================================
+    private void syncRunning() {
+        for (BulkJob job : jobs.values()) {
+            if (job.getFinishedAt() != null) continue; // Written once by execute()
+            try {
+                sync(job);
+            } catch (Exception e) {
+                logger.error("❌ Bulk job {} status sync failed: {}", job.getJobId(), e.getMessage());
+            }
+        }
+    }
+
+    private void sync(BulkJob job) {
+        jdbcTemplate.update(UPDATE_SQL, job.getProcessed(), job.getSucceeded(), job.getFailed(), job.getState().name(),
+                job.getMessage(), toJson(job.getErrors()), timestamp(job.getStartedAt()), timestamp(job.getFinishedAt()),
+                job.getJobId());
+    }
+
+    private BulkJob load(String jobId) {
+        // Three missed syncs (at least 30s) without finishing: the replica running it is gone
+        long staleSeconds = Math.max(30, TimeUnit.MILLISECONDS.toSeconds(syncMs * 3));
+        return jdbcTemplate.query(FIND_SQL, this::mapJob, -staleSeconds, jobId).stream().findFirst().orElse(null);
+    }
+
+    private BulkJob mapJob(ResultSet rs, int n) throws SQLException {
+        BulkJob.State state = BulkJob.State.valueOf(rs.getString("state"));
+        String message = rs.getString("message");
+        boolean open = state == BulkJob.State.QUEUED || state == BulkJob.State.RUNNING;
+        if (open && rs.getInt("stale") == 1) {
+            state = BulkJob.State.FAILED;
+            message = "The server running this job stopped before it finished; rows counted as succeeded were saved.";
+        }
+        return BulkJob.restore(rs.getString("job_id"), rs.getString("type"), rs.getLong("requester_id"), rs.getInt("total"),
+                localDateTime(rs.getTimestamp("created_at")), state, message,
+                localDateTime(rs.getTimestamp("started_at")), localDateTime(rs.getTimestamp("finished_at")),
+                rs.getInt("processed"), rs.getInt("succeeded"), rs.getInt("failed"), fromJson(rs.getString("errors")));
+    }
+
+    private String toJson(List<BulkJob.RowError> errors) {
+        if (errors.isEmpty()) return null;
+        try {
+            return objectMapper.writeValueAsString(errors);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize job errors", e);
+        }
+    }
+
+    private List<BulkJob.RowError> fromJson(String json) {
+        if (json == null) return List.of();
+        try {
+            return objectMapper.readValue(json, ERRORS_TYPE);
+        } catch (JsonProcessingException e) {
+            logger.warn("⚠️ Unreadable bulk job errors: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static Timestamp timestamp(LocalDateTime value) {
+        return value != null ? Timestamp.valueOf(value) : null;
+    }
+
+    private static LocalDateTime localDateTime(Timestamp value) {
+        return value != null ? value.toLocalDateTime() : null;
+    }
+}
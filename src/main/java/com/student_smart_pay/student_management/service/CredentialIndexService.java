@@ -0,0 +1,290 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Every replica keeps its own copy. Local writes apply after commit; writes made by
+// other replicas arrive through credential_changes (polled every poll-ms), and a full
+// resync every resync-ms bounds how long any entry can stay stale.
+@Service
+public class CredentialIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CredentialIndexService.class);
+
+    // Campus key used for users without a campus (Super Admin)
+    private static final Long NO_CAMPUS = -1L;
+
+    // Ids can commit out of order, so rows younger than the grace period are re-read every poll
+    private static final String RECORD_SQL =
+            "INSERT INTO credential_changes (student_id, changed_at) VALUES (?, CURRENT_TIMESTAMP)";
+    private static final String POLL_SQL =
+            "SELECT id, student_id FROM credential_changes " +
+            "WHERE id > ? OR changed_at >= TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) ORDER BY id";
+    private static final String PRUNE_SQL =
+            "DELETE FROM credential_changes WHERE changed_at < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP)";
+    private static final int RELOAD_CHUNK = 500;
+
+    @Value("${app.credentials.index.poll-ms:2000}")
+    private long pollMs;
+
+    @Value("${app.credentials.index.grace-seconds:30}")
+    private long graceSeconds;
+
+    @Value("${app.credentials.index.resync-ms:600000}")
+    private long resyncMs;
+
+    @Value("${app.credentials.index.change-retention-hours:24}")
+    private long changeRetentionHours;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ScheduledExecutorService syncer;
+    private volatile long changeWatermark;
+    private Set<Long> recentChanges = Set.of(); // Change ids inside the grace window already applied (syncer thread only)
+
+    private final Map<String, GateCredential> byTokenHash = new ConcurrentHashMap<>();
+    private final Map<Long, GateCredential> byId = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> idsByCampus = new ConcurrentHashMap<>();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Notified after every change; current is null when the card was removed
+    public interface ChangeListener {
+        void onChange(GateCredential previous, GateCredential current);
+    }
+
+    // =========================================================================
+    // 1. WARM-UP (Runs after DataLoader has seeded the DB)
+    // =========================================================================
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAll() {
+        // Read the feed position first, so writes racing the load are replayed by the first poll
+        changeWatermark = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM credential_changes", Long.class);
+        List<GateCredential> all = studentRepository.findAllGateCredentials();
+        all.forEach(this::put);
+        logger.info("🔑 Credential index loaded: {} cards", all.size());
+
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "credential-index-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        syncer.scheduleWithFixedDelay(this::pollTick, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        syncer.scheduleWithFixedDelay(this::resyncTick, resyncMs, resyncMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (syncer != null) syncer.shutdownNow();
+    }
+
+    // =========================================================================
+    // 2. LOOKUPS (Used by GateService before falling back to the DB)
+    // =========================================================================
+    // Keyed by the blind index, so any ciphertext of the same smart id matches
+    public Optional<GateCredential> findByNfcTokenHash(String tokenHash) {
+        return Optional.ofNullable(byTokenHash.get(tokenHash));
+    }
+
+    public Optional<GateCredential> findById(Long id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public List<GateCredential> findByCampus(Long campusId) {
+        Set<Long> ids = idsByCampus.get(campusId != null ? campusId : NO_CAMPUS);
+        if (ids == null) return List.of();
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    // =========================================================================
+    // 3. SYNC (Called by StudentService / AuthServices / bulk jobs after every write)
+    // =========================================================================
+    // Inside a transaction we wait for the commit, so a rollback never leaves
+    // a card in the index that doesn't exist in the DB. The change row joins the
+    // same transaction, so other replicas see it exactly when the write lands.
+    public GateCredential upsert(Student student) {
+        GateCredential credential = GateCredential.from(student);
+        recordChanges(List.of(credential.id()));
+        afterCommit(() -> put(credential));
+        return credential;
+    }
+
+    public void evict(Long studentId) {
+        recordChanges(List.of(studentId));
+        afterCommit(() -> remove(studentId));
+    }
+
+    // Set-based writes (bulk actions) re-read the affected rows as projections instead
+    public void refresh(List<GateCredential> credentials) {
+        recordChanges(credentials.stream().map(GateCredential::id).toList());
+        afterCommit(() -> credentials.forEach(this::put));
+    }
+
+    // Read-through fill after a cache miss (GateService): nothing changed, so nothing to broadcast
+    public GateCredential cache(Student student) {
+        GateCredential credential = GateCredential.from(student);
+        put(credential);
+        return credential;
+    }
+
+    // =========================================================================
+    // 4. CROSS-REPLICA SYNC (Background: change feed + periodic full resync)
+    // =========================================================================
+    // Returns how many cards were reloaded
+    public int pollChanges() {
+        Set<Long> window = new HashSet<>();
+        Set<Long> studentIds = new LinkedHashSet<>();
+        long[] maxId = {changeWatermark};
+        jdbcTemplate.query(POLL_SQL, rs -> {
+            long changeId = rs.getLong(1);
+            window.add(changeId);
+            if (changeId > maxId[0]) maxId[0] = changeId;
+            if (changeId > changeWatermark || !recentChanges.contains(changeId)) studentIds.add(rs.getLong(2));
+        }, changeWatermark, -graceSeconds);
+
+        reload(studentIds);
+        recentChanges = window;
+        changeWatermark = maxId[0];
+        if (!studentIds.isEmpty()) logger.debug("🔄 Credential index reloaded {} cards from the change feed", studentIds.size());
+        return studentIds.size();
+    }
+
+    // Safety net for anything the feed missed (pruned rows, writes outside the services)
+    public void resync() {
+        List<GateCredential> all = studentRepository.findAllGateCredentials();
+        all.forEach(this::put);
+        Set<Long> present = all.stream().map(GateCredential::id).collect(Collectors.toSet());
+        List<Long> missing = byId.keySet().stream().filter(id -> !present.contains(id)).toList();
+        reload(missing); // Confirm against the DB: a card created after the scan must not be dropped
+        jdbcTemplate.update(PRUNE_SQL, -changeRetentionHours * 3600);
+    }
+
+    private void pollTick() {
+        try {
+            pollChanges();
+        } catch (Exception e) {
+            logger.error("❌ Credential change poll failed: {}", e.getMessage());
+        }
+    }
+
+    private void resyncTick() {
+        try {
+            resync();
+        } catch (Exception e) {
+            logger.error("❌ Credential index resync failed: {}", e.getMessage());
+        }
+    }
+
+    // --- INTERNALS ---
+    private void recordChanges(List<Long> studentIds) {
+        if (studentIds.isEmpty()) return;
+        jdbcTemplate.batchUpdate(RECORD_SQL, studentIds.stream().map(id -> new Object[]{id}).toList());
+    }
+
+    // Re-read from the DB; ids that no longer exist are removed
+    private void reload(Iterable<Long> studentIds) {
+        List<Long> chunk = new ArrayList<>(RELOAD_CHUNK);
+        for (Long id : studentIds) {
+            chunk.add(id);
+            if (chunk.size() == RELOAD_CHUNK) {
+                reloadChunk(chunk);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) reloadChunk(chunk);
+    }
+
+    private void reloadChunk(List<Long> ids) {
+        Set<Long> gone = new HashSet<>(ids);
+        for (GateCredential credential : studentRepository.findGateCredentialsByIdIn(ids)) {
+            gone.remove(credential.id());
+            put(credential);
+        }
+        gone.forEach(this::remove);
+    }
+
+    // Writers (request threads after commit, the sync thread) are serialized so the three maps agree
+    private synchronized void put(GateCredential credential) {
+        GateCredential previous = byId.get(credential.id());
+        if (credential.equals(previous)) return; // Re-applied by the feed or a resync: no news for listeners
+        byId.put(credential.id(), credential);
+        if (previous != null) {
+            if (previous.nfcTokenHash() != null && !previous.nfcTokenHash().equals(credential.nfcTokenHash())) {
+                byTokenHash.remove(previous.nfcTokenHash(), previous);
+            }
+            if (!Objects.equals(previous.campusId(), credential.campusId())) {
+                campusIds(previous.campusId()).remove(previous.id());
+            }
+        }
+        if (credential.nfcTokenHash() != null) {
+            byTokenHash.put(credential.nfcTokenHash(), credential);
+        }
+        campusIds(credential.campusId()).add(credential.id());
+        listeners.forEach(l -> l.onChange(previous, credential));
+    }
+
+    private synchronized void remove(Long studentId) {
+        GateCredential previous = byId.remove(studentId);
+        if (previous == null) return;
+        if (previous.nfcTokenHash() != null) {
+            byTokenHash.remove(previous.nfcTokenHash(), previous);
+        }
+        campusIds(previous.campusId()).remove(studentId);
+        listeners.forEach(l -> l.onChange(previous, null));
+    }
+
+    private Set<Long> campusIds(Long campusId) {
+        return idsByCampus.computeIfAbsent(campusId != null ? campusId : NO_CAMPUS, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package com.student_smart_pay.student_management.service;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 
 @Service
 public class CryptoService {
@@ -18,59 +24,188 @@ public class CryptoService {
     private String secretKey; // Must be 32 characters for AES-256
 
     private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
     private static final int IV_LENGTH = 12; // Standard for GCM
     private static final int TAG_LENGTH = 128;
+    // IV + tag with an empty plaintext, Base64url without padding
+    private static final int MIN_TOKEN_CHARS = ((IV_LENGTH + TAG_LENGTH / 8) * 4 + 2) / 3;
+
+    // ♻️ ENGINES: Built once, reused. SecureRandom is thread-safe; Cipher and Mac
+    // are not, so each request thread keeps its own instance.
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(CryptoService::newCipher);
+    private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(CryptoService::newMac);
+
+    private SecretKey aesKey;
+
+    @PostConstruct
+    void initKey() {
+        aesKey = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
+    }
+
+    // =========================================================================
+    // 1. STRING API (Tokens stored in DB / written to cards)
+    // =========================================================================
 
     // 🔒 ROBUST ENCRYPT
     public String encrypt(String value) {
+        byte[] combined = encryptBytes(value.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(combined);
+    }
+
+    // 🔓 ROBUST DECRYPT
+    public String decrypt(String encryptedValue) {
         try {
-            // 1. Generate a random IV (Initialization Vector)
-            byte[] iv = new byte[IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
+            byte[] decoded = Base64.getUrlDecoder().decode(encryptedValue);
+            return new String(decryptBytes(decoded), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Decryption Failed (Invalid Token)", e);
+        }
+    }
 
-            // 2. Prepare Key & Cipher
-            SecretKey key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(TAG_LENGTH, iv);
-            cipher.init(Cipher.ENCRYPT_MODE, key, spec);
+    // 🔍 LENIENT DECRYPT (Scanned tokens: QR codes, garbage, legacy plaintext)
+    // Returns null instead of throwing. Anything encrypt() could not have produced is
+    // turned away by the shape check before the cipher runs; only a well-formed token
+    // under the wrong key (or tampered) reaches the tag check.
+    public String tryDecrypt(String value) {
+        if (value == null || !isTokenShaped(value)) return null;
+        byte[] plain = tryDecryptBytes(Base64.getUrlDecoder().decode(value)); // Can't throw once shaped
+        return plain != null ? new String(plain, StandardCharsets.UTF_8) : null;
+    }
 
-            // 3. Encrypt
-            byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+    // 📦 BATCH (Bulk card issuance: one engine, no per-item setup)
+    public List<String> encryptAll(List<String> values) {
+        List<String> out = new ArrayList<>(values.size());
+        for (String value : values) out.add(encrypt(value));
+        return out;
+    }
 
-            // 4. Combine IV + CipherText (We need the IV to decrypt later!)
-            byte[] combined = new byte[iv.length + encrypted.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
+    public List<String> decryptAll(List<String> encryptedValues) {
+        List<String> out = new ArrayList<>(encryptedValues.size());
+        for (String value : encryptedValues) out.add(decrypt(value));
+        return out;
+    }
+
+    // =========================================================================
+    // 2. BYTE API (Layout: IV (12 bytes) + CipherText + GCM Tag)
+    // =========================================================================
+    public byte[] encryptBytes(byte[] plain) {
+        try {
+            // 1. Random IV at the front of the output buffer
+            byte[] combined = new byte[IV_LENGTH + plain.length + TAG_LENGTH / 8];
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            System.arraycopy(iv, 0, combined, 0, IV_LENGTH);
 
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(combined);
-        } catch (Exception e) {
+            // 2. Encrypt after the IV
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, aesKey, new GCMParameterSpec(TAG_LENGTH, iv));
+            int written = cipher.doFinal(plain, 0, plain.length, combined, IV_LENGTH);
+            if (written != combined.length - IV_LENGTH) {
+                throw new IllegalStateException("Unexpected GCM output size");
+            }
+            return combined;
+        } catch (GeneralSecurityException | IllegalStateException e) {
             throw new RuntimeException("Encryption Failed", e);
         }
     }
 
-    // 🔓 ROBUST DECRYPT
-    public String decrypt(String encryptedValue) {
+    public byte[] decryptBytes(byte[] combined) {
         try {
-            // 1. Decode Base64
-            byte[] decoded = Base64.getUrlDecoder().decode(encryptedValue);
+            if (combined.length <= IV_LENGTH) throw new IllegalArgumentException("Too short");
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, aesKey, new GCMParameterSpec(TAG_LENGTH, combined, 0, IV_LENGTH));
+            return cipher.doFinal(combined, IV_LENGTH, combined.length - IV_LENGTH);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new RuntimeException("Decryption Failed (Invalid Token)", e);
+        }
+    }
 
-            // 2. Extract IV (First 12 bytes)
-            byte[] iv = new byte[IV_LENGTH];
-            System.arraycopy(decoded, 0, iv, 0, iv.length);
+    // Null when the GCM tag doesn't match. The JCE only reports that by throwing, so the one
+    // AEADBadTagException is caught right here instead of being wrapped and rethrown.
+    private byte[] tryDecryptBytes(byte[] combined) {
+        try {
+            Cipher cipher = CIPHER.get();
+            cipher.init(Cipher.DECRYPT_MODE, aesKey, new GCMParameterSpec(TAG_LENGTH, combined, 0, IV_LENGTH));
+            return cipher.doFinal(combined, IV_LENGTH, combined.length - IV_LENGTH);
+        } catch (AEADBadTagException e) {
+            return null;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Decryption Failed", e);
+        }
+    }
 
-            // 3. Extract CipherText (The rest)
-            byte[] ciphertext = new byte[decoded.length - IV_LENGTH];
-            System.arraycopy(decoded, IV_LENGTH, ciphertext, 0, ciphertext.length);
+    // =========================================================================
+    // 3. HMAC (Dynamic QR signatures)
+    // =========================================================================
+    public static SecretKey hmacKey(String secret) {
+        return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
 
-            // 4. Decrypt
-            SecretKey key = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "AES");
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            GCMParameterSpec spec = new GCMParameterSpec(TAG_LENGTH, iv);
-            cipher.init(Cipher.DECRYPT_MODE, key, spec);
+    public byte[] hmacSha256(SecretKey key, byte[] data) {
+        return hmacSha256(key, data, 0, data.length);
+    }
 
-            return new String(cipher.doFinal(ciphertext), StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Decryption Failed (Invalid Token)", e);
+    public byte[] hmacSha256(SecretKey key, byte[] data, int offset, int length) {
+        try {
+            Mac mac = MAC.get();
+            mac.init(key);
+            mac.update(data, offset, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("HMAC Error", e);
+        }
+    }
+
+    // Allocation-free variant: writes the 32-byte MAC into out (QR verification)
+    public void hmacSha256(SecretKey key, byte[] data, int offset, int length, byte[] out) {
+        try {
+            Mac mac = MAC.get();
+            mac.init(key);
+            mac.update(data, offset, length);
+            mac.doFinal(out, 0);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("HMAC Error", e);
+        }
+    }
+
+    // --- HELPERS ---
+    // Unpadded Base64url exactly as encrypt() writes it: long enough for IV + tag, a length
+    // that decodes to whole bytes, and zero bits left over in the last char
+    private static boolean isTokenShaped(String value) {
+        int length = value.length();
+        if (length < MIN_TOKEN_CHARS || length % 4 == 1) return false;
+        int last = 0;
+        for (int i = 0; i < length; i++) {
+            last = base64UrlValue(value.charAt(i));
+            if (last < 0) return false;
+        }
+        int unusedBits = length % 4 == 2 ? 4 : length % 4 == 3 ? 2 : 0;
+        return (last & ((1 << unusedBits) - 1)) == 0;
+    }
+
+    private static int base64UrlValue(char c) {
+        if (c >= 'A' && c <= 'Z') return c - 'A';
+        if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+        if (c >= '0' && c <= '9') return c - '0' + 52;
+        if (c == '-') return 62;
+        if (c == '_') return 63;
+        return -1;
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Crypto provider missing: " + ALGORITHM, e);
+        }
+    }
+
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Crypto provider missing: " + HMAC_ALGORITHM, e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.GateEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Live gate events for admin dashboards (SSE), fed by GateEventFeed with every
+// replica's scans. The feed thread only offers the event to each subscriber's
+// bounded buffer and schedules a drain; the socket writes happen on the "gate-stream" threads.
+// A subscriber whose buffer is full is too slow to keep up and gets dropped.
+@Service
+public class GateEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(GateEventBroadcaster.class);
+
+    @Value("${app.gate.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${app.gate.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.gate.stream.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    @Value("${app.gate.stream.sender-threads:2}")
+    private int senderThreads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService senders;
+    private Counter droppedCounter;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadNo = new AtomicInteger();
+        senders = Executors.newScheduledThreadPool(senderThreads, r -> {
+            Thread t = new Thread(r, "gate-stream-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        senders.scheduleAtFixedRate(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        meterRegistry.gauge("gate.stream.subscribers", subscribers, List::size);
+        droppedCounter = meterRegistry.counter("gate.stream.dropped");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+    }
+
+    // =========================================================================
+    // 1. SUBSCRIBE (campusId null = every campus)
+    // =========================================================================
+    public SseEmitter subscribe(Long campusId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, campusId, bufferSize);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    // =========================================================================
+    // 2. PUBLISH (Called by the feed poller: never blocks)
+    // =========================================================================
+    public void publish(GateEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.campusId != null && !subscriber.campusId.equals(event.campusId())) continue;
+            if (!subscriber.buffer.offer(event)) {
+                drop(subscriber, "buffer full");
+                continue;
+            }
+            if (subscriber.draining.compareAndSet(false, true)) {
+                senders.execute(() -> drain(subscriber));
+            }
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // --- SENDER SIDE ---
+    private void drain(Subscriber subscriber) {
+        try {
+            GateEvent event;
+            while ((event = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(SseEmitter.event().name("gate").data(event));
+            }
+        } catch (Exception e) {
+            drop(subscriber, "send failed");
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // An event may have landed between the last poll and the flag reset
+        if (!subscriber.buffer.isEmpty() && subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Keeps proxies from closing idle streams and finds dead clients
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.draining.get()) continue; // Already sending
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("ping"));
+            } catch (Exception e) {
+                drop(subscriber, "heartbeat failed");
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, String reason) {
+        if (!subscribers.remove(subscriber)) return;
+        droppedCounter.increment();
+        logger.info("📴 Dropped gate stream subscriber (campus #{}): {}", subscriber.campusId, reason);
+        try {
+            subscriber.emitter.complete();
+        } catch (Exception ignored) {
+            // Connection already gone
+        }
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private final Long campusId;
+        private final ArrayBlockingQueue<GateEvent> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Long campusId, int bufferSize) {
+            this.emitter = emitter;
+            this.campusId = campusId;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+}
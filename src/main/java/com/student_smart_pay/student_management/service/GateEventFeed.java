@@ -0,0 +1,242 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.GateEvent;
+import com.student_smart_pay.student_management.dto.Status;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Every replica's view of every scan, for the live dashboards and the anomaly detector.
+// Scans are answered by whichever pod the gate reached, but all of them land in
+// access_logs (AccessLogWriter), so each replica tails that table by id and hands
+// the new rows to its own SSE subscribers and ScanAnomalyDetector: a dashboard sees
+// the whole fleet no matter which pod it is connected to, and a card cloned across
+// two pods is still caught. Events trail the scan by one log flush plus one poll.
+// Throttle releases are fanned out the same way through gate_throttle_releases.
+// Ids commit out of order (replicas write batches concurrently), so ids skipped
+// over are remembered and fetched once they land, for at most grace-ms.
+@Service
+public class GateEventFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(GateEventFeed.class);
+
+    private static final String COLUMNS =
+            "SELECT id, student_id, snapshot_name, nfc_token, campus_id, gate_id, timestamp, status, denial_reason FROM access_logs ";
+    private static final String TAIL_SQL = COLUMNS + "WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String LATE_SQL = COLUMNS + "WHERE id IN (:ids)";
+    private static final int MAX_MISSING = 10_000;
+    private static final int LATE_CHUNK = 500;
+
+    // Release ids can commit out of order too, so rows younger than the grace period are re-read every poll
+    private static final String RELEASE_SQL =
+            "INSERT INTO gate_throttle_releases (campus_id, gate_id, released_at) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    private static final String RELEASE_POLL_SQL =
+            "SELECT id, campus_id, gate_id FROM gate_throttle_releases " +
+            "WHERE id > ? OR released_at >= TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) ORDER BY id";
+    private static final String RELEASE_PRUNE_SQL =
+            "DELETE FROM gate_throttle_releases WHERE released_at < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP)";
+    private static final long RELEASE_PRUNE_MS = 3_600_000;
+
+    @Value("${app.gate.feed.poll-ms:500}")
+    private long pollMs;
+
+    @Value("${app.gate.feed.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.gate.feed.grace-ms:30000}")
+    private long graceMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbc;
+
+    @Autowired
+    private GateEventBroadcaster gateEvents;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private ScanAnomalyDetector anomalyDetector;
+
+    @Autowired
+    private BlindIndexService blindIndex;
+
+    private ScheduledExecutorService poller;
+
+    // Highest id delivered, and ids below it not seen yet -> when first missed (poller thread only)
+    private long maxSeen;
+    private final TreeMap<Long, Long> missing = new TreeMap<>();
+
+    // Release feed position, and release ids inside the grace window already applied (poller thread only)
+    private long releaseWatermark;
+    private Set<Long> recentReleases = Set.of();
+
+    // One access_logs row; campusId is the scanning guard's campus
+    private record ScanRow(long id, Long studentId, String name, String token, Long campusId, String gateId,
+                           LocalDateTime time, Status status, String reason) {}
+
+    private static final RowMapper<ScanRow> ROW_MAPPER = (rs, i) -> {
+        Timestamp time = rs.getTimestamp(7);
+        int status = rs.getInt(8);
+        boolean noStatus = rs.wasNull();
+        return new ScanRow(
+                rs.getLong(1),
+                rs.getObject(2, Long.class),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getObject(5, Long.class),
+                rs.getString(6),
+                time != null ? time.toLocalDateTime() : null,
+                noStatus ? null : Status.values()[status],
+                rs.getString(9));
+    };
+
+    // =========================================================================
+    // 1. START (At the current end of the log: dashboards only get new scans)
+    // =========================================================================
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        maxSeen = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM access_logs", Long.class);
+        releaseWatermark = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM gate_throttle_releases", Long.class);
+
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gate-event-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollTick, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(this::pruneTick, RELEASE_PRUNE_MS, RELEASE_PRUNE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (poller != null) poller.shutdownNow();
+    }
+
+    // =========================================================================
+    // 2. POLL (New rows past maxSeen, then any skipped ids that have landed since)
+    // =========================================================================
+    // Returns how many scan rows were delivered
+    public synchronized int poll() {
+        pollReleases();
+        long now = System.currentTimeMillis();
+        int delivered = 0;
+
+        List<ScanRow> rows = jdbcTemplate.query(TAIL_SQL, ROW_MAPPER, maxSeen, batchSize);
+        for (ScanRow row : rows) {
+            for (long id = maxSeen + 1; id < row.id() && missing.size() < MAX_MISSING; id++) {
+                missing.put(id, now);
+            }
+            maxSeen = row.id();
+            deliver(row);
+            delivered++;
+        }
+
+        if (!missing.isEmpty()) {
+            missing.values().removeIf(since -> now - since >= graceMs); // Rolled back or dead-lettered
+            List<Long> ids = new ArrayList<>(missing.keySet());
+            for (int i = 0; i < ids.size(); i += LATE_CHUNK) {
+                List<ScanRow> late = namedJdbc.query(LATE_SQL,
+                        Map.of("ids", ids.subList(i, Math.min(i + LATE_CHUNK, ids.size()))), ROW_MAPPER);
+                for (ScanRow row : late) {
+                    missing.remove(row.id());
+                    deliver(row);
+                    delivered++;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    // =========================================================================
+    // 3. THROTTLE RELEASE (Admin override, applied here now and on every other replica next poll)
+    // =========================================================================
+    // campusId null (Super Admin) lifts the gate id on every campus. False if this replica had no matching throttle.
+    public boolean releaseThrottle(String gateId, Long campusId) {
+        jdbcTemplate.update(RELEASE_SQL, campusId, gateId);
+        return anomalyDetector.releaseThrottle(gateId, campusId);
+    }
+
+    private void pollReleases() {
+        Set<Long> window = new HashSet<>();
+        long[] maxId = {releaseWatermark};
+        jdbcTemplate.query(RELEASE_POLL_SQL, rs -> {
+            long id = rs.getLong(1);
+            window.add(id);
+            if (id > maxId[0]) maxId[0] = id;
+            if (id > releaseWatermark || !recentReleases.contains(id)) {
+                anomalyDetector.releaseThrottle(rs.getString(3), rs.getObject(2, Long.class));
+            }
+        }, releaseWatermark, -graceMs / 1000);
+        recentReleases = window;
+        releaseWatermark = maxId[0];
+    }
+
+    private void pollTick() {
+        try {
+            poll();
+        } catch (Exception e) {
+            logger.error("❌ Gate event feed poll failed: {}", e.getMessage());
+        }
+    }
+
+    private void pruneTick() {
+        try {
+            jdbcTemplate.update(RELEASE_PRUNE_SQL, -RELEASE_PRUNE_MS / 1000);
+        } catch (Exception e) {
+            logger.error("❌ Throttle release prune failed: {}", e.getMessage());
+        }
+    }
+
+    // --- DELIVERY ---
+    // Throttled scans never reached a lookup, so they are neither observed nor streamed
+    private void deliver(ScanRow row) {
+        if ("GATE_THROTTLED".equals(row.reason())) return;
+        GateCredential student = row.studentId() != null ? credentialIndex.findById(row.studentId()).orElse(null) : null;
+        anomalyDetector.observe(row.gateId(), row.campusId(), tokenKey(row), student, row.status(), row.reason(), row.time());
+
+        if (gateEvents.subscriberCount() == 0) return;
+        // Dashboards filter on the student's campus, like history
+        gateEvents.publish(new GateEvent(
+                row.studentId(),
+                row.name() != null ? row.name() : "Unknown",
+                row.token(),
+                row.status(),
+                row.reason(),
+                row.time(),
+                row.gateId(),
+                student != null ? student.campusId() : null
+        ));
+    }
+
+    // Same key the gate looked the card up by; dynamic QR codes are logged masked, so those count per student
+    private String tokenKey(ScanRow row) {
+        if (row.token() == null) return null;
+        if ("DYNAMIC-QR".equals(row.token())) return row.studentId() != null ? "qr:" + row.studentId() : null;
+        return blindIndex.hash(row.token());
+    }
+}
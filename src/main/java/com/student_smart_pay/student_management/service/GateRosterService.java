@@ -0,0 +1,228 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.GateCredential;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Offline roster for guard devices.
+// Built from CredentialIndexService change events (never a table scan), so each
+// campus keeps its current entries plus a short journal of which students
+// changed at which version. Devices send their last version and get a delta.
+// Versions only mean something to the replica that issued them: the high 32 bits are
+// a random epoch picked at startup, and a "since" from another epoch (another pod
+// behind the Service, or this pod before a restart) always gets a full snapshot.
+//
+// Binary layout (big-endian):
+//   "GRS1" | type (0=FULL, 1=DELTA) | campusId (long) | sinceVersion (long) | version (long) | count (int)
+//   then per entry: op (1=UPSERT, 2=REMOVE) | studentId (long)
+//   and for UPSERT: sha256(nfcToken) (32 bytes) | active (byte) | validUntil epoch seconds (long) | role ordinal (byte)
+@Service
+public class GateRosterService {
+
+    private static final byte[] MAGIC = "GRS1".getBytes(StandardCharsets.US_ASCII);
+    private static final byte TYPE_FULL = 0;
+    private static final byte TYPE_DELTA = 1;
+    private static final byte OP_UPSERT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    @Value("${app.gate.roster.journal-size:8192}")
+    private int journalSize;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    // Version = epoch << 32 | per-campus change count
+    private final long baseVersion = (long) (new SecureRandom().nextInt(Integer.MAX_VALUE) + 1) << 32;
+    private final Map<Long, CampusRoster> rosters = new ConcurrentHashMap<>();
+
+    public record RosterExport(long campusId, long version, boolean delta, byte[] body) {
+        public String etag() {
+            return GateRosterService.etag(campusId, version);
+        }
+    }
+
+    private record RosterEntry(long studentId, byte[] tokenHash, boolean active, long validUntil, byte role) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RosterEntry e && studentId == e.studentId && active == e.active
+                    && validUntil == e.validUntil && role == e.role && Arrays.equals(tokenHash, e.tokenHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(studentId);
+        }
+    }
+
+    @PostConstruct
+    void subscribe() {
+        credentialIndex.addListener(this::onChange);
+    }
+
+    // =========================================================================
+    // 1. EXPORT (Full snapshot, or delta since the device's version)
+    // =========================================================================
+    public RosterExport export(Long campusId, Long sinceVersion) {
+        return roster(campusId).export(sinceVersion);
+    }
+
+    public String currentEtag(Long campusId) {
+        return etag(campusId, roster(campusId).currentVersion());
+    }
+
+    private static String etag(long campusId, long version) {
+        return "\"r" + campusId + "-" + version + "\"";
+    }
+
+    // =========================================================================
+    // 2. CHANGE FEED (From the credential index)
+    // =========================================================================
+    private void onChange(GateCredential previous, GateCredential current) {
+        // Moved campus (or deleted): tombstone in the old roster
+        if (previous != null && previous.campusId() != null
+                && (current == null || !Objects.equals(previous.campusId(), current.campusId()))) {
+            roster(previous.campusId()).remove(previous.id());
+        }
+        if (current != null && current.campusId() != null) {
+            roster(current.campusId()).put(toEntry(current));
+        }
+    }
+
+    private CampusRoster roster(Long campusId) {
+        return rosters.computeIfAbsent(campusId, id -> new CampusRoster(id, baseVersion, journalSize));
+    }
+
+    private static RosterEntry toEntry(GateCredential c) {
+        long validUntil = c.validUntil() != null ? c.validUntil().atZone(ZoneId.systemDefault()).toEpochSecond() : 0L;
+        byte role = (byte) (c.role() != null ? c.role().ordinal() : -1);
+        return new RosterEntry(c.id(), sha256(c.nfcToken()), c.active(), validUntil, role);
+    }
+
+    private static byte[] sha256(String token) {
+        if (token == null) return new byte[32];
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 missing", e);
+        }
+    }
+
+    // --- PER-CAMPUS STATE ---
+    // Writes are rare (admin edits), so a monitor per campus is enough.
+    private static final class CampusRoster {
+        private final long campusId;
+        private final Map<Long, RosterEntry> entries = new HashMap<>();
+
+        // Ring buffer journal: changedIds[i] changed at changedAt[i]
+        private final long[] changedAt;
+        private final long[] changedIds;
+        private int journalStart;
+        private int journalCount;
+        private long journalFloor; // Oldest version a delta can start from
+        private long version;
+
+        private byte[] fullCache; // Serialized full snapshot for the current version
+
+        CampusRoster(long campusId, long baseVersion, int journalSize) {
+            this.campusId = campusId;
+            this.version = baseVersion;
+            this.journalFloor = baseVersion;
+            this.changedAt = new long[journalSize];
+            this.changedIds = new long[journalSize];
+        }
+
+        synchronized long currentVersion() {
+            return version;
+        }
+
+        synchronized void put(RosterEntry entry) {
+            if (entry.equals(entries.get(entry.studentId()))) return; // No-op refresh
+            entries.put(entry.studentId(), entry);
+            record(entry.studentId());
+        }
+
+        synchronized void remove(long studentId) {
+            if (entries.remove(studentId) == null) return;
+            record(studentId);
+        }
+
+        private void record(long studentId) {
+            version++;
+            fullCache = null;
+            if (journalCount == changedAt.length) {
+                // Oldest change falls off: deltas from before it need a full snapshot
+                journalFloor = changedAt[journalStart];
+                journalStart = (journalStart + 1) % changedAt.length;
+                journalCount--;
+            }
+            int slot = (journalStart + journalCount) % changedAt.length;
+            changedAt[slot] = version;
+            changedIds[slot] = studentId;
+            journalCount++;
+        }
+
+        synchronized RosterExport export(Long since) {
+            // Same epoch (journalFloor carries it), still in the journal, not from the future
+            boolean canDelta = since != null && (since >>> 32) == (journalFloor >>> 32)
+                    && since >= journalFloor && since <= version;
+            if (!canDelta) {
+                if (fullCache == null) fullCache = write(TYPE_FULL, 0L, entries.keySet());
+                return new RosterExport(campusId, version, false, fullCache);
+            }
+            Set<Long> changed = new LinkedHashSet<>();
+            for (int i = 0; i < journalCount; i++) {
+                int slot = (journalStart + i) % changedAt.length;
+                if (changedAt[slot] > since) changed.add(changedIds[slot]);
+            }
+            return new RosterExport(campusId, version, true, write(TYPE_DELTA, since, changed));
+        }
+
+        private byte[] write(byte type, long since, Set<Long> studentIds) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + studentIds.size() * 59);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.write(MAGIC);
+                out.writeByte(type);
+                out.writeLong(campusId);
+                out.writeLong(since);
+                out.writeLong(version);
+                out.writeInt(studentIds.size());
+                for (Long id : studentIds) {
+                    RosterEntry e = entries.get(id);
+                    if (e == null) {
+                        out.writeByte(OP_REMOVE);
+                        out.writeLong(id);
+                        continue;
+                    }
+                    out.writeByte(OP_UPSERT);
+                    out.writeLong(id);
+                    out.write(e.tokenHash());
+                    out.writeByte(e.active() ? 1 : 0);
+                    out.writeLong(e.validUntil());
+                    out.writeByte(e.role());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
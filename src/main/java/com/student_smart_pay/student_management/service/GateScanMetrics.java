@@ -0,0 +1,107 @@
+package com.student_smart_pay.student_management.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Per-stage latency of GateService.verifyEntry.
+// Timers: gate.verify{outcome,scan} and gate.verify.stage{stage,outcome,scan}, with p50/p95/p99.
+// The last RECENT_SIZE scans are kept (lock-free ring) for the "slowest scans" admin view.
+@Service
+public class GateScanMetrics {
+
+    private static final int RECENT_SIZE = 1024;
+
+    public enum Stage { TOKEN_LOOKUP, QR_LOOKUP, HMAC, CAMPUS_CHECK, LOG_WRITE }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<SlowScan> recent = new AtomicReferenceArray<>(RECENT_SIZE);
+    private final AtomicLong cursor = new AtomicLong();
+
+    public record SlowScan(LocalDateTime time, String gateId, Long campusId, String scanType, String outcome,
+                           double totalMs, Map<Stage, Double> stagesMs) {}
+
+    // =========================================================================
+    // 1. TRACE (One per scan, lives on the request thread)
+    // =========================================================================
+    public ScanTrace start() {
+        return new ScanTrace();
+    }
+
+    public static final class ScanTrace {
+        private final long startNanos = System.nanoTime();
+        private final long[] stageNanos = new long[Stage.values().length];
+        private long lastNanos = startNanos;
+
+        // Charge the time since the previous lap to this stage
+        public void lap(Stage stage) {
+            long now = System.nanoTime();
+            stageNanos[stage.ordinal()] += now - lastNanos;
+            lastNanos = now;
+        }
+    }
+
+    // =========================================================================
+    // 2. RECORD (Once the outcome is known)
+    // =========================================================================
+    public void record(ScanTrace trace, String outcome, String scanType, String gateId, Long campusId) {
+        long totalNanos = System.nanoTime() - trace.startNanos;
+        timer("gate.verify", null, outcome, scanType).record(totalNanos, TimeUnit.NANOSECONDS);
+
+        Map<Stage, Double> stagesMs = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            long nanos = trace.stageNanos[stage.ordinal()];
+            if (nanos == 0) continue; // Stage didn't run (e.g. QR stages on an NFC scan)
+            timer("gate.verify.stage", stage, outcome, scanType).record(nanos, TimeUnit.NANOSECONDS);
+            stagesMs.put(stage, nanos / 1_000_000.0);
+        }
+
+        SlowScan scan = new SlowScan(LocalDateTime.now(), gateId, campusId, scanType, outcome, totalNanos / 1_000_000.0, stagesMs);
+        recent.set((int) (cursor.getAndIncrement() % RECENT_SIZE), scan);
+    }
+
+    // =========================================================================
+    // 3. SLOWEST RECENT SCANS (Admin view; campusId null = all campuses)
+    // =========================================================================
+    public List<SlowScan> slowestRecent(Long campusId, int limit) {
+        List<SlowScan> scans = new ArrayList<>(RECENT_SIZE);
+        for (int i = 0; i < RECENT_SIZE; i++) {
+            SlowScan scan = recent.get(i);
+            if (scan != null && (campusId == null || campusId.equals(scan.campusId()))) scans.add(scan);
+        }
+        scans.sort(Comparator.comparingDouble(SlowScan::totalMs).reversed());
+        return scans.subList(0, Math.min(limit, scans.size()));
+    }
+
+    // --- HELPERS ---
+    private Timer timer(String name, Stage stage, String outcome, String scanType) {
+        String key = name + '|' + stage + '|' + outcome + '|' + scanType;
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(name)
+                    .tag("outcome", outcome)
+                    .tag("scan", scanType)
+                    .publishPercentiles(0.5, 0.95, 0.99);
+            if (stage != null) {
+                builder.tag("stage", stage.name().toLowerCase());
+            } else {
+                builder.publishPercentileHistogram(); // Aggregatable across replicas
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+}
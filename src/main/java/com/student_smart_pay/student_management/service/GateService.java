@@ -1,31 +1,41 @@
 package com.student_smart_pay.student_management.service;
 
+import com.student_smart_pay.student_management.dto.AccessLogView;
+import com.student_smart_pay.student_management.dto.AccessStatsRow;
+import com.student_smart_pay.student_management.dto.GateCredential;
 import com.student_smart_pay.student_management.dto.GateVerifyRequestDto;
+import com.student_smart_pay.student_management.dto.HistoryCursor;
+import com.student_smart_pay.student_management.dto.KeysetPage;
 import com.student_smart_pay.student_management.dto.Roles;
 import com.student_smart_pay.student_management.dto.Status;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
 import com.student_smart_pay.student_management.models.AccessLog;
-import com.student_smart_pay.student_management.models.Campus;
 import com.student_smart_pay.student_management.models.Student;
 import com.student_smart_pay.student_management.repository.AccessLogRepository;
 import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.GateScanMetrics.ScanTrace;
+import com.student_smart_pay.student_management.service.GateScanMetrics.Stage;
+import com.student_smart_pay.student_management.service.QrTokenParser.QrToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
+import javax.crypto.SecretKey;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
-import java.util.Base64;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class GateService {
@@ -38,10 +48,37 @@ public class GateService {
     @Autowired
     private AccessLogRepository accessLogRepository;
 
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private AccessLogWriter accessLogWriter;
+
+    @Autowired
+    private CryptoService cryptoService;
+
+    @Autowired
+    private BlindIndexService blindIndex;
+
+    @Autowired
+    private QrReplayCache qrReplayCache;
+
+    @Autowired
+    private GateScanMetrics scanMetrics;
+
+    @Autowired
+    private AccessRollupService accessRollups;
+
+    @Autowired
+    private AccessLogArchiver accessLogArchiver;
+
+    @Autowired
+    private ScanAnomalyDetector anomalyDetector;
+
     // =========================================================================
     // 1. VERIFY ENTRY (SCANNER LOGIC)
     // =========================================================================
-    public Map<String, Object> verifyEntry(Student guard, GateVerifyRequestDto request) {
+    public Map<String, Object> verifyEntry(UserPrincipal guard, GateVerifyRequestDto request) {
         
         String token = request.getNfcToken();
         
@@ -50,164 +87,331 @@ public class GateService {
              return buildResponse(Status.DENIED, "Unknown", "Unknown", "Empty Token");
         }
 
-        Optional<Student> studentOpt = Optional.empty();
-        boolean isQrScan = false;
+        ScanTrace trace = scanMetrics.start();
+        AccessLog log = new AccessLog();
+
+        // Gate under an anomaly throttle: only a trickle of scans is even looked up
+        if (anomalyDetector.isThrottled(guard.campusId(), request.getGateId())) {
+            Map<String, Object> response = throttled(guard, token, request.getGateId(), log);
+            accessLogWriter.enqueue(log);
+            recordScan(trace, guard, token, log);
+            return response;
+        }
+
+        // STEP A + B: Resolve the card (NFC exact match, then dynamic QR)
+        String tokenHash = blindIndex.hash(token);
+        ScanMatch match = resolveToken(token, tokenHash, true, trace);
+
+        // STEP C: Decide & log
+        Map<String, Object> response = decide(guard, match, token, request.getGateId(), log);
+        trace.lap(Stage.CAMPUS_CHECK);
+        accessLogWriter.enqueue(log);
+        trace.lap(Stage.LOG_WRITE);
+
+        recordScan(trace, guard, token, log);
+        return response;
+    }
+
+    // =========================================================================
+    // 1b. VERIFY BATCH (Busy entrances: one set-based lookup for the burst)
+    // =========================================================================
+    public List<Map<String, Object>> verifyBatch(UserPrincipal guard, List<GateVerifyRequestDto> requests) {
+
+        // 1. Prefetch every card the index doesn't know yet with two IN queries
+        String[] tokenHashes = new String[requests.size()];
+        Set<String> missingHashes = new HashSet<>();
+        Set<Long> missingQrIds = new HashSet<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String token = requests.get(i).getNfcToken();
+            if (token == null || token.isBlank()) continue;
+            tokenHashes[i] = blindIndex.hash(token);
+            if (credentialIndex.findByNfcTokenHash(tokenHashes[i]).isPresent()) continue;
+            Long qrId = QrTokenParser.studentId(token);
+            if (qrId == null) {
+                missingHashes.add(tokenHashes[i]);
+            } else if (credentialIndex.findById(qrId).isEmpty()) {
+                missingQrIds.add(qrId);
+            }
+        }
+        if (!missingHashes.isEmpty()) {
+            studentRepository.findByNfcTokenHashIn(missingHashes).forEach(credentialIndex::cache);
+        }
+        if (!missingQrIds.isEmpty()) {
+            studentRepository.findAllById(missingQrIds).forEach(credentialIndex::cache);
+        }
+
+        // 2. Same rules as verifyEntry, answered in request order
+        List<Map<String, Object>> responses = new ArrayList<>(requests.size());
+        List<AccessLog> logs = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            GateVerifyRequestDto request = requests.get(i);
+            String token = request.getNfcToken();
+            if (token == null || token.isBlank()) {
+                responses.add(buildResponse(Status.DENIED, "Unknown", "Unknown", "Empty Token"));
+                continue;
+            }
+            ScanTrace trace = scanMetrics.start();
+            AccessLog log = new AccessLog();
+            if (anomalyDetector.isThrottled(guard.campusId(), request.getGateId())) {
+                responses.add(throttled(guard, token, request.getGateId(), log));
+                recordScan(trace, guard, token, log);
+                logs.add(log);
+                continue;
+            }
+            ScanMatch match = resolveToken(token, tokenHashes[i], false, trace);
+            responses.add(decide(guard, match, token, request.getGateId(), log));
+            trace.lap(Stage.CAMPUS_CHECK);
+            recordScan(trace, guard, token, log);
+            logs.add(log);
+        }
+
+        // 3. All rows go to the writer together
+        accessLogWriter.enqueueAll(logs);
+        return responses;
+    }
+
+    // =========================================================================
+    // 1c. RESOLVE CARD (Payments: same NFC / dynamic QR rules, no access log)
+    // =========================================================================
+    public Optional<GateCredential> resolveCard(String token) {
+        if (token == null || token.isBlank()) return Optional.empty();
+        ScanMatch match = resolveToken(token, blindIndex.hash(token), true, scanMetrics.start());
+        return Optional.ofNullable(match.student());
+    }
+
+    // --- RESOLUTION ---
+    private record ScanMatch(GateCredential student, boolean isQrScan) {}
+
+    private ScanMatch resolveToken(String token, String tokenHash, boolean allowDbFallback, ScanTrace trace) {
 
         // ---------------------------------------------------------------------
-        // STEP A: TRY STATIC NFC (Exact Match)
+        // STEP A: TRY STATIC NFC (Blind index) - Memory first, DB as fallback
         // ---------------------------------------------------------------------
-        studentOpt = studentRepository.findByNfcToken(token);
+        Optional<GateCredential> studentOpt = credentialIndex.findByNfcTokenHash(tokenHash);
+        if (studentOpt.isEmpty() && allowDbFallback) {
+            studentOpt = studentRepository.findByNfcTokenHash(tokenHash).map(credentialIndex::cache);
+        }
+        trace.lap(Stage.TOKEN_LOOKUP);
+        if (studentOpt.isPresent()) {
+            return new ScanMatch(studentOpt.get(), false);
+        }
 
         // ---------------------------------------------------------------------
         // STEP B: TRY DYNAMIC QR (Signature Verify)
         // ---------------------------------------------------------------------
-        // Format: "STUDENT_ID:TIMESTAMP:SIGNATURE"
-        if (studentOpt.isEmpty() && token.contains(":")) {
-            try {
-                String[] parts = token.split(":");
-                if (parts.length == 3) {
-                    Long id = Long.parseLong(parts[0]);
-                    long timestamp = Long.parseLong(parts[1]);
-                    String signature = parts[2];
-
-                    Optional<Student> candidate = studentRepository.findById(id);
-                    
-                    if (candidate.isPresent()) {
-                        String secret = candidate.get().getQrSecret();
-                        
-                        // Verify Time (30s window)
-                        long now = System.currentTimeMillis();
-                        if (Math.abs(now - timestamp) < 30000) {
-                            
-                            // Verify Signature
-                            String payload = id + ":" + timestamp;
-                            String expectedSig = hmacSha256(payload, secret);
-                            
-                            if (expectedSig.equals(signature)) {
-                                studentOpt = candidate;
-                                isQrScan = true;
-                            } else {
-                                logger.warn("⚠️ Invalid Signature for User ID: {}", id);
-                            }
-                        } else {
-                            logger.warn("⚠️ QR Expired. Delta: {} ms", (now - timestamp));
+        // Format: "STUDENT_ID:TIMESTAMP:SIGNATURE" (malformed tokens just fall through)
+        QrToken qr = QrTokenParser.parse(token);
+        if (qr != null) {
+            long id = qr.studentId();
+            long timestamp = qr.timestamp();
+
+            Optional<GateCredential> candidate = credentialIndex.findById(id);
+            if (candidate.isEmpty() && allowDbFallback) {
+                candidate = studentRepository.findById(id).map(credentialIndex::cache);
+            }
+            trace.lap(Stage.QR_LOOKUP);
+
+            if (candidate.isPresent()) {
+                SecretKey qrKey = candidate.get().qrKey();
+
+                // Verify Time (30s window)
+                long now = System.currentTimeMillis();
+                if (Math.abs(now - timestamp) < 30000) {
+
+                    // Verify Signature (constant-time, on the raw 32 bytes)
+                    boolean signatureOk = false;
+                    if (qrKey != null) {
+                        cryptoService.hmacSha256(qrKey, qr.payload(), 0, qr.payloadLength(), qr.expected());
+                        signatureOk = MessageDigest.isEqual(qr.expected(), qr.signature());
+                    }
+                    trace.lap(Stage.HMAC);
+
+                    if (signatureOk) {
+                        // One-time use: a screenshot can't open a second gate
+                        if (qrReplayCache.claim(id, timestamp)) {
+                            return new ScanMatch(candidate.get(), true);
                         }
+                        logger.warn("⚠️ QR Replay for User ID: {}", id);
+                    } else {
+                        logger.warn("⚠️ Invalid Signature for User ID: {}", id);
                     }
+                } else {
+                    logger.warn("⚠️ QR Expired. Delta: {} ms", (now - timestamp));
                 }
-            } catch (Exception e) {
-                logger.error("⚠️ Invalid QR Format: {}", e.getMessage());
             }
         }
+        return new ScanMatch(null, false);
+    }
 
-        // ---------------------------------------------------------------------
-        // STEP C: LOGGING & DECISION
-        // ---------------------------------------------------------------------
-        AccessLog log = new AccessLog();
-        log.setNfcToken(isQrScan ? "DYNAMIC-QR" : token);
-        log.setGateId(request.getGateId());
+    // ---------------------------------------------------------------------
+    // STEP C: LOGGING & DECISION (Fills the log, returns the guard response)
+    // ---------------------------------------------------------------------
+    private Map<String, Object> decide(UserPrincipal guard, ScanMatch match, String token, String gateId, AccessLog log) {
+        log.setNfcToken(match.isQrScan() ? "DYNAMIC-QR" : token);
+        log.setGateId(gateId);
+        log.setCampusId(guard.campusId());
         log.setTimestamp(LocalDateTime.now());
 
         // 1. Invalid Token?
-        if (studentOpt.isEmpty()) {
+        if (match.student() == null) {
             log.setStatus(Status.DENIED);
             log.setDenialReason("INVALID_TOKEN");
-            accessLogRepository.save(log);
             return buildResponse(Status.DENIED, "Unknown", "Unknown", "Invalid or Expired Token");
         }
 
-        Student student = studentOpt.get();
-        log.setStudent(student); 
-        log.setSnapshotName(student.getName());
-        log.setSnapshotEmail(student.getEmail());
+        GateCredential student = match.student();
+        log.setStudent(studentRef(student.id())); // FK only: AccessLogWriter just needs the id
+        log.setSnapshotName(student.name());
+        log.setSnapshotEmail(student.email());
 
         // 2. SaaS Security: Wrong Campus?
-        if (guard.getCampus() != null && student.getCampus() != null) {
-            if (!guard.getCampus().getId().equals(student.getCampus().getId())) {
+        if (guard.campusId() != null && student.campusId() != null) {
+            if (!guard.campusId().equals(student.campusId())) {
                 log.setStatus(Status.DENIED);
                 log.setDenialReason("WRONG_CAMPUS");
-                accessLogRepository.save(log);
-                logger.warn("🚨 Cross-Campus Access Attempt: {} -> {}", student.getCampus().getName(), guard.getCampus().getName());
-                return buildResponse(Status.DENIED, student.getName(), student.getRole().name(), "Restricted: Wrong Campus");
+                logger.warn("🚨 Cross-Campus Access Attempt: campus #{} -> campus #{}", student.campusId(), guard.campusId());
+                return buildResponse(Status.DENIED, student.name(), student.role().name(), "Restricted: Wrong Campus");
             }
         }
 
         // 3. Account Suspended?
-        if (!student.isActive()) {
+        if (!student.active()) {
             log.setStatus(Status.DENIED);
             log.setDenialReason("SUSPENDED");
-            accessLogRepository.save(log);
-            return buildResponse(Status.DENIED, student.getName(), student.getRole().name(), "Account Suspended");
+            return buildResponse(Status.DENIED, student.name(), student.role().name(), "Account Suspended");
         }
 
         // 4. Card Expired?
-        if (student.getValidUntil().isBefore(LocalDateTime.now())) {
+        if (student.validUntil().isBefore(LocalDateTime.now())) {
             log.setStatus(Status.DENIED);
             log.setDenialReason("EXPIRED");
-            accessLogRepository.save(log);
-            return buildResponse(Status.DENIED, student.getName(), student.getRole().name(), "Card Expired");
+            return buildResponse(Status.DENIED, student.name(), student.role().name(), "Card Expired");
         }
 
         // 5. SUCCESS
         log.setStatus(Status.ALLOWED);
-        accessLogRepository.save(log);
-
-        return buildResponse(Status.ALLOWED, student.getName(), student.getRole().name(), "Access Granted");
+        return buildResponse(Status.ALLOWED, student.name(), student.role().name(), "Access Granted");
     }
 
     // =========================================================================
     // 2. GET HISTORY (DASHBOARD LOGIC)
     // =========================================================================
-    public List<Map<String, Object>> getAccessHistory(Student requester, LocalDateTime start, LocalDateTime end, int limit) {
+    // Keyset paging: pass back the previous page's nextCursor to continue (no OFFSET, no count)
+    public KeysetPage<AccessLogView> getAccessHistory(UserPrincipal requester, LocalDateTime start, LocalDateTime end,
+                                                       String cursor, int limit) {
         
         if (end == null) end = LocalDateTime.now();
         if (start == null) start = end.minusDays(7); 
-        Pageable pageRequest = PageRequest.of(0, limit);
+        HistoryCursor position = cursor != null ? HistoryCursor.decode(cursor) : HistoryCursor.first(end);
+        Pageable pageRequest = PageRequest.of(0, Math.max(1, Math.min(limit, KeysetPage.MAX_SIZE)));
 
-        Page<AccessLog> logs;
+        Slice<AccessLogView> logs;
+        Long campusId = null;
 
-        if (requester.getRole() == Roles.SUPER_ADMIN) {
-            logs = accessLogRepository.findByTimestampBetweenOrderByTimestampDesc(start, end, pageRequest);
+        if (requester.role() == Roles.SUPER_ADMIN) {
+            logs = accessLogRepository.findHistory(start, position.timestamp(), position.id(), pageRequest);
         } 
-        else if (requester.getRole() == Roles.CAMPUS_ADMIN) {
-            Campus c = requester.getCampus();
-            if (c == null) throw new IllegalStateException("Admin has no campus");
-            logs = accessLogRepository.findByStudent_Campus_IdAndTimestampBetweenOrderByTimestampDesc(
-                c.getId(), start, end, pageRequest
+        else if (requester.role() == Roles.CAMPUS_ADMIN) {
+            campusId = requester.campusId();
+            if (campusId == null) throw new IllegalStateException("Admin has no campus");
+            logs = accessLogRepository.findCampusHistory(
+                campusId, start, position.timestamp(), position.id(), pageRequest
             );
         } 
         else {
             throw new SecurityException("Access Denied: You cannot view global logs.");
         }
 
-        return logs.getContent().stream().map(log -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("id", log.getId());
-            map.put("studentName", log.getSnapshotName() != null ? log.getSnapshotName() : "Unknown");
-            map.put("nfcToken", log.getNfcToken());
-            map.put("status", log.getStatus());
-            map.put("reason", log.getDenialReason());
-            map.put("time", log.getTimestamp());
-            map.put("gateId", log.getGateId());
-            
-            if (log.getStudent() != null && log.getStudent().getCampus() != null) {
-                map.put("campus", log.getStudent().getCampus().getName());
-            }
-            
-            return map;
-        }).collect(Collectors.toList());
+        // Reaching back past the hot window: merge in archived rows for the same page
+        if (start.isBefore(accessLogArchiver.hotWindowStart())) {
+            List<AccessLogView> archived = accessLogArchiver.findHistory(campusId, start, position, pageRequest.getPageSize() + 1);
+            if (!archived.isEmpty()) logs = mergeHistory(logs, archived, pageRequest);
+        }
+
+        // Rows are already the response DTOs (one joined projection query)
+        return new KeysetPage<>(logs.getContent(), HistoryCursor.next(logs));
+    }
+
+    // Both inputs are newest first and disjoint (archiving deletes the hot row)
+    private Slice<AccessLogView> mergeHistory(Slice<AccessLogView> hot, List<AccessLogView> archived, Pageable pageRequest) {
+        List<AccessLogView> merged = new ArrayList<>(hot.getNumberOfElements() + archived.size());
+        merged.addAll(hot.getContent());
+        merged.addAll(archived);
+        merged.sort(Comparator.comparing(AccessLogView::time).thenComparing(AccessLogView::id).reversed());
+
+        int size = pageRequest.getPageSize();
+        boolean hasNext = hot.hasNext() || merged.size() > size;
+        return new SliceImpl<>(merged.subList(0, Math.min(size, merged.size())), pageRequest, hasNext);
+    }
+
+    // =========================================================================
+    // 2b. EXPORT SCOPE (Same role rules as history; the rows are streamed by AccessLogExporter)
+    // =========================================================================
+    // Returns the campus to export (null = all campuses, Super Admin only)
+    public Long resolveExportScope(UserPrincipal requester, Long campusId) {
+        if (requester.role() == Roles.SUPER_ADMIN) {
+            return campusId;
+        }
+        if (requester.role() == Roles.CAMPUS_ADMIN) {
+            if (requester.campusId() == null) throw new IllegalStateException("Admin has no campus");
+            return requester.campusId();
+        }
+        throw new SecurityException("Access Denied: You cannot export global logs.");
     }
 
-    // --- CRYPTO HELPER ---
-    private String hmacSha256(String data, String secret) {
-        try {
-            if (secret == null) return "";
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec secretKeySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(secretKeySpec);
-            return Base64.getUrlEncoder().withoutPadding().encodeToString(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
-        } catch (Exception e) {
-            throw new RuntimeException("HMAC Error");
+    // =========================================================================
+    // 3. STATS (DASHBOARD COUNTERS, served from the rollup table)
+    // =========================================================================
+    // Defaults to today so far; campus admins only ever see their own campus.
+    public List<AccessStatsRow> getAccessStats(UserPrincipal requester, LocalDateTime start, LocalDateTime end,
+                                               List<String> groupBy, Status status, String gateId, Long campusId) {
+
+        if (end == null) end = LocalDateTime.now();
+        if (start == null) start = end.toLocalDate().atStartOfDay();
+        if (!start.isBefore(end)) throw new IllegalArgumentException("start must be before end");
+
+        Long campusFilter;
+        if (requester.role() == Roles.SUPER_ADMIN) {
+            campusFilter = campusId;
+        }
+        else if (requester.role() == Roles.CAMPUS_ADMIN) {
+            if (requester.campusId() == null) throw new IllegalStateException("Admin has no campus");
+            campusFilter = requester.campusId();
         }
+        else {
+            throw new SecurityException("Access Denied: You cannot view gate stats.");
+        }
+
+        Set<AccessRollupService.Dimension> dimensions = EnumSet.noneOf(AccessRollupService.Dimension.class);
+        for (String name : groupBy) dimensions.add(AccessRollupService.Dimension.parse(name));
+
+        return accessRollups.query(campusFilter, start, end, dimensions, status, gateId);
+    }
+
+    private Student studentRef(Long id) {
+        Student ref = new Student();
+        ref.setId(id);
+        return ref;
+    }
+
+    // --- THROTTLED GATE (Logged like any other denial, no lookup at all) ---
+    // Never resolved, so anything QR-shaped is masked like decide() masks a matched QR
+    private Map<String, Object> throttled(UserPrincipal guard, String token, String gateId, AccessLog log) {
+        log.setNfcToken(token.indexOf(':') >= 0 ? "DYNAMIC-QR" : token);
+        log.setGateId(gateId);
+        log.setCampusId(guard.campusId());
+        log.setTimestamp(LocalDateTime.now());
+        log.setStatus(Status.DENIED);
+        log.setDenialReason("GATE_THROTTLED");
+        return buildResponse(Status.DENIED, "Unknown", "Unknown", "Gate Temporarily Locked");
+    }
+
+    // --- METRICS HELPER ---
+    private void recordScan(ScanTrace trace, UserPrincipal guard, String token, AccessLog log) {
+        String outcome = log.getStatus() == Status.ALLOWED ? "ALLOWED" : log.getDenialReason();
+        String scanType = token.indexOf(':') >= 0 ? "QR" : "NFC";
+        Long campusId = guard.campusId();
+        scanMetrics.record(trace, outcome, scanType, log.getGateId(), campusId);
     }
 
     private Map<String, Object> buildResponse(Status status, String name, String role, String message) {
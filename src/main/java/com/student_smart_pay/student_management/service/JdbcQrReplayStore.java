@@ -0,0 +1,73 @@
+package com.student_smart_pay.student_management.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// QR replay claims shared through the database both replicas already use.
+// The primary key does the work: a second INSERT of the same claim fails.
+// Runs on every QR scan, so the insert gets a short query timeout; QrReplayCache
+// treats a failure as "not claimed elsewhere" and lets the local claim decide.
+@Service
+@ConditionalOnProperty(name = "app.gate.qr-replay.store", havingValue = "jdbc")
+public class JdbcQrReplayStore implements QrReplayStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcQrReplayStore.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.gate.qr-replay.timeout-seconds:1}")
+    private int timeoutSeconds;
+
+    private JdbcTemplate claimTemplate;
+    private ScheduledExecutorService cleaner;
+
+    @PostConstruct
+    void start() {
+        claimTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        claimTemplate.setQueryTimeout(timeoutSeconds);
+
+        cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "qr-replay-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        cleaner.scheduleWithFixedDelay(this::purgeExpired, 30, 30, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    @Override
+    public boolean claim(long studentId, long issuedAt, long ttlMillis) {
+        try {
+            claimTemplate.update("INSERT INTO qr_replay_claims (claim_key, expires_at) VALUES (?, ?)",
+                    studentId + ":" + issuedAt, System.currentTimeMillis() + ttlMillis);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private void purgeExpired() {
+        try {
+            jdbcTemplate.update("DELETE FROM qr_replay_claims WHERE expires_at < ?", System.currentTimeMillis());
+        } catch (Exception e) {
+            logger.warn("⚠️ QR replay purge failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.student_smart_pay.student_management.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.UUID;
+
+// Leases in job_leases: at most one replica holds a name until it releases it or the
+// lease runs out. Expiry is compared on the database clock. Holders renew by acquiring
+// again before the lease ends; a holder that can't renew must stop the work it guards.
+@Service
+public class JobLeaseService {
+
+    private static final String TAKE_SQL =
+            "UPDATE job_leases SET owner = ?, expires_at = TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP) " +
+            "WHERE name = ? AND (owner = ? OR expires_at < CURRENT_TIMESTAMP)";
+    private static final String CREATE_SQL =
+            "INSERT INTO job_leases (name, owner, expires_at) VALUES (?, ?, TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP))";
+    private static final String RELEASE_SQL = "DELETE FROM job_leases WHERE name = ? AND owner = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Unique per process, readable in the table ("host/uuid")
+    private final String ownerId = hostName() + "/" + UUID.randomUUID();
+
+    // Take (or renew) the lease; false = another replica holds it
+    public boolean tryAcquire(String name, Duration ttl) {
+        long seconds = Math.max(1, ttl.toSeconds());
+        if (jdbcTemplate.update(TAKE_SQL, ownerId, seconds, name, ownerId) > 0) return true;
+        try {
+            return jdbcTemplate.update(CREATE_SQL, name, ownerId, seconds) > 0;
+        } catch (DuplicateKeyException e) {
+            return false; // Exists and is held by someone else
+        }
+    }
+
+    public void release(String name) {
+        jdbcTemplate.update(RELEASE_SQL, name, ownerId);
+    }
+
+    public String ownerId() {
+        return ownerId;
+    }
+
+    private static String hostName() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 64 ? host.substring(0, 64) : host;
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
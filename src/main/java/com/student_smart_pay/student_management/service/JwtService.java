@@ -1,10 +1,13 @@
 package com.student_smart_pay.student_management.service;
 
+import com.student_smart_pay.student_management.models.Student;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
@@ -21,14 +24,42 @@ public class JwtService {
     @Value("${app.jwt.secret}")
     private String secretKey;
 
+    // Claims that let the security filter build the principal without a DB lookup
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_CAMPUS_ID = "cid";
+    public static final String CLAIM_CREDENTIALS_VERSION = "cv";
+
+    // Decoded once; JwtParser is immutable and thread-safe
+    private Key signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
     // ============================================================
     // 1. GENERATE TOKEN (Matches your Controller)
     // ============================================================
     public String generateToken(String username, String role) {
         Map<String, Object> claims = new HashMap<>();
-        claims.put("role", role); 
+        claims.put(CLAIM_ROLE, role); 
         return createToken(claims, username);
     }
+
+    // Enriched token: id, campus and credentials version travel with the request
+    public String generateToken(Student student) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_ROLE, student.getRole().name());
+        claims.put(CLAIM_USER_ID, student.getId());
+        if (student.getCampus() != null) {
+            claims.put(CLAIM_CAMPUS_ID, student.getCampus().getId());
+        }
+        claims.put(CLAIM_CREDENTIALS_VERSION, student.getCredentialsVersion());
+        return createToken(claims, student.getEmail());
+    }
     
     // (Optional: Overload if you want to pass the whole User object)
     public String generateToken(UserDetails userDetails) {
@@ -41,7 +72,7 @@ public class JwtService {
                 .setSubject(subject)
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 24)) // 24 Hours
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -68,12 +99,13 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    // Verifies signature + expiry once; throws JwtException when the token is bad
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
+    }
+
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parseClaims(token);
     }
 
     private boolean isTokenExpired(String token) {
@@ -83,9 +115,4 @@ public class JwtService {
     private Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
-
-    private Key getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.student_smart_pay.student_management.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// ArchiveStore on the local (or mounted) filesystem. Files are written next to
+// their final name and moved into place, so a crash never leaves half a file.
+@Service
+@ConditionalOnProperty(name = "app.gate.archive.store", havingValue = "local", matchIfMissing = true)
+public class LocalArchiveStore implements ArchiveStore {
+
+    @Value("${app.gate.archive.dir:./archive}")
+    private Path root;
+
+    @Override
+    public void write(String key, byte[] data) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root.normalize())) throw new IllegalArgumentException("Invalid archive key: " + key);
+        return path;
+    }
+}
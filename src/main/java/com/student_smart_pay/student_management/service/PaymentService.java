@@ -0,0 +1,418 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.ChargeResult;
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.KeysetPage;
+import com.student_smart_pay.student_management.dto.LedgerEntryType;
+import com.student_smart_pay.student_management.dto.PaymentStatus;
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.TopUpResult;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.dto.WalletEntryView;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Tap-to-pay (POST /api/v1/payments/charge) and wallet top-ups.
+// Per charge: card resolved from memory (same rules as the gate), daily limit pre-checked
+// against an in-memory counter, balance checked against the ledger, then a DEBIT entry
+// goes through WalletLedgerService's group commit together with the payments row. The
+// daily limit is enforced again in that transaction against the payments table, since
+// the counter only sees this replica's charges.
+// The striped lock queues same-wallet movements in-process; the ledger's unique
+// (student_id, seq) makes overdrafts impossible across replicas.
+// Idempotency: (operator, Idempotency-Key) is unique in payments, so a POS retry gets the stored answer
+// (looked up before the card resolves, and bound to the presented token's fingerprint and amount);
+// top-ups use the ledger reference "top-up:<operator>:<key>" the same way.
+@Service
+public class PaymentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
+    private static final int STRIPES = 1024;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    // A stale cached balance (another replica moved the wallet) costs one re-read per attempt
+    private static final int POST_ATTEMPTS = 3;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO payments (student_id, operator_id, idempotency_key, token_fingerprint, campus_id, terminal_id, snapshot_name, " +
+            "amount, balance_after, status, decline_reason, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String FIND_SQL =
+            "SELECT id, token_fingerprint, amount, balance_after, status, decline_reason, snapshot_name " +
+            "FROM payments WHERE operator_id = ? AND idempotency_key = ?";
+    private static final String SPENT_TODAY_SQL =
+            "SELECT COALESCE(SUM(amount), 0) FROM payments WHERE student_id = ? AND status = 'APPROVED' AND created_at >= ?";
+
+    // Per card per calendar day (approved charges only)
+    @Value("${app.payments.daily-limit:100.00}")
+    private BigDecimal dailyLimit;
+
+    @Value("${app.payments.max-amount:500.00}")
+    private BigDecimal maxAmount;
+
+    @Value("${app.payments.max-top-up:1000.00}")
+    private BigDecimal maxTopUp;
+
+    // How long a charge waits behind another one on the same wallet before giving up
+    @Value("${app.payments.lock-timeout-ms:2000}")
+    private long lockTimeoutMs;
+
+    @Autowired
+    private GateService gateService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private WalletLedgerService ledger;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+    // Today's approved spend per card, in cents. Guarded by the card's stripe.
+    // Seeded from the payments table on first use each day and corrected by every debit,
+    // so it never overstates; it only lets an over-limit charge decline without a commit.
+    // Entries from earlier days are dropped when the date changes.
+    private final Map<Long, DailySpend> dailySpend = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private volatile LocalDate spendDay;
+
+    private static final class DailySpend {
+        LocalDate day;
+        long cents;
+    }
+
+    // Same key, different card or amount: the POS has a bug, don't guess
+    public static class IdempotencyConflictException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public IdempotencyConflictException(String message) {
+            super(message);
+        }
+    }
+
+    // Thrown inside the ledger transaction (rolls it back); carries what the DB says was spent
+    private static final class DailyLimitExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private final long spentCents;
+
+        DailyLimitExceededException(long spentCents) {
+            super("Daily limit reached", null, false, false);
+            this.spentCents = spentCents;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new ReentrantLock();
+    }
+
+    // =========================================================================
+    // 1. CHARGE
+    // =========================================================================
+    public ChargeResult charge(UserPrincipal operator, String idempotencyKey, String nfcToken,
+                               BigDecimal amount, String terminalId) {
+        long start = System.nanoTime();
+        validate(idempotencyKey, amount, maxAmount);
+        Charge charge = new Charge(operator, idempotencyKey, fingerprint(nfcToken), amount, terminalId);
+
+        // 1. Retry of a charge we already answered? Checked before resolving: a dynamic QR
+        //    is single-use, so the retried token would no longer resolve to the card
+        Optional<ChargeResult> existing = findExisting(charge);
+        if (existing.isPresent()) return timed(start, existing.get());
+
+        // 2. Resolve the card (credential index first, DB fallback, dynamic QR)
+        GateCredential card = gateService.resolveCard(nfcToken).orElse(null);
+        if (card == null) return timed(start, decline(charge, null, "INVALID_TOKEN"));
+
+        // 3. One charge at a time per wallet on this replica
+        ReentrantLock lock = lockWallet(card.id());
+        try {
+            // 4. Card rules (same order as the gate)
+            String reason = cardProblem(operator, card);
+            if (reason != null) return timed(start, decline(charge, card, reason));
+
+            // 5. Daily limit pre-check from the in-memory counter (a lower bound across replicas)
+            long cents = amount.movePointRight(2).longValueExact();
+            DailySpend spend = spentToday(card.id());
+            if (spend.cents + cents > limitCents()) {
+                return timed(start, decline(charge, card, "DAILY_LIMIT"));
+            }
+
+            // 6. Debit: ledger entry + payments row in one group-committed transaction
+            return timed(start, debit(charge, card, spend));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // One charge request as received (fingerprint = SHA-256 of the presented token)
+    private record Charge(UserPrincipal operator, String key, String fingerprint, BigDecimal amount, String terminalId) {}
+
+    private ChargeResult debit(Charge charge, GateCredential card, DailySpend spend) {
+        BigDecimal amount = charge.amount();
+        long cents = amount.movePointRight(2).longValueExact();
+        for (int attempt = 1; ; attempt++) {
+            WalletLedgerService.Balance wallet = ledger.balance(card.id());
+            if (wallet.amount().compareTo(amount) < 0) {
+                // Re-read before declining: a top-up on another replica isn't in our cache
+                wallet = ledger.refresh(card.id());
+                if (wallet.amount().compareTo(amount) < 0) {
+                    return decline(charge, card, "INSUFFICIENT_FUNDS");
+                }
+            }
+            BigDecimal balance = wallet.amount().subtract(amount);
+            long[] paymentId = new long[1];
+            long[] spentBefore = new long[1];
+            try {
+                ledger.post(card.id(), LedgerEntryType.DEBIT, amount, () -> {
+                    // Authoritative limit check, in the ledger transaction: a concurrent debit on
+                    // another replica either committed before this read or collides on the ledger seq
+                    spentBefore[0] = spentTodayInDb(card.id());
+                    if (spentBefore[0] + cents > limitCents()) throw new DailyLimitExceededException(spentBefore[0]);
+                    paymentId[0] = insert(charge, card, balance, PaymentStatus.APPROVED, null);
+                    return "payment:" + paymentId[0];
+                });
+                spend.cents = spentBefore[0] + cents;
+                return new ChargeResult(paymentId[0], PaymentStatus.APPROVED, null, amount, balance, card.name(), false);
+            } catch (DailyLimitExceededException e) {
+                spend.cents = e.spentCents;
+                return decline(charge, card, "DAILY_LIMIT");
+            } catch (DuplicateKeyException e) {
+                // Another replica took this key first, or moved the wallet under us (then re-read and retry)
+                Optional<ChargeResult> existing = findExisting(charge);
+                if (existing.isPresent()) return existing.get();
+                if (attempt == POST_ATTEMPTS) throw new IllegalStateException("Wallet is busy, retry with the same Idempotency-Key");
+            }
+        }
+    }
+
+    private ChargeResult decline(Charge charge, GateCredential card, String reason) {
+        try {
+            long id = insert(charge, card, null, PaymentStatus.DECLINED, reason);
+            return new ChargeResult(id, PaymentStatus.DECLINED, reason, charge.amount(), null, card != null ? card.name() : null, false);
+        } catch (DuplicateKeyException e) {
+            return findExisting(charge).orElseThrow(() -> new IllegalStateException("Charge conflict, retry"));
+        }
+    }
+
+    // =========================================================================
+    // 2. TOP-UP (Cash desk credit; campus admins for their own campus)
+    // =========================================================================
+    public TopUpResult topUp(UserPrincipal operator, String idempotencyKey, Long studentId, BigDecimal amount) {
+        validate(idempotencyKey, amount, maxTopUp);
+        GateCredential owner = walletOwner(operator, studentId);
+        String reference = "top-up:" + operator.id() + ":" + idempotencyKey;
+
+        ReentrantLock lock = lockWallet(owner.id());
+        try {
+            Optional<TopUpResult> existing = findTopUp(reference, owner, amount);
+            if (existing.isPresent()) return existing.get();
+
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    WalletLedgerService.Balance after = ledger.post(owner.id(), LedgerEntryType.CREDIT, amount, () -> reference);
+                    logger.info("💰 Top-up of {} for student #{} by #{}", amount, owner.id(), operator.id());
+                    return new TopUpResult(reference, amount, after.amount(), owner.name(), false);
+                } catch (DuplicateKeyException e) {
+                    existing = findTopUp(reference, owner, amount);
+                    if (existing.isPresent()) return existing.get();
+                    if (attempt == POST_ATTEMPTS) throw new IllegalStateException("Wallet is busy, retry with the same Idempotency-Key");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<TopUpResult> findTopUp(String reference, GateCredential owner, BigDecimal amount) {
+        return ledger.findByReference(reference).map(stored -> {
+            if (stored.studentId() != owner.id() || stored.entry().amount().compareTo(amount) != 0) {
+                throw new IdempotencyConflictException("Idempotency-Key was already used for a different top-up");
+            }
+            return new TopUpResult(reference, amount, stored.entry().balanceAfter(), owner.name(), true);
+        });
+    }
+
+    // =========================================================================
+    // 3. STATEMENT (Admin view of one wallet; students read their own via /students/wallet)
+    // =========================================================================
+    public KeysetPage<WalletEntryView> statement(UserPrincipal requester, Long studentId, String cursor, int limit) {
+        GateCredential owner = walletOwner(requester, studentId);
+        return ledger.statement(owner.id(), cursor, limit);
+    }
+
+    // Super admins: any wallet. Campus admins: wallets on their campus. Nobody else.
+    // Memory first: a JPA read would pin a pooled connection (open-in-view) while this
+    // request waits on the wallet lock and the ledger commit.
+    private GateCredential walletOwner(UserPrincipal requester, Long studentId) {
+        if (requester.role() != Roles.SUPER_ADMIN && requester.role() != Roles.CAMPUS_ADMIN) {
+            throw new SecurityException("Access Denied: Only Admins can manage wallets.");
+        }
+        GateCredential owner = credentialIndex.findById(studentId)
+                .or(() -> studentRepository.findGateCredentialsByIdIn(List.of(studentId)).stream().findFirst())
+                .orElseThrow(() -> new IllegalArgumentException("Student not found"));
+        if (requester.role() == Roles.CAMPUS_ADMIN && !Objects.equals(requester.campusId(), owner.campusId())) {
+            throw new SecurityException("Access Denied: This student belongs to a different campus.");
+        }
+        return owner;
+    }
+
+    // =========================================================================
+    // 4. RULES
+    // =========================================================================
+    private ReentrantLock lockWallet(Long studentId) {
+        ReentrantLock lock = stripes[Math.floorMod(Long.hashCode(studentId), STRIPES)];
+        try {
+            if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Wallet is busy, retry with the same Idempotency-Key");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the wallet");
+        }
+        return lock;
+    }
+
+    private void validate(String idempotencyKey, BigDecimal amount, BigDecimal max) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) throw new IllegalArgumentException("Idempotency-Key header is required");
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) throw new IllegalArgumentException("Idempotency-Key is too long (max " + MAX_KEY_LENGTH + ")");
+        if (amount == null || amount.signum() <= 0) throw new IllegalArgumentException("Amount must be positive");
+        if (amount.stripTrailingZeros().scale() > 2) throw new IllegalArgumentException("Amount has more than 2 decimals");
+        if (amount.compareTo(max) > 0) throw new IllegalArgumentException("Amount exceeds the maximum of " + max);
+    }
+
+    private static String cardProblem(UserPrincipal operator, GateCredential card) {
+        if (operator.campusId() != null && card.campusId() != null && !operator.campusId().equals(card.campusId())) {
+            logger.warn("🚨 Cross-Campus Payment Attempt: campus #{} -> campus #{}", card.campusId(), operator.campusId());
+            return "WRONG_CAMPUS";
+        }
+        if (!card.active()) return "SUSPENDED";
+        if (card.validUntil().isBefore(LocalDateTime.now())) return "EXPIRED";
+        return null;
+    }
+
+    private DailySpend spentToday(Long studentId) {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(spendDay)) {
+            // First charge of a new day: forget yesterday's cards (a racing charge just re-seeds)
+            spendDay = today;
+            dailySpend.values().removeIf(s -> s.day != null && !today.equals(s.day));
+        }
+        DailySpend spend = dailySpend.computeIfAbsent(studentId, id -> new DailySpend());
+        if (!today.equals(spend.day)) {
+            spend.cents = spentTodayInDb(studentId);
+            spend.day = today;
+        }
+        return spend;
+    }
+
+    private long spentTodayInDb(Long studentId) {
+        BigDecimal spent = jdbcTemplate.queryForObject(SPENT_TODAY_SQL, BigDecimal.class,
+                studentId, Timestamp.valueOf(LocalDate.now().atStartOfDay()));
+        return spent != null ? spent.movePointRight(2).longValue() : 0;
+    }
+
+    private long limitCents() {
+        return dailyLimit.movePointRight(2).longValue();
+    }
+
+    private static String fingerprint(String token) {
+        if (token == null) return null;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 missing", e);
+        }
+    }
+
+    // =========================================================================
+    // 5. STORAGE
+    // =========================================================================
+    private long insert(Charge charge, GateCredential card, BigDecimal balance, PaymentStatus status, String reason) {
+        UserPrincipal operator = charge.operator();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            ps.setObject(1, card != null ? card.id() : null, Types.BIGINT);
+            ps.setLong(2, operator.id());
+            ps.setString(3, charge.key());
+            ps.setString(4, charge.fingerprint());
+            ps.setObject(5, card != null ? card.campusId() : operator.campusId(), Types.BIGINT);
+            ps.setString(6, charge.terminalId());
+            ps.setString(7, card != null ? card.name() : null);
+            ps.setBigDecimal(8, charge.amount());
+            ps.setBigDecimal(9, balance);
+            ps.setString(10, status.name());
+            ps.setString(11, reason);
+            ps.setTimestamp(12, Timestamp.valueOf(LocalDateTime.now()));
+            return ps;
+        }, keys);
+        return keys.getKey().longValue();
+    }
+
+    // The stored answer for (operator, key), if any; it must be for the same token and amount
+    private Optional<ChargeResult> findExisting(Charge charge) {
+        List<ChargeResult> rows = jdbcTemplate.query(FIND_SQL, (rs, n) -> {
+            String stored = rs.getString(2); // Null on rows written before fingerprints: amount only
+            if ((stored != null && !stored.equals(charge.fingerprint())) || rs.getBigDecimal(3).compareTo(charge.amount()) != 0) {
+                throw new IdempotencyConflictException("Idempotency-Key was already used for a different charge");
+            }
+            return new ChargeResult(rs.getLong(1), PaymentStatus.valueOf(rs.getString(5)), rs.getString(6),
+                    rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getString(7), true);
+        }, charge.operator().id(), charge.key());
+        return rows.stream().findFirst();
+    }
+
+    private ChargeResult timed(long startNanos, ChargeResult result) {
+        String outcome = result.status() == PaymentStatus.APPROVED ? "approved"
+                : result.reason() != null ? result.reason().toLowerCase() : "declined";
+        if (result.replayed()) outcome = "replayed";
+        timers.computeIfAbsent(outcome, o -> Timer.builder("payments.charge")
+                .tag("outcome", o)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+        ).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return result;
+    }
+}
@@ -0,0 +1,177 @@
+package com.student_smart_pay.student_management.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// One-time use for dynamic QR codes ("ID:TIMESTAMP:SIGNATURE").
+// Claims are kept in a ring of time buckets keyed by the QR timestamp. Each bucket
+// is a fixed open-addressing table of 64-bit keys filled with CAS, so claiming is
+// lock-free and memory is fixed no matter how many scans come in. A background
+// tick wipes buckets a few seconds before they come back into the valid window.
+// The ring only sees this replica's scans. With more than one replica, the optional
+// shared store (app.gate.qr-replay.store=jdbc) also rejects codes used on another pod;
+// if that store fails, the local claim stands and the error is counted.
+@Service
+public class QrReplayCache {
+
+    // 16 buckets x 5s = 80s ring, enough for the +/-30s QR window plus headroom
+    private static final int BUCKETS = 16;
+    private static final long BUCKET_MILLIS = 5_000;
+    private static final int MAX_PROBES = 32;
+    private static final long CLAIM_TTL_MILLIS = 60_000;
+    // Bucket epoch while one thread wipes it for the next epoch
+    private static final long CLEARING = Long.MIN_VALUE;
+
+    @Value("${app.gate.qr-replay.bucket-capacity:16384}")
+    private int bucketCapacity;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private QrReplayStore sharedStore;
+
+    private AtomicLongArray[] tables;
+    private final AtomicLongArray bucketEpochs = new AtomicLongArray(BUCKETS);
+    private int mask;
+
+    private ScheduledExecutorService rotator;
+    private Counter replayCounter;
+    private Counter overflowCounter;
+    private Counter storeErrorCounter;
+
+    @PostConstruct
+    void init() {
+        int capacity = Integer.highestOneBit(Math.max(bucketCapacity, 64));
+        mask = capacity - 1;
+        tables = new AtomicLongArray[BUCKETS];
+        for (int b = 0; b < BUCKETS; b++) tables[b] = new AtomicLongArray(capacity);
+
+        long current = Math.floorDiv(System.currentTimeMillis(), BUCKET_MILLIS);
+        for (long e = current - 8; e < current + 8; e++) bucketEpochs.set(index(e), e);
+
+        replayCounter = meterRegistry.counter("gate.qr.replay.rejected");
+        overflowCounter = meterRegistry.counter("gate.qr.replay.overflow");
+        storeErrorCounter = meterRegistry.counter("gate.qr.replay.store_errors");
+
+        rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "qr-replay-rotator");
+            t.setDaemon(true);
+            return t;
+        });
+        rotator.scheduleAtFixedRate(this::rotate, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rotator.shutdownNow();
+    }
+
+    // =========================================================================
+    // 1. CLAIM (True the first time a QR code is seen, false on replay)
+    // =========================================================================
+    public boolean claim(long studentId, long issuedAt) {
+        if (!claimLocal(studentId, issuedAt)) {
+            replayCounter.increment();
+            return false;
+        }
+        if (sharedStore != null && !claimShared(studentId, issuedAt)) {
+            replayCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Shared store down or slow: keep the gate open on the local claim alone
+    private boolean claimShared(long studentId, long issuedAt) {
+        try {
+            return sharedStore.claim(studentId, issuedAt, CLAIM_TTL_MILLIS);
+        } catch (RuntimeException e) {
+            storeErrorCounter.increment();
+            return true;
+        }
+    }
+
+    private boolean claimLocal(long studentId, long issuedAt) {
+        long epoch = Math.floorDiv(issuedAt, BUCKET_MILLIS);
+        int b = index(epoch);
+        long bucketEpoch;
+        while ((bucketEpoch = bucketEpochs.get(b)) != epoch) {
+            // Another thread is wiping it: wait for the new epoch to be published
+            if (bucketEpoch == CLEARING) {
+                Thread.onSpinWait();
+                continue;
+            }
+            // Older than the ring: the time check already rejects it
+            if (bucketEpoch > epoch) return true;
+            // Rotator fell behind: take the bucket over ourselves
+            advance(b, bucketEpoch, epoch);
+        }
+
+        AtomicLongArray table = tables[b];
+        long key = key(studentId, issuedAt);
+        int slot = (int) key & mask;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            long current = table.get(slot);
+            if (current == key) return false;
+            if (current == 0) {
+                if (table.compareAndSet(slot, 0, key)) return true;
+                if (table.get(slot) == key) return false; // Same code, other gate, same instant
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Bucket full: let the scan through rather than lock out real students
+        overflowCounter.increment();
+        return true;
+    }
+
+    // =========================================================================
+    // 2. ROTATION (Prepare the buckets just ahead of the valid window)
+    // =========================================================================
+    private void rotate() {
+        long current = Math.floorDiv(System.currentTimeMillis(), BUCKET_MILLIS);
+        for (long e = current + 7; e <= current + 8; e++) {
+            int b = index(e);
+            long bucketEpoch = bucketEpochs.get(b);
+            if (bucketEpoch != CLEARING && bucketEpoch < e) advance(b, bucketEpoch, e);
+        }
+    }
+
+    // Wipe bucket b for a newer epoch. The epoch is only published once the table is
+    // empty, so no claim can land in it early and be wiped. One winner per bucket.
+    private void advance(int b, long seen, long epoch) {
+        if (!bucketEpochs.compareAndSet(b, seen, CLEARING)) return;
+        clear(tables[b]);
+        bucketEpochs.set(b, epoch);
+    }
+
+    // --- HELPERS ---
+    private static int index(long epoch) {
+        return Math.floorMod(epoch, BUCKETS);
+    }
+
+    private static void clear(AtomicLongArray table) {
+        for (int i = 0; i < table.length(); i++) table.set(i, 0L);
+    }
+
+    // 64-bit mix of (student, timestamp); 0 marks an empty slot
+    private static long key(long studentId, long issuedAt) {
+        long h = studentId * 0x9E3779B97F4A7C15L ^ issuedAt;
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h == 0 ? 1 : h;
+    }
+}
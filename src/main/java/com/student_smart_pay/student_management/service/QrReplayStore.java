@@ -0,0 +1,9 @@
+package com.student_smart_pay.student_management.service;
+
+// Shared backing for QrReplayCache, so a QR code used on one replica is also
+// rejected on the other. The in-process cache always runs first.
+public interface QrReplayStore {
+
+    // True if this (student, timestamp) pair was not claimed before
+    boolean claim(long studentId, long issuedAt, long ttlMillis);
+}
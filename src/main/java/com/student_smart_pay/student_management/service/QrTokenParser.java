@@ -0,0 +1,108 @@
+package com.student_smart_pay.student_management.service;
+
+// Single-pass parser for dynamic QR tokens: "STUDENT_ID:TIMESTAMP:SIGNATURE".
+// SIGNATURE is the Base64url (no padding) HMAC-SHA256 of "STUDENT_ID:TIMESTAMP".
+//
+// Scanners and attackers feed this path garbage, so it never throws, never
+// splits or substrings, and fills a per-thread QrToken instead of allocating.
+// The returned QrToken is only valid until the next parse() on the same thread.
+public final class QrTokenParser {
+
+    public static final int SIGNATURE_BYTES = 32;
+    private static final int SIGNATURE_CHARS = 43; // ceil(32 * 4 / 3)
+    private static final int MAX_DIGITS = 18;      // Always fits in a long
+    private static final int MAX_PAYLOAD = MAX_DIGITS * 2 + 1;
+
+    private static final ThreadLocal<QrToken> RESULT = ThreadLocal.withInitial(QrToken::new);
+
+    // Base64url alphabet -> 6-bit value, -1 for anything else
+    private static final byte[] DECODE = new byte[128];
+    static {
+        java.util.Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) DECODE[alphabet.charAt(i)] = (byte) i;
+    }
+
+    private QrTokenParser() {}
+
+    public static final class QrToken {
+        private long studentId;
+        private long timestamp;
+        private int payloadLength;
+        private final byte[] payload = new byte[MAX_PAYLOAD];     // ASCII "ID:TIMESTAMP"
+        private final byte[] signature = new byte[SIGNATURE_BYTES]; // Decoded signature
+        private final byte[] expected = new byte[SIGNATURE_BYTES];  // Scratch for the HMAC
+
+        public long studentId() { return studentId; }
+        public long timestamp() { return timestamp; }
+        public byte[] payload() { return payload; }
+        public int payloadLength() { return payloadLength; }
+        public byte[] signature() { return signature; }
+        public byte[] expected() { return expected; }
+    }
+
+    // Null when the token isn't a well-formed QR token
+    public static QrToken parse(String token) {
+        int length = token.length();
+        QrToken out = RESULT.get();
+        int i = 0;
+
+        // 1. STUDENT_ID
+        long id = 0;
+        int start = i;
+        while (i < length && i - start < MAX_DIGITS) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') break;
+            id = id * 10 + (c - '0');
+            out.payload[i] = (byte) c;
+            i++;
+        }
+        if (i == start || i >= length || token.charAt(i) != ':') return null;
+        out.payload[i++] = ':';
+
+        // 2. TIMESTAMP
+        long timestamp = 0;
+        start = i;
+        while (i < length && i - start < MAX_DIGITS) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') break;
+            timestamp = timestamp * 10 + (c - '0');
+            out.payload[i] = (byte) c;
+            i++;
+        }
+        if (i == start || i >= length || token.charAt(i) != ':') return null;
+        int payloadLength = i++;
+
+        // 3. SIGNATURE (exactly 43 Base64url chars -> 32 bytes)
+        if (length - i != SIGNATURE_CHARS) return null;
+        byte[] sig = out.signature;
+        int o = 0;
+        int bits = 0;
+        int buffered = 0;
+        for (; i < length; i++) {
+            char c = token.charAt(i);
+            int v = c < 128 ? DECODE[c] : -1;
+            if (v < 0) return null;
+            bits = (bits << 6) | v;
+            buffered += 6;
+            if (buffered >= 8) {
+                buffered -= 8;
+                sig[o++] = (byte) (bits >> buffered);
+            }
+        }
+        // The last char carries 2 bits past the 32 bytes; canonical encoders leave them 0,
+        // so "...A" and "...B" can't both be accepted as the same signature
+        if ((bits & ((1 << buffered) - 1)) != 0) return null;
+
+        out.studentId = id;
+        out.timestamp = timestamp;
+        out.payloadLength = payloadLength;
+        return out;
+    }
+
+    // Student id of a well-formed QR token (batch prefetch), null otherwise
+    public static Long studentId(String token) {
+        QrToken qr = parse(token);
+        return qr != null ? qr.studentId : null;
+    }
+}
@@ -0,0 +1,310 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.GateAlert;
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.Status;
+import com.student_smart_pay.student_management.dto.ThrottledGate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Streaming detector fed by GateEventFeed with every replica's scans (no DB access),
+// so every pod raises the same alerts and throttles the same gates.
+// - Per student: last (gate, time) in a fixed slot table -> CARD_CLONE when the
+//   same card is accepted at another gate within the clone window.
+// - Per gate / per token: sliding-window counters in count-min sketches (two
+//   generations rotated every window) -> INVALID_TOKEN_BURST / REPEATED_DENIED_TOKEN.
+// All state is fixed-size, so memory doesn't grow with traffic. A gate that
+// bursts invalid tokens can be throttled for a while (GateService checks isThrottled).
+// Gate ids come from the client and are only unique within a campus, so gates are
+// always keyed by (campus of the authenticated guard, gate id).
+// Lifting a throttle goes through GateEventFeed too, so it reaches every replica.
+@Service
+public class ScanAnomalyDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanAnomalyDetector.class);
+
+    private static final int RECENT_ALERTS = 512;
+    private static final int STUDENT_SLOTS = 1 << 16;
+    private static final int MAX_THROTTLED_GATES = 1024;
+
+    @Value("${app.gate.anomaly.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.gate.anomaly.window-ms:60000}")
+    private long windowMs;
+
+    @Value("${app.gate.anomaly.clone-window-ms:30000}")
+    private long cloneWindowMs;
+
+    @Value("${app.gate.anomaly.gate-invalid-threshold:20}")
+    private int gateInvalidThreshold;
+
+    @Value("${app.gate.anomaly.token-denied-threshold:10}")
+    private int tokenDeniedThreshold;
+
+    @Value("${app.gate.anomaly.throttle.enabled:false}")
+    private boolean throttleEnabled;
+
+    @Value("${app.gate.anomaly.throttle.duration-ms:300000}")
+    private long throttleDurationMs;
+
+    @Value("${app.gate.anomaly.throttle.scans-per-second:2}")
+    private int throttleScansPerSecond;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicReferenceArray<LastSeen> lastSeen = new AtomicReferenceArray<>(STUDENT_SLOTS);
+    private final WindowedSketch gateInvalid = new WindowedSketch();
+    private final WindowedSketch tokenDenied = new WindowedSketch();
+
+    // Alert de-duplication: one alert per (type, key) per window
+    private final Map<String, Long> lastAlertAt = new ConcurrentHashMap<>();
+    private final Map<GateKey, Throttle> throttles = new ConcurrentHashMap<>();
+
+    private final AtomicReferenceArray<GateAlert> recent = new AtomicReferenceArray<>(RECENT_ALERTS);
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final Map<GateAlert.Type, Counter> alertCounters = new EnumMap<>(GateAlert.Type.class);
+    private Counter throttledCounter;
+    private ScheduledExecutorService rotator;
+
+    private record LastSeen(long studentId, Long campusId, String gateId, long atMillis) {}
+
+    // campusId is null for guards without a campus (Super Admin)
+    private record GateKey(Long campusId, String gateId) {}
+
+    @PostConstruct
+    void init() {
+        for (GateAlert.Type type : GateAlert.Type.values()) {
+            alertCounters.put(type, meterRegistry.counter("gate.anomaly.alerts", "type", type.name().toLowerCase()));
+        }
+        throttledCounter = meterRegistry.counter("gate.anomaly.throttled.scans");
+        meterRegistry.gauge("gate.anomaly.throttled.gates", throttles, Map::size);
+
+        rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "scan-anomaly-rotator");
+            t.setDaemon(true);
+            return t;
+        });
+        rotator.scheduleAtFixedRate(this::rotate, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rotator.shutdownNow();
+    }
+
+    // =========================================================================
+    // 1. OBSERVE (Every replica's scans, on the feed thread)
+    // =========================================================================
+    // student is null for unknown cards; campusId is the guard's campus; time is when the scan happened
+    public void observe(String gateId, Long campusId, String tokenHash, GateCredential student,
+                        Status status, String reason, LocalDateTime time) {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+
+        // 1. Cloned card: accepted here and at another gate moments ago
+        // (scan times, not arrival: another pod's scan may reach the feed late)
+        if (student != null && status == Status.ALLOWED && gateId != null) {
+            long at = time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : now;
+            int slot = (int) (mix(student.id()) & (STUDENT_SLOTS - 1));
+            LastSeen previous = lastSeen.getAndSet(slot, new LastSeen(student.id(), campusId, gateId, at));
+            long apart = previous != null ? Math.abs(at - previous.atMillis()) : Long.MAX_VALUE;
+            if (previous != null && previous.studentId() == student.id()
+                    && (!previous.gateId().equals(gateId) || !Objects.equals(previous.campusId(), campusId))
+                    && apart < cloneWindowMs) {
+                raise(GateAlert.Type.CARD_CLONE, "s" + student.id(), gateId, student.campusId(), student.id(),
+                        "Accepted at " + previous.gateId() + " and " + gateId + " within " + apart + " ms");
+            }
+        }
+        if (status != Status.DENIED) return;
+
+        // 2. Gate spraying unknown tokens
+        if ("INVALID_TOKEN".equals(reason) && gateId != null) {
+            int count = gateInvalid.increment(31 * Objects.hashCode(campusId) + gateId.hashCode());
+            if (count >= gateInvalidThreshold) {
+                boolean fresh = raise(GateAlert.Type.INVALID_TOKEN_BURST, "g" + campusId + ":" + gateId, gateId, campusId, null,
+                        count + " invalid tokens in the last " + windowMs / 1000 + "s");
+                if (fresh && throttleEnabled) throttle(gateId, campusId, now);
+            }
+        }
+
+        // 3. Same token denied over and over (suspended / expired / foreign card retried)
+        if (tokenHash != null) {
+            int count = tokenDenied.increment(tokenHash.hashCode());
+            if (count >= tokenDeniedThreshold) {
+                raise(GateAlert.Type.REPEATED_DENIED_TOKEN, "t" + tokenHash, gateId, campusId,
+                        student != null ? student.id() : null, count + " denials for one token (last: " + reason + ")");
+            }
+        }
+    }
+
+    // =========================================================================
+    // 2. THROTTLE (Checked before any lookup; only a trickle of scans gets through)
+    // =========================================================================
+    // campusId is the authenticated guard's campus
+    public boolean isThrottled(Long campusId, String gateId) {
+        if (gateId == null || throttles.isEmpty()) return false;
+        GateKey key = new GateKey(campusId, gateId);
+        Throttle throttle = throttles.get(key);
+        if (throttle == null) return false;
+        long now = System.currentTimeMillis();
+        if (now >= throttle.until) {
+            throttles.remove(key, throttle);
+            return false;
+        }
+        if (throttle.tryAcquire(now, throttleScansPerSecond)) return false;
+        throttledCounter.increment();
+        return true;
+    }
+
+    // Admin override; campusId null (Super Admin) lifts the gate id on every campus.
+    // False if no matching gate was throttled.
+    public boolean releaseThrottle(String gateId, Long campusId) {
+        return throttles.keySet().removeIf(key -> key.gateId().equals(gateId)
+                && (campusId == null || campusId.equals(key.campusId())));
+    }
+
+    public List<ThrottledGate> throttledGates(Long campusId) {
+        List<ThrottledGate> gates = new ArrayList<>();
+        throttles.forEach((key, t) -> {
+            if (campusId == null || campusId.equals(key.campusId())) {
+                gates.add(new ThrottledGate(key.gateId(), key.campusId(),
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(t.until), ZoneId.systemDefault())));
+            }
+        });
+        gates.sort(Comparator.comparing(ThrottledGate::gateId));
+        return gates;
+    }
+
+    private void throttle(String gateId, Long campusId, long now) {
+        if (throttles.size() >= MAX_THROTTLED_GATES) return;
+        throttles.put(new GateKey(campusId, gateId), new Throttle(now + throttleDurationMs));
+        logger.warn("🚧 Gate {} (campus #{}) throttled for {} s after an invalid token burst", gateId, campusId, throttleDurationMs / 1000);
+    }
+
+    private static final class Throttle {
+        private final long until;
+        private long second;
+        private int used;
+
+        Throttle(long until) {
+            this.until = until;
+        }
+
+        synchronized boolean tryAcquire(long now, int perSecond) {
+            long current = now / 1000;
+            if (current != second) {
+                second = current;
+                used = 0;
+            }
+            return used++ < perSecond;
+        }
+    }
+
+    // =========================================================================
+    // 3. ALERTS (Admin view; campusId null = all campuses)
+    // =========================================================================
+    public List<GateAlert> recentAlerts(Long campusId, int limit) {
+        List<GateAlert> alerts = new ArrayList<>();
+        long end = cursor.get();
+        for (long i = end - 1; i >= Math.max(0, end - RECENT_ALERTS) && alerts.size() < limit; i--) {
+            GateAlert alert = recent.get((int) (i % RECENT_ALERTS));
+            if (alert != null && (campusId == null || campusId.equals(alert.campusId()))) alerts.add(alert);
+        }
+        return alerts;
+    }
+
+    // True if this is a new alert (not a repeat within the window)
+    private boolean raise(GateAlert.Type type, String key, String gateId, Long campusId, Long studentId, String detail) {
+        long now = System.currentTimeMillis();
+        String dedupeKey = type.ordinal() + key;
+        Long previous = lastAlertAt.get(dedupeKey);
+        if (previous != null && now - previous < windowMs) return false;
+        if (previous == null ? lastAlertAt.putIfAbsent(dedupeKey, now) != null
+                             : !lastAlertAt.replace(dedupeKey, previous, now)) {
+            return false; // Another thread raised it first
+        }
+
+        GateAlert alert = new GateAlert(LocalDateTime.now(), type, gateId, campusId, studentId, detail);
+        recent.set((int) (cursor.getAndIncrement() % RECENT_ALERTS), alert);
+        alertCounters.get(type).increment();
+        logger.warn("🚨 {} at gate {}: {}", type, gateId, detail);
+        return true;
+    }
+
+    // --- WINDOW ROTATION ---
+    private void rotate() {
+        gateInvalid.rotate();
+        tokenDenied.rotate();
+        long now = System.currentTimeMillis();
+        lastAlertAt.values().removeIf(at -> now - at >= windowMs);
+        throttles.values().removeIf(t -> now >= t.until);
+    }
+
+    // Count-min sketch over the current + previous window (never undercounts)
+    private static final class WindowedSketch {
+        private static final int DEPTH = 4;
+        private static final int WIDTH = 4096;
+
+        private volatile AtomicIntegerArray current = new AtomicIntegerArray(DEPTH * WIDTH);
+        private volatile AtomicIntegerArray previous = new AtomicIntegerArray(DEPTH * WIDTH);
+
+        // Returns the estimated count for the key after this increment
+        int increment(int key) {
+            AtomicIntegerArray cur = current;
+            AtomicIntegerArray prev = previous;
+            int estimate = Integer.MAX_VALUE;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = row * WIDTH + bucket(key, row);
+                estimate = Math.min(estimate, cur.incrementAndGet(index) + prev.get(index));
+            }
+            return estimate;
+        }
+
+        void rotate() {
+            AtomicIntegerArray recycled = previous;
+            for (int i = 0; i < recycled.length(); i++) recycled.set(i, 0);
+            previous = current;
+            current = recycled;
+        }
+
+        private static int bucket(int key, int row) {
+            return (int) (mix(key * 0x9E3779B97F4A7C15L + row) & (WIDTH - 1));
+        }
+    }
+
+    private static long mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
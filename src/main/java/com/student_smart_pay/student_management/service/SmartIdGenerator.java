@@ -0,0 +1,216 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.Roles;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Smart ids for NFC cards: PREFIX-CAMPUS-YEAR-NNNNNNNNNNNNNNNNNNN (no CAMPUS for self-registration).
+// The number is Snowflake-style: ms since 2024-01-01 (41 bits) | node id (10 bits) | sequence (12 bits).
+// On one node the (ms, sequence) pair lives in a single AtomicLong that only moves forward by CAS,
+// so ids never repeat (no locks, no retries on the unique nfc_token constraint); across replicas
+// they stay unique as long as each one has its own node id: either app.smart-id.node-id, or
+// (when it is -1) a "smart-id-node-N" lease taken from job_leases and renewed in the background.
+// A leased node stops handing out ids once its lease could have run out without a renewal,
+// since another replica may already own that node id by then.
+@Service
+@DependsOn("entityManagerFactory") // job_leases must exist before the lease is taken
+public class SmartIdGenerator implements SmartIdSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmartIdGenerator.class);
+
+    private static final long EPOCH_MS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int DIGITS = 19; // Fixed width: Long.MAX_VALUE has 19 digits
+
+    private static final String LEASE_PREFIX = "smart-id-node-";
+
+    // -1 = lease a free node id from the database (set it explicitly only where every replica gets its own)
+    @Value("${app.smart-id.node-id:-1}")
+    private long configuredNodeId;
+
+    @Value("${app.smart-id.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Autowired
+    private JobLeaseService leases;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // (ms since EPOCH_MS << SEQUENCE_BITS) | sequence, of the last id handed out
+    private final AtomicLong last = new AtomicLong();
+
+    // "2026" and the ms range it covers, so the year isn't formatted per id
+    private volatile YearWindow year = new YearWindow(0, 0, "");
+
+    private long nodeBits;
+
+    // Leased node ids only: the lease name, and the System.nanoTime() by which it must have been renewed
+    private String leaseName;
+    private volatile long leaseDeadline;
+    private ScheduledExecutorService leaseKeeper;
+
+    private record YearWindow(long fromMs, long untilMs, String text) {}
+
+    @PostConstruct
+    void init() {
+        long nodeId = configuredNodeId;
+        if (nodeId > MAX_NODE) {
+            throw new IllegalStateException("app.smart-id.node-id must be between 0 and " + MAX_NODE);
+        }
+        if (nodeId < 0) nodeId = leaseNodeId();
+        nodeBits = nodeId << SEQUENCE_BITS;
+        logger.info("🆔 Smart id generator ready (node {})", nodeId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (leaseKeeper == null) return;
+        leaseKeeper.shutdownNow();
+        try {
+            leases.release(leaseName);
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not release {}: {}", leaseName, e.getMessage());
+        }
+    }
+
+    // =========================================================================
+    // 1. SINGLE IDS (createStudent, registerUser)
+    // =========================================================================
+    @Override
+    public String next(Roles role, String campusCode) {
+        return format(role, campusCode, reservePacked(1));
+    }
+
+    // =========================================================================
+    // 2. BLOCKS (Bulk import / reissue: one CAS for a whole batch)
+    // =========================================================================
+    public Block reserve(int count) {
+        if (count < 1) throw new IllegalArgumentException("count must be positive");
+        return new Block(reservePacked(count), count);
+    }
+
+    // Consecutive ids; safe to share between the pool threads building one batch
+    public final class Block implements SmartIdSource {
+        private final long first;
+        private final int count;
+        private final AtomicInteger used = new AtomicInteger();
+
+        private Block(long first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        @Override
+        public String next(Roles role, String campusCode) {
+            int i = used.getAndIncrement();
+            if (i >= count) throw new IllegalStateException("Smart id block exhausted");
+            return format(role, campusCode, first + i);
+        }
+    }
+
+    // --- INTERNALS ---
+    // New millisecond: the sequence restarts at 0. Same millisecond (or the clock stepped back):
+    // keep counting from the last id; a full sequence just carries into the next millisecond.
+    private long reservePacked(int count) {
+        while (true) {
+            long previous = last.get();
+            long now = (System.currentTimeMillis() - EPOCH_MS) << SEQUENCE_BITS;
+            long first = Math.max(now, previous + 1);
+            if (last.compareAndSet(previous, first + count - 1)) return first;
+        }
+    }
+
+    private String format(Roles role, String campusCode, long packed) {
+        if (leaseName != null && System.nanoTime() - leaseDeadline > 0) {
+            throw new IllegalStateException("Smart id node lease " + leaseName + " could not be renewed");
+        }
+        long ms = packed >>> SEQUENCE_BITS;
+        long id = (ms << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (packed & SEQUENCE_MASK);
+
+        StringBuilder out = new StringBuilder(48);
+        out.append(prefix(role)).append('-');
+        if (campusCode != null) out.append(campusCode).append('-');
+        out.append(year(ms + EPOCH_MS)).append('-');
+        String digits = Long.toString(id);
+        for (int i = digits.length(); i < DIGITS; i++) out.append('0');
+        return out.append(digits).toString();
+    }
+
+    private String year(long epochMs) {
+        YearWindow window = year;
+        if (epochMs >= window.fromMs() && epochMs < window.untilMs()) return window.text();
+        int y = Instant.ofEpochMilli(epochMs).atZone(zone).getYear();
+        window = new YearWindow(
+                LocalDate.of(y, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                LocalDate.of(y + 1, 1, 1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                Integer.toString(y));
+        year = window;
+        return window.text();
+    }
+
+    private static String prefix(Roles role) {
+        return switch (role) {
+            case STUDENT -> "STU";
+            case GUARD -> "GRD";
+            case CAMPUS_ADMIN -> "CAD";
+            case SUPER_ADMIN -> "SUP";
+            case GUEST -> "GST";
+        };
+    }
+
+    // --- NODE LEASE ---
+    // First free "smart-id-node-N"; renewed every third of its lifetime. The deadline is taken
+    // from before each renewal, so it never outlasts the lease the database actually granted.
+    private long leaseNodeId() {
+        Duration ttl = Duration.ofSeconds(Math.max(3, leaseSeconds));
+        for (long nodeId = 0; nodeId <= MAX_NODE; nodeId++) {
+            long startedAt = System.nanoTime();
+            if (!leases.tryAcquire(LEASE_PREFIX + nodeId, ttl)) continue;
+
+            leaseName = LEASE_PREFIX + nodeId;
+            leaseDeadline = startedAt + ttl.toNanos();
+            leaseKeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "smart-id-lease");
+                t.setDaemon(true);
+                return t;
+            });
+            long renewMs = ttl.toMillis() / 3;
+            leaseKeeper.scheduleWithFixedDelay(() -> renew(ttl), renewMs, renewMs, TimeUnit.MILLISECONDS);
+            logger.info("🔒 Leased smart id node {} as {}", nodeId, leases.ownerId());
+            return nodeId;
+        }
+        throw new IllegalStateException("No free smart id node id (all " + (MAX_NODE + 1) + " are leased)");
+    }
+
+    private void renew(Duration ttl) {
+        long startedAt = System.nanoTime();
+        try {
+            if (leases.tryAcquire(leaseName, ttl)) {
+                leaseDeadline = startedAt + ttl.toNanos();
+            } else {
+                logger.error("❌ {} was taken by another replica; no new smart ids until it is free again", leaseName);
+            }
+        } catch (Exception e) {
+            logger.error("❌ Could not renew {}: {}", leaseName, e.getMessage());
+        }
+    }
+}
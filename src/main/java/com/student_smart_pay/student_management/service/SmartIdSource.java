@@ -0,0 +1,9 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.Roles;
+
+// Hands out smart ids: SmartIdGenerator itself, or a block reserved from it for a bulk run.
+// campusCode null = no campus segment (self-registration format).
+public interface SmartIdSource {
+    String next(Roles role, String campusCode);
+}
@@ -0,0 +1,279 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.BulkAction;
+import com.student_smart_pay.student_management.dto.BulkActionRequestDto;
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Campus;
+import com.student_smart_pay.student_management.repository.CampusRepository;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Card lifecycle in bulk: POST /api/v1/students/bulk-actions.
+// Ids are handled in chunks. Each chunk is one set-based UPDATE ... WHERE id IN (...)
+// AND campus_id = ? (the SQL form of validateCampusAccess), then one projection query
+// that reports which ids were in scope and refreshes the credential index
+// (gate lookups, offline rosters and the JWT credentials-version check all read it).
+// A single chunk runs inline; anything larger becomes a BulkJob.
+@Service
+public class StudentBulkActionService {
+
+    private static final String SCOPE_CLAUSE = " AND campus_id = :campusId";
+
+    // Guards on the current value keep reruns idempotent (no second version bump)
+    private static final Map<BulkAction, String> UPDATE_SQL = Map.of(
+            BulkAction.SUSPEND,
+            "UPDATE students SET is_active = false, credentials_version = credentials_version + 1 " +
+            "WHERE id IN (:ids) AND is_active = true",
+            BulkAction.REACTIVATE,
+            "UPDATE students SET is_active = true WHERE id IN (:ids) AND is_active = false",
+            BulkAction.EXTEND_VALIDITY,
+            "UPDATE students SET valid_until = :validUntil WHERE id IN (:ids) AND valid_until < :validUntil"
+    );
+
+    private static final String REISSUE_SQL = "UPDATE students SET nfc_token = ?, nfc_token_hash = ? WHERE id = ?";
+
+    @Value("${app.students.bulk-actions.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.students.bulk-actions.max-ids:50000}")
+    private int maxIds;
+
+    // 0 = one thread per core (reissue is AES-GCM + HMAC per card)
+    @Value("${app.students.bulk-actions.crypto-threads:0}")
+    private int cryptoThreads;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CampusRepository campusRepository;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private BulkJobService bulkJobs;
+
+    @Autowired
+    private SmartIdGenerator smartIds;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private ExecutorService cryptoPool;
+
+    // Row = position in the request's studentIds (1-based), for error reports
+    private record Target(int row, long id) {}
+
+    @PostConstruct
+    void start() {
+        int threads = cryptoThreads > 0 ? cryptoThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger n = new AtomicInteger();
+        cryptoPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bulk-reissue-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cryptoPool.shutdownNow();
+    }
+
+    // =========================================================================
+    // 1. START (Validates and scopes now; inline for one chunk, else a background job)
+    // =========================================================================
+    public BulkJob start(UserPrincipal requester, BulkActionRequestDto request) {
+        Long campusScope = studentService.adminCampusScope(requester, "Access Denied: Only Admins can run bulk actions.");
+
+        BulkAction action = request.getAction();
+        if (action == null) throw new IllegalArgumentException("action is required");
+        if (request.getStudentIds() == null || request.getStudentIds().isEmpty()) {
+            throw new IllegalArgumentException("studentIds must not be empty");
+        }
+        if (request.getStudentIds().size() > maxIds) {
+            throw new IllegalArgumentException("Too many students (max " + maxIds + " per request)");
+        }
+        LocalDateTime validUntil = request.getValidUntil();
+        if (action == BulkAction.EXTEND_VALIDITY && (validUntil == null || !validUntil.isAfter(LocalDateTime.now()))) {
+            throw new IllegalArgumentException("EXTEND_VALIDITY needs a future validUntil");
+        }
+
+        // Duplicates are dropped; the first occurrence keeps its row number
+        List<Target> targets = new ArrayList<>(request.getStudentIds().size());
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < request.getStudentIds().size(); i++) {
+            Long id = request.getStudentIds().get(i);
+            if (id == null) throw new IllegalArgumentException("studentIds must not contain null");
+            if (seen.add(id)) targets.add(new Target(i + 1, id));
+        }
+
+        String type = "BULK_" + action.name();
+        if (targets.size() <= chunkSize) {
+            return bulkJobs.runNow(type, requester, targets.size(), job -> run(requester, action, campusScope, validUntil, targets, job));
+        }
+        return bulkJobs.submit(type, requester, targets.size(), job -> run(requester, action, campusScope, validUntil, targets, job));
+    }
+
+    private void run(UserPrincipal requester, BulkAction action, Long campusScope, LocalDateTime validUntil,
+                     List<Target> targets, BulkJob job) {
+        Map<Long, Campus> campuses = new HashMap<>();
+        for (int from = 0; from < targets.size(); from += chunkSize) {
+            List<Target> chunk = new ArrayList<>(targets.subList(from, Math.min(from + chunkSize, targets.size())));
+
+            // Same rule as deleteStudent: an admin can't lock themselves out
+            if (action == BulkAction.SUSPEND) {
+                chunk.removeIf(t -> {
+                    if (t.id() != requester.id()) return false;
+                    job.error(t.row(), String.valueOf(t.id()), "You cannot suspend your own account.");
+                    return true;
+                });
+                if (chunk.isEmpty()) continue;
+            }
+
+            if (action == BulkAction.REISSUE_TOKEN) {
+                reissueChunk(chunk, campusScope, campuses, job);
+            } else {
+                updateChunk(action, chunk, campusScope, validUntil, job);
+            }
+        }
+    }
+
+    // =========================================================================
+    // 2. SUSPEND / REACTIVATE / EXTEND (One UPDATE per chunk)
+    // =========================================================================
+    private void updateChunk(BulkAction action, List<Target> chunk, Long campusScope, LocalDateTime validUntil, BulkJob job) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids(chunk));
+        String sql = UPDATE_SQL.get(action);
+        if (campusScope != null) {
+            sql += SCOPE_CLAUSE;
+            params.addValue("campusId", campusScope);
+        }
+        if (validUntil != null) params.addValue("validUntil", Timestamp.valueOf(validUntil));
+        jdbc.update(sql, params);
+
+        // Rows the guard skipped (already suspended, already valid longer) still count as done
+        report(chunk, refresh(chunk, campusScope), job);
+    }
+
+    // =========================================================================
+    // 3. REISSUE (New smart ids built in parallel, then one JDBC batch)
+    // =========================================================================
+    // Re-encrypting the same smart id would not help: the blind index hashes the
+    // decrypted id, so a lost card would still match. Each card gets a new id.
+    private void reissueChunk(List<Target> chunk, Long campusScope, Map<Long, Campus> campuses, BulkJob job) {
+        List<GateCredential> current = inScope(studentRepository.findGateCredentialsByIdIn(ids(chunk)), campusScope);
+
+        // 1. Campus abbreviations for the smart id prefix (each campus loaded once per job)
+        Set<Long> missing = new HashSet<>();
+        for (GateCredential c : current) {
+            if (c.campusId() != null && !campuses.containsKey(c.campusId())) missing.add(c.campusId());
+        }
+        if (!missing.isEmpty()) campusRepository.findAllById(missing).forEach(c -> campuses.put(c.getId(), c));
+
+        // 2. Encrypt + hash on the pool (smart ids for the chunk reserved in one step)
+        if (current.isEmpty()) {
+            report(chunk, current, job);
+            return;
+        }
+        SmartIdGenerator.Block ids = smartIds.reserve(current.size());
+        List<Future<StudentService.CardToken>> futures = new ArrayList<>(current.size());
+        for (GateCredential c : current) {
+            Campus campus = c.campusId() != null ? campuses.get(c.campusId()) : null;
+            futures.add(cryptoPool.submit(() -> studentService.issueCardToken(c.role(), campus, ids)));
+        }
+        List<Object[]> args = new ArrayList<>(current.size());
+        for (int i = 0; i < current.size(); i++) {
+            try {
+                StudentService.CardToken card = futures.get(i).get();
+                args.add(new Object[]{card.nfcToken(), card.nfcTokenHash(), current.get(i).id()});
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Card generation failed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Reissue interrupted");
+            }
+        }
+
+        // 3. One batch; on a unique-key clash fall back to row by row so only that card fails
+        Set<Long> failed = new HashSet<>();
+        try {
+            jdbc.getJdbcOperations().batchUpdate(REISSUE_SQL, args);
+        } catch (DataAccessException batchFailure) {
+            for (Object[] row : args) {
+                try {
+                    jdbc.getJdbcOperations().update(REISSUE_SQL, row);
+                } catch (DataAccessException e) {
+                    failed.add((Long) row[2]);
+                }
+            }
+        }
+
+        List<GateCredential> refreshed = refresh(chunk, campusScope);
+        for (Target t : chunk) {
+            if (failed.contains(t.id())) job.error(t.row(), String.valueOf(t.id()), "Could not reissue card, try again.");
+        }
+        chunk.removeIf(t -> failed.contains(t.id()));
+        report(chunk, refreshed, job);
+    }
+
+    // --- HELPERS ---
+    // Re-read the chunk as projections and push it into the index; returns the in-scope rows
+    private List<GateCredential> refresh(List<Target> chunk, Long campusScope) {
+        List<GateCredential> rows = inScope(studentRepository.findGateCredentialsByIdIn(ids(chunk)), campusScope);
+        credentialIndex.refresh(rows);
+        return rows;
+    }
+
+    private static List<GateCredential> inScope(List<GateCredential> rows, Long campusScope) {
+        if (campusScope == null) return rows;
+        List<GateCredential> scoped = new ArrayList<>(rows.size());
+        for (GateCredential c : rows) if (Objects.equals(campusScope, c.campusId())) scoped.add(c);
+        return scoped;
+    }
+
+    private static void report(List<Target> chunk, List<GateCredential> found, BulkJob job) {
+        Set<Long> ids = new HashSet<>();
+        for (GateCredential c : found) ids.add(c.id());
+        for (Target t : chunk) {
+            if (ids.contains(t.id())) {
+                job.success(1);
+            } else {
+                job.error(t.row(), String.valueOf(t.id()), "Student not found or belongs to a different campus.");
+            }
+        }
+    }
+
+    private static List<Long> ids(List<Target> chunk) {
+        List<Long> ids = new ArrayList<>(chunk.size());
+        for (Target t : chunk) ids.add(t.id());
+        return ids;
+    }
+}
@@ -0,0 +1,353 @@
+package com.student_smart_pay.student_management.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.student_smart_pay.student_management.dto.RegisterRequestDto;
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Campus;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.CampusRepository;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bulk onboarding: POST /api/v1/students/bulk.
+// The upload is parsed as a stream into compact rows, then a BulkJob:
+//   1. resolves campuses and already-taken emails with one set query each,
+//   2. builds students (BCrypt + smart id encryption) on a bounded pool, one batch at a time,
+//      with the batch's smart ids reserved from SmartIdGenerator in one step,
+//   3. writes each batch with a single JDBC batch INSERT in its own transaction (all or nothing,
+//      so the row-by-row fallback never meets half a batch). Connector/J only sends it as one
+//      multi-row INSERT with rewriteBatchedStatements=true on the JDBC URL.
+// Validation, campus and validity rules are StudentService.createStudent's.
+@Service
+public class StudentImportService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO students (nfc_token, nfc_token_hash, qr_secret, name, email, password, role, valid_until, " +
+            "wallet_balance, is_first_login, is_active, credentials_version, campus_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int EMAIL_CHUNK = 1000;
+
+    @Value("${app.students.import.max-rows:20000}")
+    private int maxRows;
+
+    @Value("${app.students.import.batch-size:500}")
+    private int batchSize;
+
+    // 0 = one thread per core (BCrypt is pure CPU)
+    @Value("${app.students.import.hash-threads:0}")
+    private int hashThreads;
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CampusRepository campusRepository;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private BulkJobService bulkJobs;
+
+    @Autowired
+    private SmartIdGenerator smartIds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ExecutorService hashPool;
+    private TransactionTemplate transactionTemplate;
+
+    public enum Format { CSV, JSON }
+
+    private record PendingRow(int row, RegisterRequestDto dto, Campus campus) {}
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger n = new AtomicInteger();
+        hashPool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "student-import-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashPool.shutdownNow();
+    }
+
+    // =========================================================================
+    // 1. PARSE (Request thread; CSV with a header row, or JSON array / NDJSON)
+    // =========================================================================
+    // CSV columns: name,email,password[,role][,campusId] (quoted fields may not span lines)
+    public List<RegisterRequestDto> parse(InputStream in, Format format) throws IOException {
+        List<RegisterRequestDto> rows = new ArrayList<>();
+        if (format == Format.JSON) {
+            try (MappingIterator<RegisterRequestDto> it = objectMapper.readerFor(RegisterRequestDto.class).readValues(in)) {
+                while (it.hasNext()) add(rows, it.next());
+            }
+            return rows;
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) return rows;
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header.replace("\uFEFF", "")); // Excel exports start with a BOM
+        for (int i = 0; i < names.size(); i++) columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        for (String required : List.of("name", "email", "password")) {
+            if (!columns.containsKey(required)) throw new IllegalArgumentException("CSV header is missing column: " + required);
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            List<String> fields = splitCsv(line);
+            RegisterRequestDto dto = new RegisterRequestDto();
+            dto.setName(field(fields, columns.get("name")));
+            dto.setEmail(field(fields, columns.get("email")));
+            dto.setPassword(field(fields, columns.get("password")));
+            String role = field(fields, columns.get("role"));
+            dto.setRole(role != null ? parseRole(role, rows.size() + 1) : null);
+            String campusId = field(fields, columns.get("campusid"));
+            dto.setCampusId(campusId != null ? parseCampusId(campusId, rows.size() + 1) : null);
+            add(rows, dto);
+        }
+        return rows;
+    }
+
+    private void add(List<RegisterRequestDto> rows, RegisterRequestDto dto) {
+        if (rows.size() >= maxRows) throw new IllegalArgumentException("Too many rows (max " + maxRows + " per upload)");
+        rows.add(dto);
+    }
+
+    // =========================================================================
+    // 2. START (Checks permission now, imports in the background)
+    // =========================================================================
+    public BulkJob startImport(UserPrincipal requester, List<RegisterRequestDto> rows) {
+        studentService.checkCanCreate(requester);
+        if (rows.isEmpty()) throw new IllegalArgumentException("No rows to import.");
+        return bulkJobs.submit("STUDENT_IMPORT", requester, rows.size(), job -> runImport(requester, rows, job));
+    }
+
+    private void runImport(UserPrincipal requester, List<RegisterRequestDto> rows, BulkJob job) {
+        // 1. One query for every campus the file mentions (Super Admin) or the admin's own campus
+        Map<Long, Campus> campuses = new HashMap<>();
+        Set<Long> campusIds = new HashSet<>();
+        if (requester.role() == Roles.SUPER_ADMIN) {
+            for (RegisterRequestDto dto : rows) if (dto.getCampusId() != null) campusIds.add(dto.getCampusId());
+        } else if (requester.campusId() != null) {
+            campusIds.add(requester.campusId());
+        }
+        campusRepository.findAllById(campusIds).forEach(c -> campuses.put(c.getId(), c));
+
+        // 2. One set query (per 1000 emails) for duplicates already in the DB
+        Set<String> taken = findTakenEmails(rows);
+
+        // 3. Validate, then build + insert one batch at a time
+        Set<String> seen = new HashSet<>();
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < rows.size(); i++) {
+            int rowNumber = i + 1;
+            RegisterRequestDto dto = rows.get(i);
+            String problem = validate(dto, seen, taken);
+            if (problem != null) {
+                job.error(rowNumber, dto.getEmail(), problem);
+                continue;
+            }
+            try {
+                Campus campus = studentService.resolveTargetCampus(requester, dto.getCampusId(),
+                        id -> Optional.ofNullable(campuses.get(id)));
+                batch.add(new PendingRow(rowNumber, dto, campus));
+            } catch (IllegalArgumentException e) {
+                job.error(rowNumber, dto.getEmail(), e.getMessage());
+            }
+            if (batch.size() == batchSize) {
+                writeBatch(batch, job);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) writeBatch(batch, job);
+    }
+
+    private String validate(RegisterRequestDto dto, Set<String> seen, Set<String> taken) {
+        if (dto.getName() == null || dto.getName().isBlank()) return "Name is required";
+        if (dto.getEmail() == null || dto.getEmail().isBlank() || dto.getEmail().indexOf('@') < 1) return "Valid email is required";
+        if (dto.getPassword() == null || dto.getPassword().isBlank()) return "Password is required";
+        String email = dto.getEmail().toLowerCase(Locale.ROOT);
+        if (taken.contains(email)) return "Email already in use.";
+        if (!seen.add(email)) return "Duplicate email in upload";
+        return null;
+    }
+
+    private Set<String> findTakenEmails(List<RegisterRequestDto> rows) {
+        Set<String> taken = new HashSet<>();
+        List<String> chunk = new ArrayList<>(EMAIL_CHUNK);
+        for (RegisterRequestDto dto : rows) {
+            if (dto.getEmail() == null || dto.getEmail().isBlank()) continue;
+            chunk.add(dto.getEmail());
+            if (chunk.size() == EMAIL_CHUNK) {
+                studentRepository.findExistingEmails(chunk).forEach(e -> taken.add(e.toLowerCase(Locale.ROOT)));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) studentRepository.findExistingEmails(chunk).forEach(e -> taken.add(e.toLowerCase(Locale.ROOT)));
+        return taken;
+    }
+
+    // =========================================================================
+    // 3. BUILD + WRITE (One batch: parallel hashing, then one JDBC batch)
+    // =========================================================================
+    private void writeBatch(List<PendingRow> batch, BulkJob job) {
+        SmartIdGenerator.Block ids = smartIds.reserve(batch.size());
+        List<Future<Student>> futures = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            futures.add(hashPool.submit(() -> studentService.buildStudent(row.dto(), row.campus(), ids)));
+        }
+
+        List<PendingRow> built = new ArrayList<>(batch.size());
+        List<Student> students = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                students.add(futures.get(i).get());
+                built.add(batch.get(i));
+            } catch (ExecutionException e) {
+                job.error(batch.get(i).row(), batch.get(i).dto().getEmail(), e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted");
+            }
+        }
+        if (students.isEmpty()) return;
+
+        List<Object[]> args = new ArrayList<>(students.size());
+        for (Student s : students) args.add(insertArgs(s));
+        try {
+            // Without the transaction a driver that stops at the failing row would keep the rows before it
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, args));
+            job.success(students.size());
+        } catch (DataAccessException batchFailure) {
+            // Someone created one of these emails meanwhile: the batch rolled back, fall back to row by row
+            for (int i = 0; i < students.size(); i++) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, args.get(i));
+                    job.success(1);
+                } catch (DuplicateKeyException e) {
+                    job.error(built.get(i).row(), students.get(i).getEmail(), "Email already in use.");
+                } catch (DataAccessException e) {
+                    job.error(built.get(i).row(), students.get(i).getEmail(), e.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        // New cards go into the gate index (ids come back with this one query)
+        List<String> hashes = new ArrayList<>(students.size());
+        for (Student s : students) hashes.add(s.getNfcTokenHash());
+        studentRepository.findByNfcTokenHashIn(hashes).forEach(credentialIndex::upsert);
+    }
+
+    private static Object[] insertArgs(Student s) {
+        return new Object[]{
+                s.getNfcToken(), s.getNfcTokenHash(), s.getQrSecret(), s.getName(), s.getEmail(), s.getPassword(),
+                s.getRole().name(), Timestamp.valueOf(s.getValidUntil()), s.getWalletBalance(), s.isFirstLogin(),
+                s.isActive(), s.getCredentialsVersion(), s.getCampus() != null ? s.getCampus().getId() : null
+        };
+    }
+
+    // --- CSV HELPERS ---
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(ch);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private static String field(List<String> fields, Integer index) {
+        if (index == null || index >= fields.size()) return null;
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Roles parseRole(String value, int row) {
+        try {
+            return Roles.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Row " + row + ": unknown role " + value);
+        }
+    }
+
+    private static Long parseCampusId(String value, int row) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Row " + row + ": invalid campusId " + value);
+        }
+    }
+}
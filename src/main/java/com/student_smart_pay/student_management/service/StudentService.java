@@ -1,15 +1,23 @@
 package com.student_smart_pay.student_management.service;
 
+import com.student_smart_pay.student_management.dto.HistoryCursor;
+import com.student_smart_pay.student_management.dto.KeysetPage;
+import com.student_smart_pay.student_management.dto.MyAccessLogView;
 import com.student_smart_pay.student_management.dto.RegisterRequestDto;
 import com.student_smart_pay.student_management.dto.Roles;
-import com.student_smart_pay.student_management.models.AccessLog;
+import com.student_smart_pay.student_management.dto.StudentCursor;
+import com.student_smart_pay.student_management.dto.StudentFilter;
+import com.student_smart_pay.student_management.dto.UserDto;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.dto.WalletEntryView;
 import com.student_smart_pay.student_management.models.Campus;
 import com.student_smart_pay.student_management.models.Student;
 import com.student_smart_pay.student_management.repository.AccessLogRepository;
 import com.student_smart_pay.student_management.repository.CampusRepository;
 import com.student_smart_pay.student_management.repository.StudentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -18,13 +26,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.UUID; // 👈 IMPORT UUID
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Service
 public class StudentService {
@@ -44,19 +50,74 @@ public class StudentService {
     @Autowired
     private CryptoService cryptoService; // 👈 INJECT CRYPTO SERVICE
 
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private BlindIndexService blindIndex;
+
+    @Autowired
+    private SmartIdGenerator smartIds;
+
+    @Autowired
+    private WalletLedgerService walletLedger;
+
+    // Page size for full roster streams (one keyset query per page)
+    @Value("${app.students.stream.page-size:1000}")
+    private int streamPageSize;
+
     // ... (Read Operations remain the same) ...
-    public List<Student> getAllStudents(Student requester) {
-        if (requester.getRole() == Roles.SUPER_ADMIN) {
-            return studentRepository.findAll();
-        } else if (requester.getRole() == Roles.CAMPUS_ADMIN) {
-            Campus adminCampus = validateCampusAdmin(requester);
-            return studentRepository.findByCampusId(adminCampus.getId());
-        } else {
-            throw new SecurityException("Access Denied: You do not have permission to view students.");
+    // =========================================================================
+    // 📋 ROSTER LISTING (Keyset pages of UserDto projections)
+    // =========================================================================
+    // Scope is resolved first so streaming callers can fail before writing anything.
+    public StudentFilter resolveListingFilter(UserPrincipal requester, Long campusId, Roles role, Boolean active, String search) {
+        Long adminCampus = adminCampusScope(requester, "Access Denied: You do not have permission to view students.");
+        Long scopedCampus = adminCampus != null ? adminCampus : campusId;
+        String pattern = search == null || search.isBlank() ? null : likePrefix(search.trim().toLowerCase(Locale.ROOT));
+        return new StudentFilter(scopedCampus, role, active, pattern);
+    }
+
+    // Typed text is matched literally: '%' and '_' in a name or email are not wildcards
+    private static String likePrefix(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    // Pass back the previous page's nextCursor (with the same sort) to continue
+    public KeysetPage<UserDto> listStudents(StudentFilter filter, StudentCursor.Sort sort, String cursor, int limit) {
+        StudentCursor position = cursor != null ? StudentCursor.decode(cursor, sort) : StudentCursor.first(sort);
+        Pageable pageRequest = PageRequest.of(0, Math.max(1, Math.min(limit, KeysetPage.MAX_SIZE)));
+        Slice<UserDto> rows = fetchListing(filter, position, pageRequest);
+        return new KeysetPage<>(rows.getContent(), StudentCursor.next(rows, sort));
+    }
+
+    // Full roster pull: walks id-ordered pages so only one page is ever held in memory
+    public long forEachStudent(StudentFilter filter, Consumer<UserDto> sink) {
+        Pageable pageRequest = PageRequest.of(0, streamPageSize);
+        StudentCursor position = StudentCursor.first(StudentCursor.Sort.ID);
+        long count = 0;
+        while (true) {
+            Slice<UserDto> rows = fetchListing(filter, position, pageRequest);
+            for (UserDto row : rows.getContent()) {
+                sink.accept(row);
+                count++;
+            }
+            if (!rows.hasNext() || rows.getContent().isEmpty()) return count;
+            UserDto last = rows.getContent().get(rows.getContent().size() - 1);
+            position = new StudentCursor(StudentCursor.Sort.ID, "", last.getId());
         }
     }
 
-    public Student getStudentById(Student requester, Long studentId) {
+    private Slice<UserDto> fetchListing(StudentFilter filter, StudentCursor position, Pageable pageRequest) {
+        if (position.sort() == StudentCursor.Sort.NAME) {
+            return studentRepository.findListingByName(filter.campusId(), filter.role(), filter.active(),
+                    filter.search(), position.name(), position.id(), pageRequest);
+        }
+        return studentRepository.findListingById(filter.campusId(), filter.role(), filter.active(),
+                filter.search(), position.id(), pageRequest);
+    }
+
+    public Student getStudentById(UserPrincipal requester, Long studentId) {
         Student targetStudent = studentRepository.findById(studentId)
                 .orElseThrow(() -> new IllegalArgumentException("Student not found with ID: " + studentId));
         validateCampusAccess(requester, targetStudent);
@@ -67,11 +128,9 @@ public class StudentService {
     // ➕ CREATE OPERATION (Admin Only + Encryption)
     // =========================================================================
     @Transactional
-    public Student createStudent(Student requester, RegisterRequestDto dto) {
+    public Student createStudent(UserPrincipal requester, RegisterRequestDto dto) {
         // 1. Permission Check
-        if (requester.getRole() != Roles.SUPER_ADMIN && requester.getRole() != Roles.CAMPUS_ADMIN) {
-            throw new SecurityException("Access Denied: Only Admins can create users.");
-        }
+        checkCanCreate(requester);
 
         // 2. Validate Duplicates
         if (studentRepository.findByEmail(dto.getEmail()).isPresent()) {
@@ -79,9 +138,30 @@ public class StudentService {
         }
 
         // 3. Resolve Campus
-        Campus targetCampus = resolveTargetCampus(requester, dto.getCampusId());
+        Campus targetCampus = resolveTargetCampus(requester, dto.getCampusId(), campusRepository::findById);
 
-        // 4. Build User
+        // 4. Build User (hashing, smart id encryption, validity)
+        Student newUser = buildStudent(dto, targetCampus);
+
+        Student saved = studentRepository.save(newUser);
+        credentialIndex.upsert(saved);
+        return saved;
+    }
+
+    // --- CREATE RULES (Shared with StudentImportService) ---
+    void checkCanCreate(UserPrincipal requester) {
+        if (requester.role() != Roles.SUPER_ADMIN && requester.role() != Roles.CAMPUS_ADMIN) {
+            throw new SecurityException("Access Denied: Only Admins can create users.");
+        }
+    }
+
+    Student buildStudent(RegisterRequestDto dto, Campus targetCampus) {
+        return buildStudent(dto, targetCampus, smartIds);
+    }
+
+    // CPU-heavy (BCrypt + AES-GCM) and DB-free, so bulk imports can run it on a pool
+    // (with a block of smart ids reserved for the whole batch)
+    Student buildStudent(RegisterRequestDto dto, Campus targetCampus, SmartIdSource ids) {
         Student newUser = new Student();
         newUser.setName(dto.getName());
         newUser.setEmail(dto.getEmail());
@@ -92,17 +172,16 @@ public class StudentService {
         newUser.setCampus(targetCampus);
         newUser.setWalletBalance(BigDecimal.ZERO);
         
-        // 5. 🔒 SECURITY GENERATION
-        // A. Generate the Raw ID
-        String rawSmartId = generateSmartId(newUser.getRole(), targetCampus);
-        
-        // B. Encrypt it (So the database and physical card hold ciphertext)
-        newUser.setNfcToken(cryptoService.encrypt(rawSmartId));
+        // 🔒 SECURITY GENERATION
+        // A + B. Fresh smart id, encrypted (so the database and physical card hold ciphertext)
+        CardToken card = issueCardToken(newUser.getRole(), targetCampus, ids);
+        newUser.setNfcToken(card.nfcToken());
+        newUser.setNfcTokenHash(card.nfcTokenHash());
 
         // C. Generate QR Secret (For the mobile app)
         newUser.setQrSecret(UUID.randomUUID().toString());
 
-        // 6. Set Validity
+        // Set Validity
         if (newUser.getRole() == Roles.STUDENT) {
             newUser.setValidUntil(LocalDateTime.now().plusYears(4));
         } else if (newUser.getRole() == Roles.GUEST) {
@@ -110,87 +189,98 @@ public class StudentService {
         } else {
             newUser.setValidUntil(LocalDateTime.now().plusYears(1));
         }
-
-        return studentRepository.save(newUser);
+        return newUser;
     }
 
     // ... (Update, Delete, Logs, Helpers remain the same) ...
 
     @Transactional
-    public Student updateStudent(Student requester, Long studentId, RegisterRequestDto updates) {
+    public Student updateStudent(UserPrincipal requester, Long studentId, RegisterRequestDto updates) {
         Student existingStudent = getStudentById(requester, studentId);
         if (updates.getName() != null && !updates.getName().isBlank()) existingStudent.setName(updates.getName());
         if (updates.getEmail() != null && !updates.getEmail().equals(existingStudent.getEmail())) {
             if (studentRepository.findByEmail(updates.getEmail()).isPresent()) throw new IllegalArgumentException("Email already taken.");
             existingStudent.setEmail(updates.getEmail());
         }
-        if (requester.getRole() == Roles.SUPER_ADMIN && updates.getCampusId() != null) {
+        if (requester.role() == Roles.SUPER_ADMIN && updates.getCampusId() != null) {
             Campus newCampus = campusRepository.findById(updates.getCampusId())
                     .orElseThrow(() -> new IllegalArgumentException("Invalid Campus ID"));
             existingStudent.setCampus(newCampus);
         }
-        return studentRepository.save(existingStudent);
+        Student saved = studentRepository.save(existingStudent);
+        credentialIndex.upsert(saved);
+        return saved;
     }
 
     @Transactional
-    public void deleteStudent(Student requester, Long studentId) {
+    public void deleteStudent(UserPrincipal requester, Long studentId) {
         Student existingStudent = getStudentById(requester, studentId);
-        if (existingStudent.getId().equals(requester.getId())) throw new IllegalArgumentException("You cannot delete your own account.");
+        if (existingStudent.getId().equals(requester.id())) throw new IllegalArgumentException("You cannot delete your own account.");
         studentRepository.delete(existingStudent);
+        credentialIndex.evict(existingStudent.getId());
     }
 
-    public List<Map<String, Object>> getMyLogs(Student requester, LocalDateTime start, LocalDateTime end, int limit) {
+    public KeysetPage<MyAccessLogView> getMyLogs(UserPrincipal requester, LocalDateTime start, LocalDateTime end,
+                                                  String cursor, int limit) {
         if (end == null) end = LocalDateTime.now();
         if (start == null) start = end.minusDays(30);
-        Pageable pageRequest = PageRequest.of(0, limit);
-        Page<AccessLog> logs = accessLogRepository.findByStudentIdAndTimestampBetweenOrderByTimestampDesc(
-                requester.getId(), start, end, pageRequest
+        HistoryCursor position = cursor != null ? HistoryCursor.decode(cursor) : HistoryCursor.first(end);
+        Pageable pageRequest = PageRequest.of(0, Math.max(1, Math.min(limit, KeysetPage.MAX_SIZE)));
+        Slice<MyAccessLogView> logs = accessLogRepository.findStudentHistory(
+                requester.id(), start, position.timestamp(), position.id(), pageRequest
         );
-        return logs.getContent().stream().map(log -> {
-            Map<String, Object> map = new HashMap<>();
-            map.put("time", log.getTimestamp());
-            map.put("gate", log.getGateId());
-            map.put("status", log.getStatus());
-            map.put("reason", log.getDenialReason());
-            return map;
-        }).collect(Collectors.toList());
+        return new KeysetPage<>(logs.getContent(), HistoryCursor.next(logs));
+    }
+
+    // Own wallet ledger, newest first
+    public KeysetPage<WalletEntryView> getMyWalletStatement(UserPrincipal requester, String cursor, int limit) {
+        return walletLedger.statement(requester.id(), cursor, limit);
     }
 
     // --- HELPERS ---
-    private String generateSmartId(Roles role, Campus campus) {
-        String prefix = switch (role) {
-            case STUDENT -> "STU";
-            case GUARD -> "GRD";
-            case CAMPUS_ADMIN -> "CAD";
-            case SUPER_ADMIN -> "SUP";
-            default -> "USR";
-        };
-        String campAbrev = (campus != null && campus.getAbrev() != null) ? campus.getAbrev().toUpperCase() : "UNIV";
-        LocalDateTime now = LocalDateTime.now();
-        String year = String.valueOf(now.getYear());
-        String timeComponent = now.format(DateTimeFormatter.ofPattern("MMddHHmmssSSS"));
-        int randomSuffix = ThreadLocalRandom.current().nextInt(10, 99);
-        return String.format("%s-%s-%s-%s%d", prefix, campAbrev, year, timeComponent, randomSuffix);
-    }
-
-    private Campus validateCampusAdmin(Student admin) {
-        if (admin.getCampus() == null) throw new IllegalStateException("System Error: Campus Admin has no assigned campus.");
-        return admin.getCampus();
-    }
-
-    private void validateCampusAccess(Student requester, Student target) {
-        if (requester.getRole() == Roles.SUPER_ADMIN) return;
-        if (requester.getRole() == Roles.CAMPUS_ADMIN) {
-            Campus adminCampus = validateCampusAdmin(requester);
-            if (!adminCampus.getId().equals(target.getCampus().getId())) throw new SecurityException("Access Denied: This student belongs to a different campus.");
+    private static String campusCode(Campus campus) {
+        return (campus != null && campus.getAbrev() != null) ? campus.getAbrev().toUpperCase(Locale.ROOT) : "UNIV";
+    }
+
+    private Long validateCampusAdmin(UserPrincipal admin) {
+        if (admin.campusId() == null) throw new IllegalStateException("System Error: Campus Admin has no assigned campus.");
+        return admin.campusId();
+    }
+
+    private void validateCampusAccess(UserPrincipal requester, Student target) {
+        if (requester.role() == Roles.SUPER_ADMIN) return;
+        if (requester.role() == Roles.CAMPUS_ADMIN) {
+            Long adminCampus = validateCampusAdmin(requester);
+            if (target.getCampus() == null || !adminCampus.equals(target.getCampus().getId())) throw new SecurityException("Access Denied: This student belongs to a different campus.");
             return;
         }
-        if (!requester.getId().equals(target.getId())) throw new SecurityException("Access Denied.");
+        if (!requester.id().equals(target.getId())) throw new SecurityException("Access Denied.");
     }
 
-    private Campus resolveTargetCampus(Student requester, Long requestedCampusId) {
-        if (requester.getRole() == Roles.CAMPUS_ADMIN) return requester.getCampus();
+    // Set-based scope for bulk operations: null = every campus (Super Admin), else the admin's own campus
+    Long adminCampusScope(UserPrincipal requester, String deniedMessage) {
+        if (requester.role() == Roles.SUPER_ADMIN) return null;
+        if (requester.role() == Roles.CAMPUS_ADMIN) return validateCampusAdmin(requester);
+        throw new SecurityException(deniedMessage);
+    }
+
+    // A new card: fresh smart id, encrypted, plus its blind index (also used by bulk reissue).
+    // Pure CPU, so callers may run it on a pool.
+    CardToken issueCardToken(Roles role, Campus campus, SmartIdSource ids) {
+        String nfcToken = cryptoService.encrypt(ids.next(role, campusCode(campus)));
+        return new CardToken(nfcToken, blindIndex.hash(nfcToken));
+    }
+
+    record CardToken(String nfcToken, String nfcTokenHash) {}
+
+    // campusLookup lets bulk imports resolve from a prefetched map instead of one query per row
+    // (a Campus Admin's own campus is looked up the same way)
+    Campus resolveTargetCampus(UserPrincipal requester, Long requestedCampusId, Function<Long, Optional<Campus>> campusLookup) {
+        if (requester.role() == Roles.CAMPUS_ADMIN) {
+            return campusLookup.apply(validateCampusAdmin(requester))
+                    .orElseThrow(() -> new IllegalStateException("System Error: Campus Admin's campus no longer exists."));
+        }
         if (requestedCampusId == null) throw new IllegalArgumentException("Super Admin must specify a Campus ID.");
-        return campusRepository.findById(requestedCampusId).orElseThrow(() -> new IllegalArgumentException("Invalid Campus ID"));
+        return campusLookup.apply(requestedCampusId).orElseThrow(() -> new IllegalArgumentException("Invalid Campus ID"));
     }
 }
\ No newline at end of file
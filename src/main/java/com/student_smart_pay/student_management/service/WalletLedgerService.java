@@ -0,0 +1,349 @@
+package com.student_smart_pay.student_management.service;
+
+import com.student_smart_pay.student_management.dto.KeysetPage;
+import com.student_smart_pay.student_management.dto.LedgerCursor;
+import com.student_smart_pay.student_management.dto.LedgerEntryType;
+import com.student_smart_pay.student_management.dto.WalletEntryView;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Wallet money state: the append-only wallet_ledger plus per-wallet snapshots.
+// Balance = wallet_snapshots row + the ledger entries after it, cached per wallet after
+// the first look. Appends are group-committed: callers queue their entry and wait, and one
+// writer thread puts everything queued into a single transaction (one multi-row INSERT,
+// one additive wallet_balance UPDATE per student) with a single commit for the batch.
+// Request threads never touch the students row, so top-ups and charges on different
+// wallets don't queue behind each other's row locks or commits.
+// Callers serialize per wallet (PaymentService's stripe lock); the unique (student_id, seq)
+// catches another replica that appended from the same balance. Callers must not hold a
+// pooled connection while they wait (no surrounding transaction, no JPA reads earlier in
+// the request under open-in-view), or a burst can leave the writer without one.
+@Service
+public class WalletLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLedgerService.class);
+
+    // Ledger amounts are positive; this turns them into balance deltas
+    static final String SIGNED_SUM = "COALESCE(SUM(CASE WHEN l.type = 'CREDIT' THEN l.amount ELSE -l.amount END), 0)";
+
+    private static final String LOAD_SQL =
+            "SELECT s.balance, s.through_seq, " + SIGNED_SUM + ", MAX(l.seq) FROM wallet_snapshots s " +
+            "LEFT JOIN wallet_ledger l ON l.student_id = s.student_id AND l.seq > s.through_seq " +
+            "WHERE s.student_id = ? GROUP BY s.balance, s.through_seq";
+    // First use of a wallet: its opening balance is whatever students.wallet_balance holds
+    private static final String OPEN_SQL =
+            "INSERT INTO wallet_snapshots (student_id, balance, through_seq, taken_at) " +
+            "SELECT id, wallet_balance, 0, ? FROM students WHERE id = ?";
+    private static final String INSERT_PREFIX =
+            "INSERT INTO wallet_ledger (student_id, seq, type, amount, balance_after, reference, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?)";
+    private static final String BALANCE_SQL = "UPDATE students SET wallet_balance = wallet_balance + ? WHERE id = ?";
+    private static final String STATEMENT_SQL =
+            "SELECT seq, type, amount, balance_after, reference, created_at FROM wallet_ledger " +
+            "WHERE student_id = ? AND seq < ? ORDER BY seq DESC LIMIT ?";
+    private static final String FIND_SQL =
+            "SELECT student_id, seq, type, amount, balance_after, reference, created_at FROM wallet_ledger WHERE reference = ?";
+
+    private static final RowMapper<WalletEntryView> ENTRY_MAPPER = (rs, n) -> new WalletEntryView(
+            rs.getLong("seq"),
+            LedgerEntryType.valueOf(rs.getString("type")),
+            rs.getBigDecimal("amount"),
+            rs.getBigDecimal("balance_after"),
+            rs.getString("reference"),
+            rs.getTimestamp("created_at").toLocalDateTime());
+
+    // Upper bound per commit; batches form on their own while the previous commit is in flight
+    @Value("${app.wallet.ledger.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.wallet.ledger.queue-capacity:10000}")
+    private int queueCapacity;
+
+    // How long a caller waits for its batch to commit before answering "retry"
+    @Value("${app.wallet.ledger.commit-timeout-ms:5000}")
+    private long commitTimeoutMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private TransactionTemplate transactionTemplate;
+    private BlockingQueue<Posting> queue;
+    private ExecutorService writer;
+    private volatile boolean running;
+    private String fullBatchSql;
+    private Timer commitTimer;
+    private DistributionSummary batchSizes;
+
+    // Last known balance per wallet. Only read or replaced under the caller's wallet lock.
+    private final Map<Long, Balance> wallets = new ConcurrentHashMap<>();
+
+    // Balance of a wallet and the seq of the last entry it includes
+    public record Balance(BigDecimal amount, long seq) {}
+
+    // A ledger row found by its reference (idempotent retries)
+    public record Stored(long studentId, WalletEntryView entry) {}
+
+    // reference runs on the writer thread inside the ledger transaction, so a caller can
+    // write its own row there (e.g. the payments row) and name the entry after its id
+    private record Posting(long studentId, long seq, LedgerEntryType type, BigDecimal amount, BigDecimal balanceAfter,
+                           Supplier<String> reference, LocalDateTime createdAt, CompletableFuture<Void> done) {}
+
+    @PostConstruct
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        fullBatchSql = buildInsertSql(batchSize);
+
+        Gauge.builder("wallet.ledger.queue.depth", queue, BlockingQueue::size)
+                .description("Ledger entries waiting for a commit")
+                .register(meterRegistry);
+        commitTimer = Timer.builder("wallet.ledger.commit")
+                .description("Time to write and commit one ledger batch")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("wallet.ledger.batch.size")
+                .description("Entries per ledger commit")
+                .register(meterRegistry);
+
+        running = true;
+        writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "wallet-ledger-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        writer.execute(this::writeLoop);
+    }
+
+    // =========================================================================
+    // 1. BALANCE (Caller holds the wallet lock)
+    // =========================================================================
+    public Balance balance(long studentId) {
+        Balance cached = wallets.get(studentId);
+        if (cached != null) return cached;
+        Balance loaded = load(studentId);
+        wallets.put(studentId, loaded);
+        return loaded;
+    }
+
+    // Drop the cached value and re-read (another replica may have moved this wallet)
+    public Balance refresh(long studentId) {
+        wallets.remove(studentId);
+        return balance(studentId);
+    }
+
+    private Balance load(long studentId) {
+        List<Balance> rows = jdbcTemplate.query(LOAD_SQL, this::mapBalance, studentId);
+        if (rows.isEmpty()) {
+            try {
+                if (jdbcTemplate.update(OPEN_SQL, Timestamp.valueOf(LocalDateTime.now()), studentId) == 0) {
+                    throw new IllegalArgumentException("Student not found");
+                }
+            } catch (DuplicateKeyException e) {
+                // Another replica opened it first
+            }
+            rows = jdbcTemplate.query(LOAD_SQL, this::mapBalance, studentId);
+        }
+        return rows.get(0);
+    }
+
+    private Balance mapBalance(ResultSet rs, int n) throws SQLException {
+        BigDecimal balance = rs.getBigDecimal(1).add(rs.getBigDecimal(3));
+        long lastSeq = rs.getLong(4);
+        return new Balance(balance, rs.wasNull() ? rs.getLong(2) : lastSeq);
+    }
+
+    // =========================================================================
+    // 2. APPEND (Caller holds the wallet lock; returns once the entry is committed)
+    // =========================================================================
+    // A DuplicateKeyException means the reference was already used or another replica
+    // took this seq; either way the cached balance is dropped and the caller decides.
+    public Balance post(long studentId, LedgerEntryType type, BigDecimal amount, Supplier<String> reference) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // The entry commits on its own; the caller's transaction could still roll back
+            throw new IllegalStateException("Ledger entries can't be posted inside a transaction");
+        }
+        Balance current = balance(studentId);
+        BigDecimal after = type == LedgerEntryType.CREDIT ? current.amount().add(amount) : current.amount().subtract(amount);
+        if (after.signum() < 0) throw new IllegalArgumentException("Insufficient funds");
+
+        Posting posting = new Posting(studentId, current.seq() + 1, type, amount, after, reference,
+                LocalDateTime.now(), new CompletableFuture<>());
+        if (!running || !queue.offer(posting)) {
+            throw new IllegalStateException("Wallet ledger is busy, retry with the same Idempotency-Key");
+        }
+
+        try {
+            posting.done().get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            wallets.remove(studentId);
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw new IllegalStateException("Ledger write failed", e.getCause());
+        } catch (TimeoutException e) {
+            // It may still commit; the reference makes the caller's retry safe either way
+            wallets.remove(studentId);
+            throw new IllegalStateException("Ledger commit timed out, retry with the same Idempotency-Key");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            wallets.remove(studentId);
+            throw new IllegalStateException("Interrupted while waiting for the ledger");
+        }
+
+        Balance next = new Balance(after, posting.seq());
+        wallets.put(studentId, next);
+        return next;
+    }
+
+    public Optional<Stored> findByReference(String reference) {
+        return jdbcTemplate.query(FIND_SQL, (rs, n) -> new Stored(rs.getLong("student_id"), ENTRY_MAPPER.mapRow(rs, n)), reference)
+                .stream().findFirst();
+    }
+
+    // =========================================================================
+    // 3. STATEMENT (Keyset by seq, newest first)
+    // =========================================================================
+    // Pass back the previous page's nextCursor to continue
+    public KeysetPage<WalletEntryView> statement(long studentId, String cursor, int limit) {
+        LedgerCursor position = cursor != null ? LedgerCursor.decode(cursor) : LedgerCursor.first();
+        int size = Math.max(1, Math.min(limit, KeysetPage.MAX_SIZE));
+        List<WalletEntryView> rows = jdbcTemplate.query(STATEMENT_SQL, ENTRY_MAPPER, studentId, position.seq(), size + 1);
+        String next = LedgerCursor.next(rows, size);
+        return new KeysetPage<>(rows.size() > size ? new ArrayList<>(rows.subList(0, size)) : rows, next);
+    }
+
+    // =========================================================================
+    // 4. GROUP COMMIT (Writer thread only)
+    // =========================================================================
+    private void writeLoop() {
+        List<Posting> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Posting first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            commit(batch);
+            batch.clear();
+        }
+    }
+
+    private void commit(List<Posting> batch) {
+        long start = System.nanoTime();
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            batch.forEach(p -> p.done().complete(null));
+        } catch (RuntimeException batchFailure) {
+            if (batch.size() == 1) {
+                batch.get(0).done().completeExceptionally(batchFailure);
+            } else {
+                // One bad entry (a replayed reference, a stale seq) must not fail the rest
+                for (Posting p : batch) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> write(List.of(p)));
+                        p.done().complete(null);
+                    } catch (RuntimeException e) {
+                        p.done().completeExceptionally(e);
+                    }
+                }
+            }
+        }
+        commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+    }
+
+    private void write(List<Posting> batch) {
+        Object[] args = new Object[batch.size() * 7];
+        // Sorted, so two replicas' batches lock students rows in the same order
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        int i = 0;
+        for (Posting p : batch) {
+            args[i++] = p.studentId();
+            args[i++] = p.seq();
+            args[i++] = p.type().name();
+            args[i++] = p.amount();
+            args[i++] = p.balanceAfter();
+            args[i++] = p.reference().get();
+            args[i++] = Timestamp.valueOf(p.createdAt());
+            deltas.merge(p.studentId(), p.type() == LedgerEntryType.CREDIT ? p.amount() : p.amount().negate(), BigDecimal::add);
+        }
+        jdbcTemplate.update(batch.size() == batchSize ? fullBatchSql : buildInsertSql(batch.size()), args);
+
+        // students.wallet_balance stays as a read-only copy for profiles and listings
+        List<Object[]> updates = new ArrayList<>(deltas.size());
+        deltas.forEach((id, delta) -> updates.add(new Object[]{delta, id}));
+        jdbcTemplate.batchUpdate(BALANCE_SQL, updates);
+    }
+
+    private static String buildInsertSql(int rows) {
+        StringBuilder sb = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDER.length() + 2));
+        sb.append(INSERT_PREFIX);
+        for (int r = 0; r < rows; r++) {
+            if (r > 0) sb.append(", ");
+            sb.append(ROW_PLACEHOLDER);
+        }
+        return sb.toString();
+    }
+
+    // =========================================================================
+    // 5. GRACEFUL SHUTDOWN (Commit what is queued before the DataSource closes)
+    // =========================================================================
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) writer.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Posting> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) commit(rest);
+        logger.info("✅ Wallet ledger writer drained");
+    }
+}
@@ -0,0 +1,118 @@
+package com.student_smart_pay.student_management.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Moves every wallet's snapshot up to its latest ledger entry, so computing a balance
+// only ever sums the few entries since the last tick. The same pass reconciles:
+// snapshot + ledger tail must equal students.wallet_balance (both change in the same
+// ledger transaction, and one statement sees both consistently). A mismatch means
+// something wrote wallet_balance behind the ledger's back; it is logged and counted.
+// Each update is guarded on the old through_seq, so replicas can all run the tick.
+@Service
+public class WalletSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletSnapshotService.class);
+
+    private static final String TAIL_SQL =
+            "SELECT s.student_id, s.balance, s.through_seq, " + WalletLedgerService.SIGNED_SUM + ", MAX(l.seq), st.wallet_balance " +
+            "FROM wallet_snapshots s " +
+            "LEFT JOIN wallet_ledger l ON l.student_id = s.student_id AND l.seq > s.through_seq " +
+            "LEFT JOIN students st ON st.id = s.student_id " +
+            "GROUP BY s.student_id, s.balance, s.through_seq, st.wallet_balance";
+    private static final String ADVANCE_SQL =
+            "UPDATE wallet_snapshots SET balance = ?, through_seq = ?, taken_at = ? WHERE student_id = ? AND through_seq = ?";
+
+    @Value("${app.wallet.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.wallet.snapshot.interval-ms:300000}")
+    private long intervalMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ScheduledExecutorService snapshotter;
+    private Counter driftCounter;
+
+    @PostConstruct
+    void init() {
+        driftCounter = meterRegistry.counter("wallet.ledger.drift");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) return;
+
+        snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "wallet-snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotter.scheduleWithFixedDelay(this::tick, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (snapshotter != null) snapshotter.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            logger.error("❌ Wallet snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    // =========================================================================
+    // 1. SNAPSHOT + RECONCILE (Background tick; also callable for ops)
+    // =========================================================================
+    // Returns how many wallets moved forward
+    public int snapshot() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> updates = new ArrayList<>();
+        int[] drifted = {0};
+        jdbcTemplate.query(TAIL_SQL, rs -> {
+            long studentId = rs.getLong(1);
+            long throughSeq = rs.getLong(3);
+            BigDecimal balance = rs.getBigDecimal(2).add(rs.getBigDecimal(4));
+            long lastSeq = rs.getLong(5);
+            boolean hasTail = !rs.wasNull();
+            BigDecimal column = rs.getBigDecimal(6); // Null once the student is deleted
+
+            if (column != null && column.compareTo(balance) != 0) {
+                drifted[0]++;
+                logger.warn("⚠️ Wallet #{} drifted: ledger says {}, students.wallet_balance says {}", studentId, balance, column);
+            }
+            if (hasTail) updates.add(new Object[]{balance, lastSeq, now, studentId, throughSeq});
+        });
+
+        if (!updates.isEmpty()) jdbcTemplate.batchUpdate(ADVANCE_SQL, updates);
+        if (drifted[0] > 0) driftCounter.increment(drifted[0]);
+        if (!updates.isEmpty()) logger.debug("📸 Snapshotted {} wallets", updates.size());
+        return updates.size();
+    }
+}
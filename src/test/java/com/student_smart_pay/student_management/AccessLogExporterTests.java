@@ -0,0 +1,133 @@
+package com.student_smart_pay.student_management;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.student_smart_pay.student_management.service.AccessLogExporter;
+import com.student_smart_pay.student_management.service.AccessLogExporter.Format;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogExporterTests {
+
+    private static final LocalDateTime T = LocalDateTime.of(2026, 3, 31, 8, 0);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbc;
+    private AccessLogExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(database);
+        // Just the columns the export reads
+        jdbc.execute("CREATE TABLE campuses (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbc.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, campus_id BIGINT)");
+        jdbc.execute("CREATE TABLE access_logs (id BIGINT PRIMARY KEY, student_id BIGINT, snapshot_name VARCHAR(255), " +
+                "nfc_token VARCHAR(255), gate_id VARCHAR(255), \"TIMESTAMP\" TIMESTAMP, status INT, denial_reason VARCHAR(255))");
+        jdbc.update("INSERT INTO campuses VALUES (1, 'Tech University'), (2, 'Red Rock, \"Main\" Campus')");
+        jdbc.update("INSERT INTO students VALUES (10, 1), (20, 2)");
+
+        exporter = new AccessLogExporter();
+        ReflectionTestUtils.setField(exporter, "dataSource", database);
+        ReflectionTestUtils.setField(exporter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(exporter, "fetchSize", 100);
+        ReflectionTestUtils.invokeMethod(exporter, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void csvQuotesOnlyFieldsThatNeedIt() throws IOException {
+        log(1, 10, "Alice Student", "DYNAMIC-QR", "G1", 0, null, T);
+        log(2, 20, "Smith, \"JJ\"", "tok", "G2", 1, "Line one\nline two", T.plusSeconds(1));
+        log(3, null, null, "garbage", "G\r1", 1, "INVALID_TOKEN", T.plusSeconds(2));
+
+        String csv = csv(null);
+
+        assertEquals(String.join("\r\n",
+                "id,time,studentName,nfcToken,status,reason,gateId,campus",
+                "1,2026-03-31T08:00,Alice Student,DYNAMIC-QR,ALLOWED,,G1,Tech University",
+                "2,2026-03-31T08:00:01,\"Smith, \"\"JJ\"\"\",tok,DENIED,\"Line one\nline two\",G2,\"Red Rock, \"\"Main\"\" Campus\"",
+                "3,2026-03-31T08:00:02,Unknown,garbage,DENIED,INVALID_TOKEN,\"G\r1\",",
+                ""), csv);
+    }
+
+    @Test
+    void rangeIsHalfOpenAndCampusFilterApplies() throws IOException {
+        log(1, 10, "Alice", "a", "G1", 0, null, T.minusSeconds(1));
+        log(2, 10, "Alice", "a", "G1", 0, null, T);
+        log(3, 20, "Charlie", "c", "G2", 0, null, T.plusMinutes(1));
+        log(4, 10, "Alice", "a", "G1", 0, null, T.plusHours(1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = exporter.export(1L, T, T.plusHours(1), Format.CSV, false, out);
+
+        assertEquals(1, rows);
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\r\n2,"));
+    }
+
+    @Test
+    void ndjsonEscapesAndGzipRoundTrips() throws IOException {
+        log(1, 20, "Smith, \"JJ\"", "tok", "G2", 1, "Line one\nline two", T);
+        log(2, 10, "Alice", "a", "G1", 0, null, T.plusSeconds(1));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, exporter.export(null, T, T.plusHours(1), Format.NDJSON, true, out));
+
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(body.endsWith("\n"));
+
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertEquals("Smith, \"JJ\"", first.get("studentName").asText());
+        assertEquals("Line one\nline two", first.get("reason").asText());
+        assertEquals("DENIED", first.get("status").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("reason").isNull());
+    }
+
+    @Test
+    void emptyRangeWritesOnlyTheHeader() throws IOException {
+        assertEquals("id,time,studentName,nfcToken,status,reason,gateId,campus\r\n", csv(null));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, exporter.export(null, T, T.plusHours(1), Format.NDJSON, false, out));
+        assertEquals(0, out.size());
+    }
+
+    // --- HELPERS ---
+    private String csv(Long campusId) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(campusId, T, T.plusHours(1), Format.CSV, false, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void log(long id, Integer studentId, String name, String token, String gate, int status, String reason,
+                     LocalDateTime time) {
+        jdbc.update("INSERT INTO access_logs VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                id, studentId, name, token, gate, Timestamp.valueOf(time), status, reason);
+    }
+}
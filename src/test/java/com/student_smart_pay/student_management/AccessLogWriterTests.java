@@ -0,0 +1,172 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.Status;
+import com.student_smart_pay.student_management.models.AccessLog;
+import com.student_smart_pay.student_management.service.AccessLogWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessLogWriterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private EmbeddedDatabase database;
+    private FlakyJdbcTemplate jdbc;
+    private AccessLogWriter writer;
+
+    // Fails the next `failures` writes with a transient error, and counts every write
+    private static class FlakyJdbcTemplate extends JdbcTemplate {
+        final AtomicInteger failures = new AtomicInteger();
+        final AtomicInteger writes = new AtomicInteger();
+
+        FlakyJdbcTemplate(EmbeddedDatabase database) {
+            super(database);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            writes.incrementAndGet();
+            if (failures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new TransientDataAccessResourceException("database unavailable");
+            }
+            return super.update(sql, args);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new FlakyJdbcTemplate(database);
+        jdbc.execute("CREATE TABLE access_logs (id BIGINT AUTO_INCREMENT PRIMARY KEY, student_id BIGINT, " +
+                "snapshot_name VARCHAR(255), snapshot_email VARCHAR(255), nfc_token VARCHAR(255) NOT NULL, " +
+                "gate_id VARCHAR(255), campus_id BIGINT, \"TIMESTAMP\" TIMESTAMP, status INT, denial_reason VARCHAR(255))");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) ReflectionTestUtils.invokeMethod(writer, "shutdown");
+        database.shutdown();
+    }
+
+    @Test
+    void badRowInABatchIsDeadLetteredAndTheRestAreWritten() {
+        writer = writer(100, 3, 10);
+        writer.enqueue(log("G1", "tok-1"));
+        writer.enqueue(log("G1", null)); // Violates NOT NULL
+        writer.enqueue(log("G1", "tok-3"));
+
+        drain();
+
+        assertEquals(List.of("tok-1", "tok-3"), tokens());
+        assertEquals(1.0, registry.counter("gate.access_log.dead_lettered").count());
+        assertEquals(0, writer.getQueueDepth());
+    }
+
+    @Test
+    void transientFailureIsRetriedOnTheNextFlush() {
+        writer = writer(100, 3, 10);
+        writer.enqueue(log("G1", "tok-1"));
+        writer.enqueue(log("G1", "tok-2"));
+        jdbc.failures.set(1);
+
+        drain();
+        assertEquals(2, writer.getQueueDepth());
+        assertTrue(tokens().isEmpty());
+
+        drain();
+        assertEquals(List.of("tok-1", "tok-2"), tokens());
+        assertEquals(0.0, registry.counter("gate.access_log.dead_lettered").count());
+    }
+
+    @Test
+    void rowsAreDeadLetteredAfterMaxAttempts() {
+        writer = writer(100, 3, 10);
+        writer.enqueue(log("G1", "tok-1"));
+        jdbc.failures.set(Integer.MAX_VALUE);
+
+        drain();
+        drain();
+        assertEquals(1, writer.getQueueDepth());
+        drain(); // Third failed flush
+
+        assertEquals(0, writer.getQueueDepth());
+        assertEquals(1.0, registry.counter("gate.access_log.dead_lettered").count());
+        drain();
+        assertEquals(3, jdbc.writes.get());
+    }
+
+    @Test
+    void fullQueueSpillsWithoutWritingOnTheCallersThread() {
+        writer = writer(2, 3, 1);
+        // Flusher busy elsewhere: nothing drains while the scans arrive
+        ((ScheduledExecutorService) ReflectionTestUtils.getField(writer, "flusher")).shutdown();
+
+        for (int i = 1; i <= 4; i++) writer.enqueue(log("G1", "tok-" + i));
+
+        // Two queued, one spilled, one past the spill buffer
+        assertEquals(0, jdbc.writes.get());
+        assertEquals(2.0, registry.counter("gate.access_log.overflow").count());
+        assertEquals(1.0, registry.counter("gate.access_log.dead_lettered").count());
+        assertEquals(3, writer.getQueueDepth());
+
+        drain();
+        assertEquals(List.of("tok-1", "tok-2", "tok-3"), tokens());
+    }
+
+    @Test
+    void scansDuringShutdownAreNotRejected() {
+        writer = writer(100, 3, 10);
+        ReflectionTestUtils.invokeMethod(writer, "shutdown");
+
+        // A full batch asks the (stopped) flusher for a flush
+        assertDoesNotThrow(() -> {
+            for (int i = 0; i < 100; i++) writer.enqueue(log("G1", "tok-" + i));
+        });
+        writer = null;
+    }
+
+    // --- HELPERS ---
+    private AccessLogWriter writer(int queueCapacity, int maxAttempts, int spillCapacity) {
+        AccessLogWriter writer = new AccessLogWriter();
+        ReflectionTestUtils.setField(writer, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(writer, "meterRegistry", registry);
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 60_000L); // Flushes are driven by the test
+        ReflectionTestUtils.setField(writer, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(writer, "maxAttempts", maxAttempts);
+        ReflectionTestUtils.setField(writer, "spillCapacity", spillCapacity);
+        ReflectionTestUtils.invokeMethod(writer, "start");
+        return writer;
+    }
+
+    private void drain() {
+        ReflectionTestUtils.invokeMethod(writer, "drain");
+    }
+
+    private static AccessLog log(String gateId, String token) {
+        AccessLog log = new AccessLog();
+        log.setGateId(gateId);
+        log.setNfcToken(token);
+        log.setTimestamp(LocalDateTime.of(2026, 3, 31, 8, 0));
+        log.setStatus(Status.ALLOWED);
+        return log;
+    }
+
+    private List<String> tokens() {
+        return jdbc.queryForList("SELECT nfc_token FROM access_logs ORDER BY id", String.class);
+    }
+}
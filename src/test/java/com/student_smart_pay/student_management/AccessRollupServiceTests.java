@@ -0,0 +1,143 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.AccessStatsRow;
+import com.student_smart_pay.student_management.dto.Status;
+import com.student_smart_pay.student_management.service.AccessRollupService;
+import com.student_smart_pay.student_management.service.AccessRollupService.Dimension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessRollupServiceTests {
+
+    private static final LocalDateTime T = LocalDateTime.of(2026, 3, 31, 8, 10);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(database);
+        // Just the columns the fold reads and writes
+        jdbc.execute("CREATE TABLE students (id BIGINT PRIMARY KEY, campus_id BIGINT)");
+        jdbc.execute("CREATE TABLE access_logs (id BIGINT PRIMARY KEY, student_id BIGINT, campus_id BIGINT, " +
+                "gate_id VARCHAR(255), \"TIMESTAMP\" TIMESTAMP, status INT, denial_reason VARCHAR(255))");
+        jdbc.execute("CREATE TABLE rollup_watermarks (name VARCHAR(64) PRIMARY KEY, last_id BIGINT NOT NULL)");
+        jdbc.execute("CREATE TABLE access_rollups (hour_start TIMESTAMP NOT NULL, campus_id BIGINT NOT NULL, " +
+                "gate_id VARCHAR(255) NOT NULL, status INT NOT NULL, denial_reason VARCHAR(255) NOT NULL, " +
+                "entry_count BIGINT NOT NULL, PRIMARY KEY (hour_start, campus_id, gate_id, status, denial_reason))");
+        jdbc.update("INSERT INTO students VALUES (10, 1), (20, 2)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void everyRowIsCountedOnceAcrossTicksAndRestarts() {
+        AccessRollupService rollups = rollups(30_000);
+        for (int id = 1; id <= 3; id++) log(id, 10, 1L, "G1", T, Status.ALLOWED, null);
+
+        assertEquals(3, rollups.catchUp());
+        assertEquals(0, rollups.catchUp());
+        log(4, 10, 1L, "G1", T, Status.ALLOWED, null);
+
+        AccessRollupService restarted = rollups(30_000);
+        assertEquals(1, restarted.catchUp());
+        assertEquals(4, restarted.getWatermark());
+        assertEquals(4, total(restarted));
+    }
+
+    @Test
+    void missingIdHoldsTheWatermarkUntilItCommits() {
+        AccessRollupService rollups = rollups(30_000);
+        log(1, 10, 1L, "G1", T, Status.ALLOWED, null);
+        log(2, 10, 1L, "G1", T, Status.ALLOWED, null);
+        log(4, 10, 1L, "G1", T, Status.ALLOWED, null); // 3 still in flight
+
+        assertEquals(2, rollups.catchUp());
+        assertEquals(2, rollups.getWatermark());
+        assertEquals(0, rollups.catchUp());
+
+        log(3, 10, 1L, "G1", T, Status.DENIED, "EXPIRED");
+        assertEquals(2, rollups.catchUp());
+        assertEquals(4, rollups.getWatermark());
+        assertEquals(4, total(rollups));
+    }
+
+    @Test
+    void idThatNeverCommitsIsSkippedAfterTheGrace() throws InterruptedException {
+        AccessRollupService rollups = rollups(200);
+        log(1, 10, 1L, "G1", T, Status.ALLOWED, null);
+        log(4, 10, 1L, "G1", T, Status.ALLOWED, null); // 2 and 3 rolled back
+
+        assertEquals(1, rollups.catchUp());
+        assertEquals(1, rollups.getWatermark());
+        Thread.sleep(250);
+
+        assertEquals(1, rollups.catchUp());
+        assertEquals(4, rollups.getWatermark());
+    }
+
+    @Test
+    void campusIsTheGuardsThenTheStudentsAndHoursAreBuckets() {
+        AccessRollupService rollups = rollups(30_000);
+        log(1, 10, 2L, "G1", T, Status.ALLOWED, null);                  // Guard's campus wins
+        log(2, 10, null, "G1", T.plusMinutes(40), Status.ALLOWED, null); // Older row: student's campus
+        log(3, null, null, "G9", T.plusHours(1), Status.DENIED, "INVALID_TOKEN");
+        rollups.catchUp();
+
+        List<AccessStatsRow> byCampus = rollups.query(null, T.minusHours(1), T.plusHours(2),
+                Set.of(Dimension.CAMPUS), null, null);
+        assertEquals(List.of(
+                new AccessStatsRow(null, null, null, null, null, 1),
+                new AccessStatsRow(1L, null, null, null, null, 1),
+                new AccessStatsRow(2L, null, null, null, null, 1)), byCampus);
+
+        List<AccessStatsRow> byHour = rollups.query(null, T.minusHours(1), T.plusHours(2),
+                Set.of(Dimension.HOUR), null, null);
+        assertEquals(List.of(
+                new AccessStatsRow(null, null, LocalDateTime.of(2026, 3, 31, 8, 0), null, null, 2),
+                new AccessStatsRow(null, null, LocalDateTime.of(2026, 3, 31, 9, 0), null, null, 1)), byHour);
+
+        List<AccessStatsRow> denied = rollups.query(null, T.minusHours(1), T.plusHours(2),
+                Set.of(Dimension.REASON), Status.DENIED, null);
+        assertEquals(List.of(new AccessStatsRow(null, null, null, null, "INVALID_TOKEN", 1)), denied);
+    }
+
+    // --- HELPERS ---
+    private AccessRollupService rollups(long gapGraceMs) {
+        AccessRollupService rollups = new AccessRollupService();
+        ReflectionTestUtils.setField(rollups, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(rollups, "transactionManager", new DataSourceTransactionManager(database));
+        ReflectionTestUtils.setField(rollups, "enabled", true);
+        ReflectionTestUtils.setField(rollups, "batchSize", 100);
+        ReflectionTestUtils.setField(rollups, "gapGraceMs", gapGraceMs);
+        ReflectionTestUtils.invokeMethod(rollups, "init");
+        return rollups;
+    }
+
+    private void log(long id, Integer studentId, Long campusId, String gate, LocalDateTime time, Status status, String reason) {
+        jdbc.update("INSERT INTO access_logs VALUES (?, ?, ?, ?, ?, ?, ?)",
+                id, studentId, campusId, gate, Timestamp.valueOf(time), status.ordinal(), reason);
+    }
+
+    private static long total(AccessRollupService rollups) {
+        return rollups.query(null, T.minusHours(1), T.plusHours(1), Set.of(), null, null).get(0).count();
+    }
+}
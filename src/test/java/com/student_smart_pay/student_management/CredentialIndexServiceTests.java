@@ -0,0 +1,156 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.CredentialIndexService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CredentialIndexServiceTests {
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Two replicas' indexes over the same database; their timers never fire during a test
+    private CredentialIndexService podA;
+    private CredentialIndexService podB;
+
+    @BeforeEach
+    void startReplicas() {
+        podA = replica();
+        podB = replica();
+    }
+
+    @AfterEach
+    void stopReplicas() {
+        ReflectionTestUtils.invokeMethod(podA, "shutdown");
+        ReflectionTestUtils.invokeMethod(podB, "shutdown");
+    }
+
+    @Test
+    void writesInsideATransactionApplyOnlyAfterCommit() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        Long committed = tx.execute(status -> {
+            Student student = studentRepository.save(newStudent());
+            podA.upsert(student);
+            assertTrue(podA.findById(student.getId()).isEmpty());
+            return student.getId();
+        });
+        Long rolledBack = tx.execute(status -> {
+            Student student = studentRepository.save(newStudent());
+            podA.upsert(student);
+            status.setRollbackOnly();
+            return student.getId();
+        });
+
+        assertTrue(podA.findById(committed).isPresent());
+        assertTrue(podA.findById(rolledBack).isEmpty());
+        assertEquals(1, changes(committed));
+        assertEquals(0, changes(rolledBack)); // The change row rolled back with the write
+    }
+
+    @Test
+    void otherReplicasPickUpChangesFromTheFeed() {
+        Student student = studentRepository.save(newStudent());
+        podA.upsert(student);
+        podB.pollChanges();
+        assertTrue(podB.findById(student.getId()).orElseThrow().active());
+
+        student.setActive(false);
+        studentRepository.save(student);
+        podA.upsert(student);
+        assertTrue(podB.findById(student.getId()).orElseThrow().active()); // Not polled yet
+
+        assertTrue(podB.pollChanges() >= 1);
+        assertFalse(podB.findById(student.getId()).orElseThrow().active());
+        // Still inside the grace window, but already applied: not reloaded again
+        assertEquals(0, podB.pollChanges());
+    }
+
+    @Test
+    void feedCarriesDeletesToo() {
+        Student student = studentRepository.save(newStudent());
+        podA.upsert(student);
+        podB.pollChanges();
+        assertTrue(podB.findByNfcTokenHash(student.getNfcTokenHash()).isPresent());
+
+        studentRepository.delete(student);
+        podA.evict(student.getId());
+        podB.pollChanges();
+
+        assertTrue(podB.findById(student.getId()).isEmpty());
+        assertTrue(podB.findByNfcTokenHash(student.getNfcTokenHash()).isEmpty());
+    }
+
+    @Test
+    void resyncDropsCardsDeletedBehindTheFeedAndPrunesOldChanges() {
+        Student student = studentRepository.save(newStudent());
+        podB.cache(student);
+        // Deleted without a change row (e.g. by hand in the DB)
+        jdbcTemplate.update("DELETE FROM students WHERE id = ?", student.getId());
+        jdbcTemplate.update("INSERT INTO credential_changes (student_id, changed_at) " +
+                "VALUES (?, TIMESTAMPADD(HOUR, -48, CURRENT_TIMESTAMP))", student.getId());
+
+        podB.resync();
+
+        assertTrue(podB.findById(student.getId()).isEmpty());
+        assertEquals(0, changes(student.getId()));
+        // Cards that still exist survive the resync
+        List<GateCredential> seeded = studentRepository.findAllGateCredentials();
+        assertTrue(podB.findById(seeded.get(0).id()).isPresent());
+    }
+
+    // --- HELPERS ---
+    private CredentialIndexService replica() {
+        CredentialIndexService index = new CredentialIndexService();
+        ReflectionTestUtils.setField(index, "studentRepository", studentRepository);
+        ReflectionTestUtils.setField(index, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(index, "pollMs", 3_600_000L);
+        ReflectionTestUtils.setField(index, "resyncMs", 3_600_000L);
+        ReflectionTestUtils.setField(index, "graceSeconds", 30L);
+        ReflectionTestUtils.setField(index, "changeRetentionHours", 24L);
+        index.loadAll();
+        return index;
+    }
+
+    private Student newStudent() {
+        String token = "INDEX-" + UUID.randomUUID();
+        Student student = new Student();
+        student.setName("Index Test");
+        student.setEmail("index-" + UUID.randomUUID() + "@tech.edu");
+        student.setNfcToken(token);
+        student.setNfcTokenHash(UUID.randomUUID().toString());
+        student.setPassword("x");
+        student.setActive(true);
+        student.setValidUntil(LocalDateTime.now().plusYears(1));
+        student.setWalletBalance(BigDecimal.ZERO);
+        return student;
+    }
+
+    private int changes(Long studentId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM credential_changes WHERE student_id = ?", Integer.class, studentId);
+    }
+}
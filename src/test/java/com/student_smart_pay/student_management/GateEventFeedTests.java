@@ -0,0 +1,261 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.GateAlert;
+import com.student_smart_pay.student_management.dto.GateEvent;
+import com.student_smart_pay.student_management.dto.Status;
+import com.student_smart_pay.student_management.models.Campus;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.service.BlindIndexService;
+import com.student_smart_pay.student_management.service.CredentialIndexService;
+import com.student_smart_pay.student_management.service.GateEventBroadcaster;
+import com.student_smart_pay.student_management.service.GateEventFeed;
+import com.student_smart_pay.student_management.service.ScanAnomalyDetector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateEventFeedTests {
+
+    private static final LocalDateTime T = LocalDateTime.of(2026, 3, 31, 8, 10);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbc;
+    private final List<GateFeed> feeds = new ArrayList<>();
+
+    // Collects what the feed publishes instead of writing to SSE sockets
+    private static class RecordingBroadcaster extends GateEventBroadcaster {
+        final List<GateEvent> events = new ArrayList<>();
+
+        @Override
+        public void publish(GateEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public int subscriberCount() {
+            return 1;
+        }
+    }
+
+    // The HMAC needs the crypto keys; any stable key will do here
+    private static class PlainBlindIndex extends BlindIndexService {
+        @Override
+        public String hash(String nfcToken) {
+            return "h:" + nfcToken;
+        }
+    }
+
+    private record GateFeed(GateEventFeed feed, RecordingBroadcaster dashboard, ScanAnomalyDetector detector) {
+        List<Long> studentIds() {
+            return dashboard.events.stream().map(GateEvent::studentId).toList();
+        }
+
+        List<GateAlert.Type> alerts() {
+            return detector.recentAlerts(null, 10).stream().map(GateAlert::type).toList();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        jdbc = new JdbcTemplate(database);
+        jdbc.execute("CREATE TABLE access_logs (id BIGINT PRIMARY KEY, student_id BIGINT, snapshot_name VARCHAR(255), " +
+                "nfc_token VARCHAR(255), campus_id BIGINT, gate_id VARCHAR(255), \"TIMESTAMP\" TIMESTAMP, " +
+                "status INT, denial_reason VARCHAR(255))");
+        jdbc.execute("CREATE TABLE gate_throttle_releases (id BIGINT AUTO_INCREMENT PRIMARY KEY, campus_id BIGINT, " +
+                "gate_id VARCHAR(255) NOT NULL, released_at TIMESTAMP NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        feeds.forEach(f -> {
+            ReflectionTestUtils.invokeMethod(f.feed(), "shutdown");
+            ReflectionTestUtils.invokeMethod(f.detector(), "shutdown");
+        });
+        database.shutdown();
+    }
+
+    @Test
+    void everyReplicaDeliversEveryScanOnce() {
+        log(1, 10L, Status.ALLOWED, null); // Already there before the replicas started
+        GateFeed podA = feed(30_000);
+        GateFeed podB = feed(30_000);
+        log(2, 10L, Status.ALLOWED, null);  // Answered by pod A
+        log(3, 11L, Status.ALLOWED, null);  // Answered by pod B
+
+        assertEquals(2, podA.feed().poll());
+        assertEquals(2, podB.feed().poll());
+        assertEquals(0, podA.feed().poll());
+
+        assertEquals(List.of(10L, 11L), podA.studentIds());
+        assertEquals(List.of(10L, 11L), podB.studentIds());
+    }
+
+    @Test
+    void idCommittedLateIsDeliveredWhenItLands() {
+        GateFeed pod = feed(30_000);
+        log(1, 10L, Status.ALLOWED, null);
+        log(3, 12L, Status.ALLOWED, null); // 2 is another pod's batch, still committing
+
+        assertEquals(2, pod.feed().poll());
+        log(2, 11L, Status.DENIED, "EXPIRED");
+
+        assertEquals(1, pod.feed().poll());
+        assertEquals(0, pod.feed().poll());
+        assertEquals(List.of(10L, 12L, 11L), pod.studentIds());
+    }
+
+    @Test
+    void idThatNeverCommitsIsForgottenAfterTheGrace() throws InterruptedException {
+        GateFeed pod = feed(200);
+        log(1, 10L, Status.ALLOWED, null);
+        log(3, 12L, Status.ALLOWED, null); // 2 rolled back
+
+        pod.feed().poll();
+        Thread.sleep(250);
+        pod.feed().poll();
+        log(2, 11L, Status.ALLOWED, null); // Can't happen for real; shows nothing is waiting for it
+
+        assertEquals(0, pod.feed().poll());
+    }
+
+    @Test
+    void eventsCarryTheStudentsCampusAndSkipThrottledScans() {
+        CredentialIndexService index = new CredentialIndexService();
+        index.cache(student(10L, 7L));
+        GateFeed pod = feed(30_000, index);
+        log(1, 10L, Status.ALLOWED, null);
+        log(2, null, Status.DENIED, "INVALID_TOKEN");
+        log(3, null, Status.DENIED, "GATE_THROTTLED");
+
+        pod.feed().poll();
+
+        List<GateEvent> events = pod.dashboard().events;
+        assertEquals(2, events.size());
+        assertEquals(new GateEvent(10L, "Name 10", "tok-1", Status.ALLOWED, null, T, "G1", 7L), events.get(0));
+        assertEquals(new GateEvent(null, "Unknown", "tok-2", Status.DENIED, "INVALID_TOKEN", T, "G1", null), events.get(1));
+    }
+
+    @Test
+    void cardClonedAcrossReplicasIsCaughtByBoth() {
+        CredentialIndexService index = new CredentialIndexService();
+        index.cache(student(10L, 1L));
+        GateFeed podA = feed(30_000, index);
+        GateFeed podB = feed(30_000, index);
+        log(1, 10L, "G1", T, Status.ALLOWED, null);                 // Gate 1 reached pod A
+        log(2, 10L, "G2", T.plusSeconds(5), Status.ALLOWED, null);  // Gate 2 reached pod B
+
+        podA.feed().poll();
+        podB.feed().poll();
+
+        assertEquals(List.of(GateAlert.Type.CARD_CLONE), podA.alerts());
+        assertEquals(List.of(GateAlert.Type.CARD_CLONE), podB.alerts());
+    }
+
+    @Test
+    void cloneWindowUsesScanTimesNotArrival() {
+        CredentialIndexService index = new CredentialIndexService();
+        index.cache(student(10L, 1L));
+        GateFeed pod = feed(30_000, index);
+        log(1, 10L, "G1", T, Status.ALLOWED, null);
+        log(2, 10L, "G2", T.plusMinutes(5), Status.ALLOWED, null); // Same poll, minutes apart at the gates
+
+        pod.feed().poll();
+
+        assertTrue(pod.alerts().isEmpty());
+    }
+
+    @Test
+    void throttleLiftedOnOneReplicaIsLiftedOnAll() {
+        GateFeed podA = feed(30_000);
+        GateFeed podB = feed(30_000);
+        for (int id = 1; id <= 3; id++) log(id, null, "G9", T, Status.DENIED, "INVALID_TOKEN");
+        podA.feed().poll();
+        podB.feed().poll();
+        assertEquals(1, podA.detector().throttledGates(null).size());
+        assertEquals(1, podB.detector().throttledGates(null).size());
+
+        assertTrue(podA.feed().releaseThrottle("G9", 1L));
+        assertTrue(podA.detector().throttledGates(null).isEmpty());
+        assertEquals(1, podB.detector().throttledGates(null).size()); // Not polled yet
+
+        podB.feed().poll();
+        assertTrue(podB.detector().throttledGates(null).isEmpty());
+        assertFalse(podB.feed().releaseThrottle("G9", 1L));
+    }
+
+    // --- HELPERS ---
+    private GateFeed feed(long graceMs) {
+        return feed(graceMs, new CredentialIndexService());
+    }
+
+    private GateFeed feed(long graceMs, CredentialIndexService index) {
+        GateEventFeed feed = new GateEventFeed();
+        RecordingBroadcaster dashboard = new RecordingBroadcaster();
+        ScanAnomalyDetector detector = detector();
+        ReflectionTestUtils.setField(feed, "jdbcTemplate", jdbc);
+        ReflectionTestUtils.setField(feed, "namedJdbc", new NamedParameterJdbcTemplate(jdbc));
+        ReflectionTestUtils.setField(feed, "gateEvents", dashboard);
+        ReflectionTestUtils.setField(feed, "credentialIndex", index);
+        ReflectionTestUtils.setField(feed, "anomalyDetector", detector);
+        ReflectionTestUtils.setField(feed, "blindIndex", new PlainBlindIndex());
+        ReflectionTestUtils.setField(feed, "pollMs", 3_600_000L); // Polls are driven by the test
+        ReflectionTestUtils.setField(feed, "batchSize", 100);
+        ReflectionTestUtils.setField(feed, "graceMs", graceMs);
+        feed.start();
+        GateFeed pod = new GateFeed(feed, dashboard, detector);
+        feeds.add(pod);
+        return pod;
+    }
+
+    // Throttles after 3 invalid tokens; each replica has its own
+    private static ScanAnomalyDetector detector() {
+        ScanAnomalyDetector detector = new ScanAnomalyDetector();
+        ReflectionTestUtils.setField(detector, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(detector, "enabled", true);
+        ReflectionTestUtils.setField(detector, "windowMs", 60_000L);
+        ReflectionTestUtils.setField(detector, "cloneWindowMs", 30_000L);
+        ReflectionTestUtils.setField(detector, "gateInvalidThreshold", 3);
+        ReflectionTestUtils.setField(detector, "tokenDeniedThreshold", 10);
+        ReflectionTestUtils.setField(detector, "throttleEnabled", true);
+        ReflectionTestUtils.setField(detector, "throttleDurationMs", 300_000L);
+        ReflectionTestUtils.setField(detector, "throttleScansPerSecond", 2);
+        ReflectionTestUtils.invokeMethod(detector, "init");
+        return detector;
+    }
+
+    private void log(long id, Long studentId, Status status, String reason) {
+        log(id, studentId, "G1", T, status, reason);
+    }
+
+    // Scanned by a guard of campus 1
+    private void log(long id, Long studentId, String gateId, LocalDateTime time, Status status, String reason) {
+        jdbc.update("INSERT INTO access_logs VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", id, studentId,
+                studentId != null ? "Name " + studentId : null, "tok-" + id, 1L, gateId, Timestamp.valueOf(time),
+                status.ordinal(), reason);
+    }
+
+    private static Student student(Long id, Long campusId) {
+        Campus campus = new Campus();
+        campus.setId(campusId);
+        Student student = new Student();
+        student.setId(id);
+        student.setNfcTokenHash("hash-" + id);
+        student.setCampus(campus);
+        return student;
+    }
+}
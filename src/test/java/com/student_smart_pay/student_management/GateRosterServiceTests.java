@@ -0,0 +1,133 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.models.Campus;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.service.CredentialIndexService;
+import com.student_smart_pay.student_management.service.GateRosterService;
+import com.student_smart_pay.student_management.service.GateRosterService.RosterExport;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GateRosterServiceTests {
+
+    private static final long CAMPUS = 1L;
+
+    // One replica: its own credential index feeding its own roster
+    private record Replica(CredentialIndexService index, GateRosterService roster) {
+        void apply(Student student) {
+            index.cache(student);
+        }
+    }
+
+    @Test
+    void firstSyncIsFullAndLaterOnesAreDeltas() throws IOException {
+        Replica pod = replica();
+        pod.apply(student(1, true));
+        pod.apply(student(2, true));
+
+        RosterExport full = pod.roster().export(CAMPUS, null);
+        pod.apply(student(2, false)); // Suspended
+        RosterExport delta = pod.roster().export(CAMPUS, full.version());
+
+        assertFalse(full.delta());
+        assertEquals(List.of(1L, 2L), ids(full));
+        assertTrue(delta.delta());
+        assertEquals(full.version() + 1, delta.version());
+        assertEquals(List.of(2L), ids(delta));
+    }
+
+    @Test
+    void versionFromAnotherReplicaGetsAFullSnapshot() throws IOException {
+        Replica podA = replica();
+        Replica podB = replica();
+        for (Replica pod : List.of(podA, podB)) {
+            pod.apply(student(1, true));
+            pod.apply(student(2, true));
+        }
+        // B has seen more changes than A: A's version could land inside B's journal by count alone
+        podB.apply(student(3, true));
+        podB.apply(student(2, false));
+
+        long fromA = podA.roster().export(CAMPUS, null).version();
+        RosterExport fromB = podB.roster().export(CAMPUS, fromA);
+
+        assertNotEquals(fromA >>> 32, fromB.version() >>> 32);
+        assertFalse(fromB.delta());
+        assertEquals(List.of(1L, 2L, 3L), ids(fromB));
+    }
+
+    @Test
+    void futureOrForgottenVersionsGetAFullSnapshot() {
+        Replica pod = replica();
+        ReflectionTestUtils.setField(pod.roster(), "journalSize", 2);
+        pod.apply(student(1, true));
+        long early = pod.roster().export(CAMPUS, null).version();
+        for (int i = 2; i <= 4; i++) pod.apply(student(i, true));
+        long current = pod.roster().export(CAMPUS, null).version();
+
+        assertFalse(pod.roster().export(CAMPUS, early).delta());       // Fell out of the journal
+        assertFalse(pod.roster().export(CAMPUS, current + 1).delta()); // Never issued
+        assertTrue(pod.roster().export(CAMPUS, current - 1).delta());
+    }
+
+    @Test
+    void etagTracksTheVersion() {
+        Replica pod = replica();
+        pod.apply(student(1, true));
+        String before = pod.roster().currentEtag(CAMPUS);
+
+        pod.apply(student(1, true)); // Unchanged: same version
+        assertEquals(before, pod.roster().currentEtag(CAMPUS));
+        pod.apply(student(1, false));
+        assertNotEquals(before, pod.roster().currentEtag(CAMPUS));
+    }
+
+    // --- HELPERS ---
+    private static Replica replica() {
+        CredentialIndexService index = new CredentialIndexService();
+        GateRosterService roster = new GateRosterService();
+        ReflectionTestUtils.setField(roster, "credentialIndex", index);
+        ReflectionTestUtils.setField(roster, "journalSize", 64);
+        ReflectionTestUtils.invokeMethod(roster, "subscribe");
+        return new Replica(index, roster);
+    }
+
+    private static Student student(long id, boolean active) {
+        Campus campus = new Campus();
+        campus.setId(CAMPUS);
+        Student student = new Student();
+        student.setId(id);
+        student.setNfcToken("card-" + id);
+        student.setNfcTokenHash("hash-" + id);
+        student.setName("Student " + id);
+        student.setRole(Roles.STUDENT);
+        student.setActive(active);
+        student.setValidUntil(LocalDateTime.of(2030, 1, 1, 0, 0));
+        student.setCampus(campus);
+        return student;
+    }
+
+    // Student ids in the body, in order (format in GateRosterService)
+    private static List<Long> ids(RosterExport export) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(export.body()));
+        in.skipNBytes(4 + 1 + 8 + 8 + 8);
+        int count = in.readInt();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            byte op = in.readByte();
+            ids.add(in.readLong());
+            if (op == 1) in.skipNBytes(32 + 1 + 8 + 1);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,67 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.HistoryCursor;
+import com.student_smart_pay.student_management.dto.HistoryRow;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryCursorTests {
+
+    private record Row(Long id, LocalDateTime time) implements HistoryRow {}
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2026, 3, 31, 14, 5, 9, 123_456_000), 981);
+
+        String encoded = cursor.encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+        assertEquals(cursor, HistoryCursor.decode(encoded));
+    }
+
+    @Test
+    void firstStartsAtTheEndOfTheRange() {
+        LocalDateTime end = LocalDateTime.of(2026, 4, 1, 0, 0);
+
+        assertEquals(new HistoryCursor(end, Long.MAX_VALUE), HistoryCursor.first(end));
+    }
+
+    @Test
+    void nextPointsAtTheLastRowOfAFullSlice() {
+        LocalDateTime t = LocalDateTime.of(2026, 3, 31, 9, 0);
+        List<Row> rows = List.of(new Row(12L, t.plusSeconds(2)), new Row(11L, t.plusSeconds(1)), new Row(7L, t));
+
+        String next = HistoryCursor.next(new SliceImpl<>(rows, PageRequest.of(0, 3), true));
+
+        assertEquals(new HistoryCursor(t, 7), HistoryCursor.decode(next));
+        assertNull(HistoryCursor.next(new SliceImpl<>(rows, PageRequest.of(0, 3), false)));
+        assertNull(HistoryCursor.next(new SliceImpl<Row>(List.of(), PageRequest.of(0, 3), true)));
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        String[] bad = {
+                "not base64!",
+                encode("2026-03-31T14:05:09"),
+                encode("yesterday|5"),
+                encode("2026-03-31T14:05:09|five"),
+                encode("|5"),
+        };
+        for (String cursor : bad) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode(cursor), cursor);
+            assertEquals("Invalid cursor", e.getMessage());
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,52 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.LedgerCursor;
+import com.student_smart_pay.student_management.dto.LedgerEntryType;
+import com.student_smart_pay.student_management.dto.WalletEntryView;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LedgerCursorTests {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        LedgerCursor cursor = new LedgerCursor(1234);
+
+        assertEquals(cursor, LedgerCursor.decode(cursor.encode()));
+        assertEquals(Long.MAX_VALUE, LedgerCursor.first().seq());
+    }
+
+    @Test
+    void nextPointsAtTheLastEntryShownWhenThereIsMore() {
+        List<WalletEntryView> rows = List.of(entry(9), entry(8), entry(7)); // Fetched with limit + 1
+
+        assertEquals(8, LedgerCursor.decode(LedgerCursor.next(rows, 2)).seq());
+        assertNull(LedgerCursor.next(rows, 3));
+        assertNull(LedgerCursor.next(rows.subList(0, 2), 2));
+        assertNull(LedgerCursor.next(List.of(), 0));
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        String[] bad = {"not base64!", encode("5"), encode("H|5"), encode("L|five"), encode("L|")};
+        for (String cursor : bad) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> LedgerCursor.decode(cursor), cursor);
+            assertEquals("Invalid cursor", e.getMessage());
+        }
+    }
+
+    private static WalletEntryView entry(long seq) {
+        return new WalletEntryView(seq, LedgerEntryType.CREDIT, BigDecimal.ONE, BigDecimal.TEN, "ref-" + seq, LocalDateTime.now());
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
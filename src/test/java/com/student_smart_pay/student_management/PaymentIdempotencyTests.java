@@ -0,0 +1,173 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.ChargeResult;
+import com.student_smart_pay.student_management.dto.PaymentStatus;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.BlindIndexService;
+import com.student_smart_pay.student_management.service.CryptoService;
+import com.student_smart_pay.student_management.service.PaymentService;
+import com.student_smart_pay.student_management.service.PaymentService.IdempotencyConflictException;
+import com.student_smart_pay.student_management.service.WalletLedgerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PaymentIdempotencyTests {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private WalletLedgerService ledger;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CryptoService cryptoService;
+
+    @Autowired
+    private BlindIndexService blindIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserPrincipal cashier;
+    private UserPrincipal otherCashier;
+    private Student card;
+    private String token;
+
+    // A fresh card with 20.00 on the seeded Tech University campus, charged by its guard
+    @BeforeEach
+    void setUp() {
+        cashier = UserPrincipal.from(studentRepository.findByEmail("guard@tech.edu").orElseThrow());
+        otherCashier = UserPrincipal.from(studentRepository.findByEmail("admin@tech.edu").orElseThrow());
+        card = newCard();
+        token = card.getNfcToken();
+    }
+
+    @Test
+    void retryWithTheSameKeyReplaysWithoutChargingAgain() {
+        String key = key();
+
+        ChargeResult first = paymentService.charge(cashier, key, token, new BigDecimal("4.50"), "POS-1");
+        ChargeResult retry = paymentService.charge(cashier, key, token, new BigDecimal("4.50"), "POS-1");
+
+        assertEquals(PaymentStatus.APPROVED, first.status());
+        assertFalse(first.replayed());
+        assertEquals(0, new BigDecimal("15.50").compareTo(first.balance()));
+        assertTrue(retry.replayed());
+        assertEquals(first.transactionId(), retry.transactionId());
+        assertEquals(0, first.balance().compareTo(retry.balance()));
+        assertEquals(0, new BigDecimal("15.50").compareTo(ledger.refresh(card.getId()).amount()));
+        assertEquals(1, payments(key));
+    }
+
+    @Test
+    void declinesAreReplayedToo() {
+        String key = key();
+
+        ChargeResult first = paymentService.charge(cashier, key, token, new BigDecimal("25.00"), "POS-1");
+        ChargeResult retry = paymentService.charge(cashier, key, token, new BigDecimal("25.00"), "POS-1");
+
+        assertEquals(PaymentStatus.DECLINED, first.status());
+        assertEquals("INSUFFICIENT_FUNDS", first.reason());
+        assertTrue(retry.replayed());
+        assertEquals(first.transactionId(), retry.transactionId());
+        assertEquals("INSUFFICIENT_FUNDS", retry.reason());
+    }
+
+    @Test
+    void sameKeyWithAnotherAmountOrCardConflicts() {
+        String key = key();
+        paymentService.charge(cashier, key, token, new BigDecimal("2.00"), "POS-1");
+
+        assertThrows(IdempotencyConflictException.class,
+                () -> paymentService.charge(cashier, key, token, new BigDecimal("3.00"), "POS-1"));
+        assertThrows(IdempotencyConflictException.class,
+                () -> paymentService.charge(cashier, key, newCard().getNfcToken(), new BigDecimal("2.00"), "POS-1"));
+        assertEquals(1, payments(key));
+        assertEquals(0, new BigDecimal("18.00").compareTo(ledger.refresh(card.getId()).amount()));
+    }
+
+    @Test
+    void keysAreScopedToTheOperator() {
+        String key = key();
+
+        ChargeResult mine = paymentService.charge(cashier, key, token, new BigDecimal("1.00"), "POS-1");
+        ChargeResult theirs = paymentService.charge(otherCashier, key, token, new BigDecimal("1.00"), "POS-2");
+
+        assertFalse(theirs.replayed());
+        assertNotEquals(mine.transactionId(), theirs.transactionId());
+        assertEquals(0, new BigDecimal("18.00").compareTo(theirs.balance()));
+    }
+
+    @Test
+    void retriedDynamicQrIsReplayedAlthoughTheCodeIsSpent() {
+        String key = key();
+        String qr = qr(card);
+
+        ChargeResult first = paymentService.charge(cashier, key, qr, new BigDecimal("3.00"), "POS-1");
+        ChargeResult retry = paymentService.charge(cashier, key, qr, new BigDecimal("3.00"), "POS-1");
+        ChargeResult reused = paymentService.charge(cashier, key(), qr, new BigDecimal("3.00"), "POS-1");
+
+        assertEquals(PaymentStatus.APPROVED, first.status());
+        assertTrue(retry.replayed());
+        assertEquals(first.transactionId(), retry.transactionId());
+        // A new key with the spent code is a new charge, and the code no longer resolves
+        assertEquals("INVALID_TOKEN", reused.reason());
+    }
+
+    @Test
+    void keyIsRequiredAndBounded() {
+        BigDecimal amount = BigDecimal.ONE;
+
+        assertThrows(IllegalArgumentException.class, () -> paymentService.charge(cashier, null, token, amount, "POS-1"));
+        assertThrows(IllegalArgumentException.class, () -> paymentService.charge(cashier, " ", token, amount, "POS-1"));
+        assertThrows(IllegalArgumentException.class, () -> paymentService.charge(cashier, "k".repeat(65), token, amount, "POS-1"));
+    }
+
+    // --- HELPERS ---
+    private Student newCard() {
+        String encrypted = cryptoService.encrypt("STU-TECH-PAY-" + UUID.randomUUID());
+        Student student = new Student();
+        student.setName("Payment Test");
+        student.setEmail("pay-" + UUID.randomUUID() + "@tech.edu");
+        student.setNfcToken(encrypted);
+        student.setNfcTokenHash(blindIndex.hash(encrypted));
+        student.setQrSecret(UUID.randomUUID().toString());
+        student.setPassword("x");
+        student.setValidUntil(LocalDateTime.now().plusYears(1));
+        student.setWalletBalance(new BigDecimal("20.00"));
+        student.setCampus(studentRepository.findByEmail("guard@tech.edu").orElseThrow().getCampus());
+        return studentRepository.save(student);
+    }
+
+    private String qr(Student student) {
+        String payload = student.getId() + ":" + System.currentTimeMillis();
+        byte[] signature = cryptoService.hmacSha256(CryptoService.hmacKey(student.getQrSecret()),
+                payload.getBytes(StandardCharsets.UTF_8));
+        return payload + ":" + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private static String key() {
+        return UUID.randomUUID().toString();
+    }
+
+    private int payments(String key) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments WHERE idempotency_key = ?", Integer.class, key);
+    }
+}
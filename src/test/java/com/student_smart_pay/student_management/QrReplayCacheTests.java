@@ -0,0 +1,154 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.service.QrReplayCache;
+import com.student_smart_pay.student_management.service.QrReplayStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrReplayCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private QrReplayCache cache;
+
+    @AfterEach
+    void stop() {
+        if (cache != null) ReflectionTestUtils.invokeMethod(cache, "shutdown");
+    }
+
+    @Test
+    void secondClaimOfTheSameCodeIsAReplay() {
+        cache = cache(16384, null);
+        long now = System.currentTimeMillis();
+
+        assertTrue(cache.claim(7, now));
+        assertFalse(cache.claim(7, now));
+        assertTrue(cache.claim(7, now + 1));
+        assertTrue(cache.claim(8, now));
+        assertEquals(1.0, registry.counter("gate.qr.replay.rejected").count());
+    }
+
+    @Test
+    void concurrentScansOfOneCodeLetExactlyOneThrough() throws InterruptedException {
+        cache = cache(16384, null);
+        long now = System.currentTimeMillis();
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (cache.claim(42, now)) granted.incrementAndGet();
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        go.countDown();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(1, granted.get());
+    }
+
+    @Test
+    void sharedStoreIsAskedOnlyAfterALocalFirstClaim() {
+        AtomicInteger asked = new AtomicInteger();
+        // Another replica already saw every code
+        QrReplayStore store = (studentId, issuedAt, ttlMillis) -> {
+            asked.incrementAndGet();
+            return false;
+        };
+        cache = cache(16384, store);
+        long now = System.currentTimeMillis();
+
+        assertFalse(cache.claim(7, now));
+        assertFalse(cache.claim(7, now));
+        assertEquals(1, asked.get());
+        assertEquals(2.0, registry.counter("gate.qr.replay.rejected").count());
+    }
+
+    @Test
+    void sharedStoreFailureFallsBackToTheLocalClaim() {
+        QrReplayStore store = (studentId, issuedAt, ttlMillis) -> {
+            throw new IllegalStateException("database down");
+        };
+        cache = cache(16384, store);
+        long now = System.currentTimeMillis();
+
+        assertTrue(cache.claim(7, now));
+        assertFalse(cache.claim(7, now)); // Still one use per replica
+        assertEquals(1.0, registry.counter("gate.qr.replay.store_errors").count());
+    }
+
+    @Test
+    void claimsRacingABucketTakeoverAreAllKept() throws InterruptedException {
+        cache = cache(16384, null);
+        long now = System.currentTimeMillis();
+        for (int round = 0; round < 50; round++) {
+            long issuedAt = now + round * 5_000L;
+            // Rotator fell behind: the bucket still belongs to an epoch one ring ago
+            long epoch = Math.floorDiv(issuedAt, 5_000);
+            AtomicLongArray epochs = (AtomicLongArray) ReflectionTestUtils.getField(cache, "bucketEpochs");
+            epochs.set(Math.floorMod(epoch, 16), epoch - 16);
+
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long studentId = t;
+                Thread thread = new Thread(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    cache.claim(studentId, issuedAt);
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            go.countDown();
+            for (Thread thread : threads) thread.join();
+
+            for (int t = 0; t < 8; t++) assertFalse(cache.claim(t, issuedAt), "claim wiped in round " + round);
+        }
+    }
+
+    @Test
+    void fullBucketLetsScansThroughAndCountsTheOverflow() {
+        cache = cache(64, null);
+        long bucketStart = Math.floorDiv(System.currentTimeMillis(), 5_000) * 5_000;
+
+        for (int i = 0; i < 200; i++) assertTrue(cache.claim(i, bucketStart + i));
+        assertTrue(registry.counter("gate.qr.replay.overflow").count() > 0);
+    }
+
+    @Test
+    void codesOlderThanTheRingAreLeftToTheTimeCheck() {
+        cache = cache(16384, null);
+        long old = System.currentTimeMillis() - 10 * 60_000;
+
+        assertTrue(cache.claim(7, old));
+        assertTrue(cache.claim(7, old));
+    }
+
+    private QrReplayCache cache(int capacity, QrReplayStore store) {
+        QrReplayCache cache = new QrReplayCache();
+        ReflectionTestUtils.setField(cache, "bucketCapacity", capacity);
+        ReflectionTestUtils.setField(cache, "meterRegistry", registry);
+        ReflectionTestUtils.setField(cache, "sharedStore", store);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        return cache;
+    }
+}
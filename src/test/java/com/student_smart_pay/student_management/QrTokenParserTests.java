@@ -0,0 +1,84 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.service.QrTokenParser;
+import com.student_smart_pay.student_management.service.QrTokenParser.QrToken;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrTokenParserTests {
+
+    private static final byte[] SIGNATURE = new byte[QrTokenParser.SIGNATURE_BYTES];
+    static {
+        for (int i = 0; i < SIGNATURE.length; i++) SIGNATURE[i] = (byte) (i * 37 + 11);
+    }
+
+    private static final String ENCODED = Base64.getUrlEncoder().withoutPadding().encodeToString(SIGNATURE);
+
+    @Test
+    void parsesIdTimestampPayloadAndSignature() {
+        QrToken qr = QrTokenParser.parse("42:1760000000123:" + ENCODED);
+
+        assertNotNull(qr);
+        assertEquals(42, qr.studentId());
+        assertEquals(1760000000123L, qr.timestamp());
+        assertEquals("42:1760000000123",
+                new String(qr.payload(), 0, qr.payloadLength(), StandardCharsets.US_ASCII));
+        assertArrayEquals(SIGNATURE, qr.signature());
+        assertEquals(42L, QrTokenParser.studentId("42:1760000000123:" + ENCODED));
+    }
+
+    @Test
+    void rejectsMalformedTokens() {
+        String[] bad = {
+                "",
+                "STU-TECH-001",
+                "42",
+                "42:",
+                ":1760000000123:" + ENCODED,
+                "42::" + ENCODED,
+                "4x2:1760000000123:" + ENCODED,
+                "42:1760000000123" + ENCODED,
+                "1234567890123456789:1760000000123:" + ENCODED, // 19 digits
+                "42:1760000000123:" + ENCODED.substring(1),
+                "42:1760000000123:" + ENCODED + "A",
+                "42:1760000000123:" + ENCODED.substring(0, 42) + "+",
+                "42:1760000000123:" + ENCODED.substring(0, 42) + "é",
+        };
+        for (String token : bad) {
+            assertNull(QrTokenParser.parse(token), token);
+            assertNull(QrTokenParser.studentId(token), token);
+        }
+    }
+
+    @Test
+    void rejectsNonCanonicalLastCharacter() {
+        // The 43rd char holds 4 signature bits and 2 unused ones; only the all-zero variant is valid
+        char last = ENCODED.charAt(42);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        int value = alphabet.indexOf(last);
+        assertEquals(0, value & 3);
+
+        for (int unused = 1; unused < 4; unused++) {
+            String token = "42:1760000000123:" + ENCODED.substring(0, 42) + alphabet.charAt(value | unused);
+            assertNull(QrTokenParser.parse(token), token);
+        }
+        assertNotNull(QrTokenParser.parse("42:1760000000123:" + ENCODED));
+    }
+
+    @Test
+    void reusesOneResultPerThread() {
+        QrToken first = QrTokenParser.parse("1:2:" + ENCODED);
+        byte[] other = SIGNATURE.clone();
+        other[0] ^= 1;
+        QrToken second = QrTokenParser.parse("3:4:" + Base64.getUrlEncoder().withoutPadding().encodeToString(other));
+
+        assertSame(first, second);
+        assertEquals(3, second.studentId());
+        assertFalse(Arrays.equals(SIGNATURE, second.signature()));
+    }
+}
@@ -0,0 +1,85 @@
+package com.student_smart_pay.student_management;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+@SpringBootTest
+class SecurityConfigTests {
+
+    private static final String DASHBOARD = "http://localhost:5173";
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mvc;
+
+    // Built on the shared test context, so no second application (and database) is started
+    @BeforeEach
+    void setUp() {
+        mvc = MockMvcBuilders.webAppContextSetup(context).apply(springSecurity()).build();
+    }
+
+    @Test
+    void dashboardCanSendConditionalRosterRequests() throws Exception {
+        MockHttpServletResponse preflight = mvc.perform(options("/api/v1/gate/roster")
+                        .header(HttpHeaders.ORIGIN, DASHBOARD)
+                        .header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "GET")
+                        .header(HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS, "authorization, if-none-match"))
+                .andReturn().getResponse();
+
+        assertEquals(200, preflight.getStatus());
+        assertTrue(values(preflight, HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS).contains("if-none-match"));
+    }
+
+    @Test
+    void dashboardCanReadTheRosterSyncHeaders() throws Exception {
+        MockHttpServletResponse roster = mvc.perform(get("/api/v1/gate/roster")
+                        .header(HttpHeaders.ORIGIN, DASHBOARD)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + login("guard@tech.edu")))
+                .andReturn().getResponse();
+
+        assertEquals(200, roster.getStatus());
+        assertTrue(values(roster, HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS).containsAll(List.of("ETag", "X-Roster-Version", "X-Roster-Type")));
+    }
+
+    @Test
+    void dashboardCanReadHowFreshTheStatsAre() throws Exception {
+        MockHttpServletResponse stats = mvc.perform(get("/api/v1/gate/stats")
+                        .header(HttpHeaders.ORIGIN, DASHBOARD)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + login("admin@tech.edu")))
+                .andReturn().getResponse();
+
+        assertEquals(200, stats.getStatus());
+        assertTrue(values(stats, HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS).contains("X-Rollup-Through"));
+    }
+
+    // --- HELPERS ---
+    private String login(String email) throws Exception {
+        String body = mvc.perform(post("/api/v1/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"123\"}"))
+                .andReturn().getResponse().getContentAsString();
+        return new ObjectMapper().readTree(body).get("token").asText();
+    }
+
+    private static List<String> values(MockHttpServletResponse response, String name) {
+        String header = response.getHeader(name);
+        assertNotNull(header);
+        return List.of(header.split(",\\s*"));
+    }
+}
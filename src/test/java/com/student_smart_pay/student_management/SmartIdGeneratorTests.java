@@ -0,0 +1,151 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.Roles;
+import com.student_smart_pay.student_management.service.JobLeaseService;
+import com.student_smart_pay.student_management.service.SmartIdGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SmartIdGeneratorTests {
+
+    private SmartIdGenerator generator;
+
+    @AfterEach
+    void stop() {
+        if (generator != null) ReflectionTestUtils.invokeMethod(generator, "shutdown");
+    }
+
+    @Test
+    void formatsPrefixCampusYearAndFixedWidthNumber() {
+        generator = generator(5, null);
+        String year = Year.now().toString();
+
+        String student = generator.next(Roles.STUDENT, "TECH");
+        String guest = generator.next(Roles.GUEST, null);
+
+        assertTrue(student.matches("STU-TECH-" + year + "-\\d{19}"), student);
+        assertTrue(guest.matches("GST-" + year + "-\\d{19}"), guest);
+        assertEquals(5, node(student));
+        assertTrue(number(guest) > number(student));
+    }
+
+    @Test
+    void idsStayUniqueAcrossThreadsAndBlocks() throws InterruptedException {
+        generator = generator(1, null);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 20_000; i++) ids.add(generator.next(Roles.STUDENT, "TECH"));
+                SmartIdGenerator.Block block = generator.reserve(500);
+                for (int i = 0; i < 500; i++) ids.add(block.next(Roles.GUEST, null));
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(8 * 20_500, ids.size());
+    }
+
+    @Test
+    void fullSequenceCarriesIntoTheNextMillisecond() {
+        generator = generator(3, null);
+        int count = 10_000; // More than the 4096 ids one millisecond holds
+        SmartIdGenerator.Block block = generator.reserve(count);
+
+        long previous = -1;
+        long firstMs = -1;
+        long lastMs = -1;
+        for (int i = 0; i < count; i++) {
+            long n = number(block.next(Roles.STUDENT, null));
+            assertEquals(3, (n >>> 12) & 1023);
+            assertTrue(n > previous);
+            previous = n;
+            if (firstMs < 0) firstMs = n >>> 22;
+            lastMs = n >>> 22;
+        }
+        assertTrue(lastMs >= firstMs + 2, "10000 ids span at least 3 milliseconds");
+        assertThrows(IllegalStateException.class, () -> block.next(Roles.STUDENT, null));
+
+        // The next id comes after the whole block, even if the clock hasn't caught up
+        assertTrue(number(generator.next(Roles.STUDENT, null)) > previous);
+    }
+
+    @Test
+    void rejectsOutOfRangeNodeIdAndBadBlockSize() {
+        assertThrows(IllegalStateException.class, () -> generator(1024, null));
+        generator = generator(0, null);
+        assertThrows(IllegalArgumentException.class, () -> generator.reserve(0));
+    }
+
+    @Test
+    void leasesTheFirstFreeNodeIdWhenNoneIsConfigured() {
+        List<String> released = new ArrayList<>();
+        JobLeaseService leases = new JobLeaseService() {
+            @Override
+            public boolean tryAcquire(String name, Duration ttl) {
+                return !name.equals("smart-id-node-0") && !name.equals("smart-id-node-1");
+            }
+
+            @Override
+            public void release(String name) {
+                released.add(name);
+            }
+        };
+        generator = generator(-1, leases);
+
+        assertEquals(2, node(generator.next(Roles.STUDENT, "TECH")));
+
+        ReflectionTestUtils.invokeMethod(generator, "shutdown");
+        generator = null;
+        assertEquals(List.of("smart-id-node-2"), released);
+    }
+
+    @Test
+    void stopsIssuingOnceTheLeaseCouldHaveExpired() {
+        JobLeaseService leases = new JobLeaseService() {
+            @Override
+            public boolean tryAcquire(String name, Duration ttl) {
+                return true;
+            }
+
+            @Override
+            public void release(String name) {
+            }
+        };
+        generator = generator(-1, leases);
+        generator.next(Roles.STUDENT, "TECH");
+
+        ReflectionTestUtils.setField(generator, "leaseDeadline", System.nanoTime() - 1);
+        assertThrows(IllegalStateException.class, () -> generator.next(Roles.STUDENT, "TECH"));
+    }
+
+    // --- HELPERS ---
+    private static SmartIdGenerator generator(long nodeId, JobLeaseService leases) {
+        SmartIdGenerator generator = new SmartIdGenerator();
+        ReflectionTestUtils.setField(generator, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(generator, "leaseSeconds", 60L);
+        ReflectionTestUtils.setField(generator, "leases", leases);
+        ReflectionTestUtils.invokeMethod(generator, "init");
+        return generator;
+    }
+
+    private static long number(String smartId) {
+        return Long.parseLong(smartId.substring(smartId.lastIndexOf('-') + 1));
+    }
+
+    private static long node(String smartId) {
+        return (number(smartId) >>> 12) & 1023;
+    }
+}
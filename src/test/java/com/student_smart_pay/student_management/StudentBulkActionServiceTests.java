@@ -0,0 +1,127 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.BulkAction;
+import com.student_smart_pay.student_management.dto.BulkActionRequestDto;
+import com.student_smart_pay.student_management.dto.GateCredential;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Campus;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.BulkJob;
+import com.student_smart_pay.student_management.service.BulkJob.RowError;
+import com.student_smart_pay.student_management.service.CredentialIndexService;
+import com.student_smart_pay.student_management.service.StudentBulkActionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StudentBulkActionServiceTests {
+
+    @Autowired
+    private StudentBulkActionService bulkActions;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserPrincipal admin;
+    private Campus tech;
+    private Campus redRock;
+
+    // The seeded Tech University campus admin
+    @BeforeEach
+    void setUp() {
+        Student techAdmin = studentRepository.findByEmail("admin@tech.edu").orElseThrow();
+        admin = UserPrincipal.from(techAdmin);
+        tech = techAdmin.getCampus();
+        redRock = studentRepository.findByEmail("admin@redrock.edu").orElseThrow().getCampus();
+    }
+
+    @Test
+    void suspendBumpsCredentialsVersionAndRefreshesTheIndex() {
+        Student first = newStudent(tech);
+        Student second = newStudent(tech);
+
+        BulkJob job = bulkActions.start(admin, request(BulkAction.SUSPEND, first.getId(), second.getId()));
+
+        assertEquals(2, job.getSucceeded());
+        for (Student student : List.of(first, second)) {
+            assertEquals(1, credentialsVersion(student));
+            GateCredential indexed = credentialIndex.findById(student.getId()).orElseThrow();
+            assertFalse(indexed.active());
+            assertEquals(1, indexed.credentialsVersion()); // Tokens carrying version 0 now fail the JWT check
+        }
+    }
+
+    @Test
+    void suspendingTwiceDoesNotBumpAgain() {
+        Student student = newStudent(tech);
+
+        bulkActions.start(admin, request(BulkAction.SUSPEND, student.getId()));
+        bulkActions.start(admin, request(BulkAction.SUSPEND, student.getId()));
+        bulkActions.start(admin, request(BulkAction.REACTIVATE, student.getId()));
+
+        assertEquals(1, credentialsVersion(student));
+        assertTrue(credentialIndex.findById(student.getId()).orElseThrow().active());
+    }
+
+    @Test
+    void otherCampusesAndOwnAccountAreReportedAndLeftAlone() {
+        Student mine = newStudent(tech);
+        Student theirs = newStudent(redRock);
+
+        BulkJob job = bulkActions.start(admin, request(BulkAction.SUSPEND, mine.getId(), theirs.getId(), admin.id()));
+
+        assertEquals(1, job.getSucceeded());
+        assertEquals(List.of(
+                new RowError(3, String.valueOf(admin.id()), "You cannot suspend your own account."),
+                new RowError(2, String.valueOf(theirs.getId()), "Student not found or belongs to a different campus.")),
+                job.getErrors());
+        assertEquals(0, credentialsVersion(theirs));
+        assertTrue(credentialIndex.findById(theirs.getId()).orElseThrow().active());
+    }
+
+    // --- HELPERS ---
+    private Student newStudent(Campus campus) {
+        String token = "BULK-" + UUID.randomUUID();
+        Student student = new Student();
+        student.setName("Bulk Action Test");
+        student.setEmail("bulk-action-" + UUID.randomUUID() + "@tech.edu");
+        student.setNfcToken(token);
+        student.setNfcTokenHash(UUID.randomUUID().toString());
+        student.setPassword("x");
+        student.setActive(true);
+        student.setValidUntil(LocalDateTime.now().plusYears(1));
+        student.setWalletBalance(BigDecimal.ZERO);
+        student.setCampus(campus);
+        Student saved = studentRepository.save(student);
+        credentialIndex.upsert(saved);
+        return saved;
+    }
+
+    private static BulkActionRequestDto request(BulkAction action, Long... ids) {
+        BulkActionRequestDto request = new BulkActionRequestDto();
+        request.setAction(action);
+        request.setStudentIds(List.of(ids));
+        return request;
+    }
+
+    private int credentialsVersion(Student student) {
+        return jdbcTemplate.queryForObject("SELECT credentials_version FROM students WHERE id = ?", Integer.class, student.getId());
+    }
+}
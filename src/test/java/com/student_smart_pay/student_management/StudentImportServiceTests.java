@@ -0,0 +1,125 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.RegisterRequestDto;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.BulkJob;
+import com.student_smart_pay.student_management.service.BulkJob.RowError;
+import com.student_smart_pay.student_management.service.BulkJobService;
+import com.student_smart_pay.student_management.service.CredentialIndexService;
+import com.student_smart_pay.student_management.service.StudentImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StudentImportServiceTests {
+
+    @Autowired
+    private StudentImportService importService;
+
+    @Autowired
+    private BulkJobService bulkJobs;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private CredentialIndexService credentialIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private UserPrincipal admin;
+    private String run;
+
+    // The seeded Tech University campus admin, and a fresh email domain per test
+    @BeforeEach
+    void setUp() {
+        admin = UserPrincipal.from(studentRepository.findByEmail("admin@tech.edu").orElseThrow());
+        run = UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Test
+    void invalidAndDuplicateRowsAreReportedAndTheRestImported() throws InterruptedException {
+        BulkJob job = importAndWait(List.of(
+                row("One", email("one"), "pw"),
+                row("One Again", email("ONE"), "pw"),        // Same email, other case
+                row("Alice Again", "alice@tech.edu", "pw"),  // Already in the DB
+                row("No Password", email("three"), null),
+                row("Two", email("two"), "pw")));
+
+        assertEquals(BulkJob.State.COMPLETED, job.getState());
+        assertEquals(2, job.getSucceeded());
+        assertEquals(List.of(
+                new RowError(2, email("ONE"), "Duplicate email in upload"),
+                new RowError(3, "alice@tech.edu", "Email already in use."),
+                new RowError(4, email("three"), "Password is required")), job.getErrors());
+
+        // Admin's own campus, and already in the gate index
+        Student imported = studentRepository.findByEmail(email("two")).orElseThrow();
+        assertEquals(admin.campusId(), imported.getCampus().getId());
+        assertTrue(credentialIndex.findByNfcTokenHash(imported.getNfcTokenHash()).isPresent());
+    }
+
+    @Test
+    void failingBatchRollsBackWholeAndRetriesRowByRow() throws InterruptedException {
+        // Passes validation but not the column: the batch INSERT fails at row 2
+        BulkJob job = importAndWait(List.of(
+                row("First", email("a"), "pw"),
+                row("x".repeat(300), email("b"), "pw"),
+                row("Third", email("c"), "pw")));
+
+        assertEquals(2, job.getSucceeded());
+        // Had row 1 survived the failed batch, the retry would report it as a duplicate
+        assertEquals(1, job.getErrors().size());
+        assertEquals(2, job.getErrors().get(0).row());
+        assertEquals(1, count(email("a")));
+        assertEquals(0, count(email("b")));
+        assertEquals(1, count(email("c")));
+    }
+
+    @Test
+    void onlyAdminsMayImport() {
+        UserPrincipal guard = UserPrincipal.from(studentRepository.findByEmail("guard@tech.edu").orElseThrow());
+        List<RegisterRequestDto> rows = List.of(row("One", email("one"), "pw"));
+
+        assertThrows(SecurityException.class, () -> importService.startImport(guard, rows));
+        assertThrows(IllegalArgumentException.class, () -> importService.startImport(admin, List.of()));
+    }
+
+    // --- HELPERS ---
+    private BulkJob importAndWait(List<RegisterRequestDto> rows) throws InterruptedException {
+        BulkJob job = importService.startImport(admin, rows);
+        for (int i = 0; i < 200; i++) {
+            BulkJob current = bulkJobs.getJob(admin, job.getJobId());
+            if (current.getState() == BulkJob.State.COMPLETED || current.getState() == BulkJob.State.FAILED) return current;
+            Thread.sleep(50);
+        }
+        return fail("Import did not finish");
+    }
+
+    private String email(String name) {
+        return name + "-" + run + "@import.tech.edu";
+    }
+
+    private static RegisterRequestDto row(String name, String email, String password) {
+        RegisterRequestDto dto = new RegisterRequestDto();
+        dto.setName(name);
+        dto.setEmail(email);
+        dto.setPassword(password);
+        return dto;
+    }
+
+    private int count(String email) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM students WHERE LOWER(email) = LOWER(?)", Integer.class, email);
+    }
+}
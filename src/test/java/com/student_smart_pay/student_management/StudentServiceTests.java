@@ -0,0 +1,78 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.StudentCursor;
+import com.student_smart_pay.student_management.dto.StudentFilter;
+import com.student_smart_pay.student_management.dto.UserDto;
+import com.student_smart_pay.student_management.dto.UserPrincipal;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.StudentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StudentServiceTests {
+
+    @Autowired
+    private StudentService studentService;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    private UserPrincipal admin;
+    private Student techAdmin;
+    private String run;
+
+    // The seeded Tech University campus admin, and a fresh name prefix per test
+    @BeforeEach
+    void setUp() {
+        techAdmin = studentRepository.findByEmail("admin@tech.edu").orElseThrow();
+        admin = UserPrincipal.from(techAdmin);
+        run = UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @Test
+    void wildcardsInTheSearchAreMatchedLiterally() {
+        newStudent(run + " a_b");
+        newStudent(run + " axb");
+        newStudent(run + " 100%");
+        newStudent(run + " 1000");
+        newStudent(run + " back\\slash");
+
+        assertEquals(List.of(run + " a_b"), search(run + " a_"));
+        assertEquals(List.of(run + " 100%"), search(run + " 100%"));
+        assertEquals(List.of(run + " back\\slash"), search(run + " back\\"));
+        assertEquals(5, search(run).size()); // Plain text is still a prefix match
+    }
+
+    // --- HELPERS ---
+    private List<String> search(String text) {
+        StudentFilter filter = studentService.resolveListingFilter(admin, null, null, null, text);
+        return studentService.listStudents(filter, StudentCursor.Sort.NAME, null, 50).items().stream()
+                .map(UserDto::getName)
+                .toList();
+    }
+
+    private void newStudent(String name) {
+        Student student = new Student();
+        student.setName(name);
+        student.setEmail("search-" + UUID.randomUUID() + "@tech.edu");
+        student.setNfcToken("SEARCH-" + UUID.randomUUID());
+        student.setNfcTokenHash(UUID.randomUUID().toString());
+        student.setPassword("x");
+        student.setActive(true);
+        student.setValidUntil(LocalDateTime.now().plusYears(1));
+        student.setWalletBalance(BigDecimal.ZERO);
+        student.setCampus(techAdmin.getCampus());
+        studentRepository.save(student);
+    }
+}
@@ -0,0 +1,146 @@
+package com.student_smart_pay.student_management;
+
+import com.student_smart_pay.student_management.dto.KeysetPage;
+import com.student_smart_pay.student_management.dto.LedgerEntryType;
+import com.student_smart_pay.student_management.dto.WalletEntryView;
+import com.student_smart_pay.student_management.models.Student;
+import com.student_smart_pay.student_management.repository.StudentRepository;
+import com.student_smart_pay.student_management.service.WalletLedgerService;
+import com.student_smart_pay.student_management.service.WalletLedgerService.Balance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class WalletLedgerServiceTests {
+
+    @Autowired
+    private WalletLedgerService ledger;
+
+    @Autowired
+    private StudentRepository studentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private long studentId;
+
+    // A fresh wallet per test, opening at 20.00
+    @BeforeEach
+    void newWallet() {
+        Student student = new Student();
+        student.setName("Ledger Test");
+        student.setEmail("ledger-" + UUID.randomUUID() + "@tech.edu");
+        student.setNfcToken("LEDGER-" + UUID.randomUUID());
+        student.setPassword("x");
+        student.setValidUntil(LocalDateTime.now().plusYears(1));
+        student.setWalletBalance(new BigDecimal("20.00"));
+        studentId = studentRepository.save(student).getId();
+    }
+
+    @Test
+    void balanceFollowsCreditsAndDebits() {
+        assertEquals(new Balance(new BigDecimal("20.00"), 0), ledger.balance(studentId));
+
+        Balance afterCredit = ledger.post(studentId, LedgerEntryType.CREDIT, new BigDecimal("10.00"), () -> ref("credit"));
+        Balance afterDebit = ledger.post(studentId, LedgerEntryType.DEBIT, new BigDecimal("3.50"), () -> ref("debit"));
+
+        assertEquals(new Balance(new BigDecimal("30.00"), 1), afterCredit);
+        assertEquals(new Balance(new BigDecimal("26.50"), 2), afterDebit);
+        // The database agrees with the cache, and the students copy moved with it
+        assertEquals(afterDebit, ledger.refresh(studentId));
+        assertEquals(0, new BigDecimal("26.50").compareTo(walletColumn()));
+    }
+
+    @Test
+    void overdraftIsRefusedWithoutAnEntry() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ledger.post(studentId, LedgerEntryType.DEBIT, new BigDecimal("20.01"), () -> ref("too-much")));
+
+        assertEquals(0, entries());
+        assertEquals(new Balance(new BigDecimal("20.00"), 0), ledger.refresh(studentId));
+    }
+
+    @Test
+    void staleSeqCollidesAndTheNextLookRereads() {
+        ledger.post(studentId, LedgerEntryType.CREDIT, new BigDecimal("10.00"), () -> ref("mine"));
+
+        // Another replica appends seq 2 behind this one's cached balance
+        jdbcTemplate.update("INSERT INTO wallet_ledger (student_id, seq, type, amount, balance_after, reference, created_at) " +
+                        "VALUES (?, 2, 'DEBIT', 5.00, 25.00, ?, ?)",
+                studentId, ref("peer"), Timestamp.valueOf(LocalDateTime.now()));
+        jdbcTemplate.update("UPDATE students SET wallet_balance = wallet_balance - 5.00 WHERE id = ?", studentId);
+
+        assertThrows(DuplicateKeyException.class,
+                () -> ledger.post(studentId, LedgerEntryType.DEBIT, new BigDecimal("1.00"), () -> ref("stale")));
+        assertEquals(new Balance(new BigDecimal("25.00"), 2), ledger.balance(studentId));
+
+        Balance retried = ledger.post(studentId, LedgerEntryType.DEBIT, new BigDecimal("1.00"), () -> ref("retried"));
+        assertEquals(new Balance(new BigDecimal("24.00"), 3), retried);
+        assertEquals(0, new BigDecimal("24.00").compareTo(walletColumn()));
+    }
+
+    @Test
+    void referenceMovesMoneyOnlyOnce() {
+        String reference = ref("top-up");
+        ledger.post(studentId, LedgerEntryType.CREDIT, new BigDecimal("5.00"), () -> reference);
+
+        assertThrows(DuplicateKeyException.class,
+                () -> ledger.post(studentId, LedgerEntryType.CREDIT, new BigDecimal("5.00"), () -> reference));
+        assertEquals(new Balance(new BigDecimal("25.00"), 1), ledger.balance(studentId));
+        assertEquals(studentId, ledger.findByReference(reference).orElseThrow().studentId());
+    }
+
+    @Test
+    void refusesToPostInsideATransaction() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status ->
+                ledger.post(studentId, LedgerEntryType.CREDIT, BigDecimal.ONE, () -> ref("in-tx"))));
+        assertEquals(0, entries());
+    }
+
+    @Test
+    void statementPagesNewestFirst() {
+        for (int i = 1; i <= 3; i++) {
+            ledger.post(studentId, LedgerEntryType.CREDIT, new BigDecimal(i), () -> ref("page"));
+        }
+
+        KeysetPage<WalletEntryView> first = ledger.statement(studentId, null, 2);
+        KeysetPage<WalletEntryView> second = ledger.statement(studentId, first.nextCursor(), 2);
+
+        assertEquals(List.of(3L, 2L), first.items().stream().map(WalletEntryView::seq).toList());
+        assertEquals(0, new BigDecimal("26.00").compareTo(first.items().get(0).balanceAfter()));
+        assertEquals(List.of(1L), second.items().stream().map(WalletEntryView::seq).toList());
+        assertNull(second.nextCursor());
+    }
+
+    // --- HELPERS ---
+    private static String ref(String what) {
+        return "test:" + what + ":" + UUID.randomUUID();
+    }
+
+    private BigDecimal walletColumn() {
+        return jdbcTemplate.queryForObject("SELECT wallet_balance FROM students WHERE id = ?", BigDecimal.class, studentId);
+    }
+
+    private int entries() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wallet_ledger WHERE student_id = ?", Integer.class, studentId);
+    }
+}